@@ -0,0 +1,63 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.TextureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.Buffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PixelFormatConverterBenchmark {
+    @Param({"TYPE_2", "TYPE_3", "TYPE_4", "TYPE_6", "TYPE_10"})
+    public TextureType type;
+
+    // 128 is converted on the calling thread, 2048 is split into bands
+    @Param({"128", "2048"})
+    public int size;
+
+    private int[] rgba;
+    private Buffer pixels;
+
+    @Setup
+    public void setup() {
+        rgba = new int[size * size];
+
+        Random random = new Random(0);
+        for (int i = 0; i < rgba.length; i++) {
+            rgba[i] = random.nextInt();
+        }
+
+        pixels = PixelFormatConverter.fromRgba8(rgba, type, size, size);
+    }
+
+    @Benchmark
+    public int[] toRgba8() {
+        return PixelFormatConverter.toRgba8(pixels, type, size, size);
+    }
+
+    @Benchmark
+    public int fromRgba8() {
+        Buffer result = PixelFormatConverter.fromRgba8(rgba, type, size, size);
+        int capacity = result.capacity();
+
+        // Released right away, so direct memory doesn't pile up between collections
+        TextureMemory.free(result);
+        return capacity;
+    }
+}
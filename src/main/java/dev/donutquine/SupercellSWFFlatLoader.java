@@ -9,6 +9,7 @@ import dev.donutquine.swf.file.compression.Zstandard;
 import dev.donutquine.swf.movieclips.MovieClipModifierOriginal;
 import dev.donutquine.swf.movieclips.MovieClipOriginal;
 import dev.donutquine.swf.shapes.ShapeOriginal;
+import dev.donutquine.swf.shapes.ShapePointBuffer;
 import dev.donutquine.swf.textfields.TextFieldOriginal;
 import dev.donutquine.swf.textures.SWFTexture;
 
@@ -29,6 +30,12 @@ public class SupercellSWFFlatLoader {
     public final List<MovieClipOriginal> movieClips;
     public final List<MovieClipModifierOriginal> modifiers;
     public final List<SWFTexture> textures;
+    /**
+     * Textures of the resolution, which wasn't preferred, {@code null} for sets containing only one resolution.
+     *
+     * @since 1.1.7
+     */
+    public final List<SWFTexture> alternateTextures;
 
     private ByteBuffer[] matrixDataBuffers;
 
@@ -66,32 +73,34 @@ public class SupercellSWFFlatLoader {
         this.shapes = deserializeShapes(getNestedFlatbufferBytes(mainBuffer));
         this.movieClips = deserializeMovieClips(getNestedFlatbufferBytes(mainBuffer));
         this.modifiers = deserializeModifiers(getNestedFlatbufferBytes(mainBuffer));
-        this.textures = deserializeTextures(getNestedFlatbufferBytes(mainBuffer), preferLowres);
-    }
 
-    private static List<SWFTexture> deserializeTextures(ByteBuffer chunkBuffer, boolean preferLowres) {
-        FBTextureSets fbTextureSets = FBTextureSets.getRootAsFBTextureSets(chunkBuffer);
+        FBTextureSets fbTextureSets = FBTextureSets.getRootAsFBTextureSets(getNestedFlatbufferBytes(mainBuffer));
+        this.textures = new ArrayList<>(fbTextureSets.textureSetsLength());
+        this.alternateTextures = new ArrayList<>(fbTextureSets.textureSetsLength());
+        deserializeTextures(fbTextureSets, preferLowres, this.textures, this.alternateTextures);
+    }
 
-        List<SWFTexture> textures = new ArrayList<>(fbTextureSets.textureSetsLength());
+    private static void deserializeTextures(FBTextureSets fbTextureSets, boolean preferLowres, List<SWFTexture> textures, List<SWFTexture> alternateTextures) {
         for (int i = 0; i < fbTextureSets.textureSetsLength(); i++) {
             FBTextureSet fbTextureSet = fbTextureSets.textureSets(i);
             FBTexture fbHighresTexture = fbTextureSet.highresTexture();
             FBTexture fbLowresTexture = fbTextureSet.lowresTexture();
 
-            FBTexture fbTexture;
+            FBTexture fbTexture, fbAlternateTexture;
 
             if ((fbHighresTexture == null || preferLowres) && fbLowresTexture != null) {
                 fbTexture = fbLowresTexture;
+                fbAlternateTexture = fbHighresTexture;
             } else if (fbHighresTexture != null) {
                 fbTexture = fbHighresTexture;
+                fbAlternateTexture = fbLowresTexture;
             } else {
                 throw new IllegalArgumentException("FBTextureSet doesn't contain any textures.");
             }
 
             textures.add(new SWFTexture(fbTexture));
+            alternateTextures.add(fbAlternateTexture != null ? new SWFTexture(fbAlternateTexture) : null);
         }
-
-        return textures;
     }
 
     private List<MovieClipModifierOriginal> deserializeModifiers(ByteBuffer chunkBuffer) {
@@ -125,9 +134,11 @@ public class SupercellSWFFlatLoader {
 
     private List<ShapeOriginal> deserializeShapes(ByteBuffer chunkBuffer) {
         FBShapes fbShapes = FBShapes.getRootAsFBShapes(chunkBuffer);
+        ShapePointBuffer points = ShapePointBuffer.fromFlatBuffers(resources);
+
         List<ShapeOriginal> shapes = new ArrayList<>(fbShapes.shapesLength());
         for (int i = 0; i < fbShapes.shapesLength(); i++) {
-            shapes.add(new ShapeOriginal(fbShapes.shapes(i), resources));
+            shapes.add(new ShapeOriginal(fbShapes.shapes(i), points));
         }
         return shapes;
     }
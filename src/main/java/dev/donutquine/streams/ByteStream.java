@@ -3,6 +3,8 @@ package dev.donutquine.streams;
 import dev.donutquine.swf.Savable;
 import dev.donutquine.swf.Tag;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.function.Consumer;
@@ -25,6 +27,14 @@ public class ByteStream {
         return this.position >= this.data.length;
     }
 
+    /**
+     * @return count of bytes between the current position and the end of data
+     * @since 1.1.7
+     */
+    public int getRemaining() {
+        return Math.max(0, this.data.length - this.position);
+    }
+
     public void ensureCapacity(int count) {
         int capacity = this.position + count;
         if (this.data.length < capacity) {
@@ -44,6 +54,35 @@ public class ByteStream {
         this.position += data.length;
     }
 
+    /**
+     * Writes remaining bytes of the buffer, advancing its position.
+     *
+     * @since 1.1.7
+     */
+    public void write(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        this.ensureCapacity(length);
+
+        buffer.get(this.data, this.position, length);
+        this.position += length;
+    }
+
+    /**
+     * Reserves the region of the given length at the current position and returns a little-endian view of it,
+     * so data can be encoded in place. The view must be filled before anything else is written to the stream.
+     *
+     * @param length region length in bytes
+     * @return view of the region
+     * @since 1.1.7
+     */
+    public ByteBuffer writeRegion(int length) {
+        this.ensureCapacity(length);
+
+        ByteBuffer region = ByteBuffer.wrap(this.data, this.position, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.position += length;
+        return region;
+    }
+
     public byte[] read(int length) {
         byte[] data = new byte[length];
         if (length <= this.data.length - this.position) {
@@ -100,9 +139,7 @@ public class ByteStream {
     }
 
     public void writeByteArray(byte[] array) {
-        for (byte value : array) {
-            this.writeUnsignedChar(value);
-        }
+        this.write(array);
     }
 
     public void writeByteArray(int[] array) {
@@ -112,9 +149,7 @@ public class ByteStream {
     }
 
     public void writeShortArray(short[] array) {
-        for (short value : array) {
-            this.writeShort(value);
-        }
+        this.writeRegion(array.length * Short.BYTES).asShortBuffer().put(array);
     }
 
     public void writeShortArray(int[] array) {
@@ -124,9 +159,7 @@ public class ByteStream {
     }
 
     public void writeIntArray(int[] array) {
-        for (int value : array) {
-            this.writeInt(value);
-        }
+        this.writeRegion(array.length * Integer.BYTES).asIntBuffer().put(array);
     }
 
     public void writeSavable(Savable object) {
@@ -137,16 +170,25 @@ public class ByteStream {
         writeBlock(tag, consumer, ByteStream.DEFAULT_BUFFER_LENGTH);
     }
 
+    /**
+     * Writes the block in place, patching its length after the consumer is done.
+     *
+     * @param length expected block length, which is reserved beforehand
+     */
     public void writeBlock(Tag tag, Consumer<ByteStream> consumer, int length) {
         this.writeUnsignedChar(tag.ordinal());
 
         if (consumer != null) {
-            ByteStream blockStream = new ByteStream(new byte[length]);
-            consumer.accept(blockStream);
+            int lengthPosition = this.position;
+            this.writeInt(0);
+            this.ensureCapacity(length);
+
+            consumer.accept(this);
 
-            byte[] blockData = blockStream.getData();
-            this.writeInt(blockData.length);
-            this.write(blockData);
+            int blockLength = this.position - lengthPosition - Integer.BYTES;
+            this.position = lengthPosition;
+            this.writeInt(blockLength);
+            this.position += blockLength;
         } else {
             this.writeInt(0);
         }
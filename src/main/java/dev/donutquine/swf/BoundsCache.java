@@ -0,0 +1,277 @@
+package dev.donutquine.swf;
+
+import dev.donutquine.math.ReadonlyRect;
+import dev.donutquine.math.Rect;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+import dev.donutquine.swf.movieclips.MovieClipFrame;
+import dev.donutquine.swf.movieclips.MovieClipFrameElement;
+import dev.donutquine.swf.movieclips.MovieClipOriginal;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
+import dev.donutquine.swf.shapes.ShapeOriginal;
+import dev.donutquine.swf.textfields.TextFieldOriginal;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes and caches local bounds of display objects of a file.
+ *
+ * <p>Shape bounds enclose points of all commands and text field bounds are declared by text fields.
+ * Bounds of a movie clip frame enclose bounds of its children transformed by frame matrices, nested clips
+ * contribute bounds of all their frames. Bounds of a movie clip are the union over all frames.</p>
+ *
+ * <p>Bounds are computed once and kept along with versions of the objects they were computed from: commands
+ * of shapes, movie clips, their frames and matrix banks, and the same versions of nested objects. An edit only
+ * drops bounds of the edited object and clips containing it. Bounds also keep the
+ * {@link DisplayObjectOriginal#getEditCount() edit count} they were last checked at, so while nothing is edited
+ * a query is a single comparison, and after an edit versions of every subtree are compared once. Objects without
+ * bounds, like modifiers and empty frames, have {@code null} bounds.</p>
+ *
+ * @since 1.1.7
+ */
+public final class BoundsCache {
+    private final SupercellSWF swf;
+
+    private final Map<ShapeOriginal, ShapeBounds> shapeBounds = new IdentityHashMap<>();
+    private final Map<MovieClipOriginal, ClipBounds> clipBounds = new IdentityHashMap<>();
+    // Stamps of clips computed by the current query, shared clips are stamped once
+    private final Map<MovieClipOriginal, Long> stamps = new IdentityHashMap<>();
+    // Edit count read at the start of the current query
+    private long editCount;
+    // Clips being computed, guards against clips containing themselves
+    private final Map<MovieClipOriginal, Boolean> computedClips = new IdentityHashMap<>();
+
+    public BoundsCache(SupercellSWF swf) {
+        this.swf = swf;
+    }
+
+    /**
+     * @return local bounds of the object or {@code null} if it has none
+     */
+    public synchronized ReadonlyRect getBounds(DisplayObjectOriginal object) throws UnableToFindObjectException {
+        editCount = DisplayObjectOriginal.getEditCount();
+        try {
+            return computeBounds(object);
+        } finally {
+            stamps.clear();
+        }
+    }
+
+    /**
+     * @return local bounds of the frame or {@code null} if it's empty
+     */
+    public synchronized ReadonlyRect getFrameBounds(MovieClipOriginal movieClip, int frameIndex) throws UnableToFindObjectException {
+        editCount = DisplayObjectOriginal.getEditCount();
+        try {
+            return computeClipBounds(movieClip).frames[frameIndex];
+        } finally {
+            stamps.clear();
+        }
+    }
+
+    /**
+     * Drops all computed bounds.
+     */
+    public synchronized void invalidate() {
+        shapeBounds.clear();
+        clipBounds.clear();
+    }
+
+    private ReadonlyRect computeBounds(DisplayObjectOriginal object) throws UnableToFindObjectException {
+        if (object instanceof TextFieldOriginal textField) {
+            return textField.getBounds();
+        }
+
+        if (object instanceof ShapeOriginal shape) {
+            ShapeBounds cached = shapeBounds.get(shape);
+            if (cached != null && cached.editCount == editCount) {
+                return cached.bounds;
+            }
+
+            long version = shape.getCommandsVersion();
+            if (cached == null || cached.version != version) {
+                cached = new ShapeBounds(computeShapeBounds(shape), version);
+                shapeBounds.put(shape, cached);
+            }
+
+            cached.editCount = editCount;
+            return cached.bounds;
+        }
+
+        if (object instanceof MovieClipOriginal movieClip) {
+            return computeClipBounds(movieClip).bounds;
+        }
+
+        return null;
+    }
+
+    private ClipBounds computeClipBounds(MovieClipOriginal movieClip) throws UnableToFindObjectException {
+        ClipBounds cached = clipBounds.get(movieClip);
+        if (cached != null && cached.editCount == editCount) {
+            return cached;
+        }
+
+        long stamp = getStamp(movieClip);
+        if (cached != null && cached.stamp == stamp) {
+            cached.editCount = editCount;
+            return cached;
+        }
+
+        if (computedClips.put(movieClip, Boolean.TRUE) != null) {
+            throw new IllegalStateException("Movie clip contains itself, id " + movieClip.getId());
+        }
+
+        Rect bounds = null;
+        ReadonlyRect[] frameBounds;
+        try {
+            DisplayObjectOriginal[] children = movieClip.createTimelineChildren(swf);
+            ScMatrixBank matrixBank = swf.getMatrixBank(movieClip.getMatrixBankIndex());
+
+            List<MovieClipFrame> frames = movieClip.getFrames();
+            frameBounds = new ReadonlyRect[frames.size()];
+            for (int i = 0; i < frames.size(); i++) {
+                Rect frame = null;
+                for (MovieClipFrameElement element : frames.get(i).getElements()) {
+                    if (element.childIndex() >= children.length) continue;
+
+                    ReadonlyRect childBounds = computeBounds(children[element.childIndex()]);
+                    if (childBounds == null) continue;
+
+                    Matrix2x3 matrix = element.matrixIndex() < matrixBank.getMatrixCount() ? matrixBank.getMatrix(element.matrixIndex()) : null;
+                    frame = union(frame, transform(childBounds, matrix));
+                }
+
+                frameBounds[i] = frame;
+                bounds = union(bounds, frame);
+            }
+        } finally {
+            computedClips.remove(movieClip);
+        }
+
+        cached = new ClipBounds(frameBounds, bounds, stamp);
+        cached.editCount = editCount;
+        clipBounds.put(movieClip, cached);
+        return cached;
+    }
+
+    /**
+     * Combines versions of the clip, its frames and matrix bank with stamps of its children, so the stamp changes
+     * after any of them is changed.
+     */
+    private long getStamp(MovieClipOriginal movieClip) throws UnableToFindObjectException {
+        Long cached = stamps.get(movieClip);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Stamps of bounds checked since the last edit are current
+        ClipBounds checked = clipBounds.get(movieClip);
+        if (checked != null && checked.editCount == editCount) {
+            return checked.stamp;
+        }
+
+        // Clips containing themselves are reported by computeClipBounds
+        stamps.put(movieClip, 0L);
+
+        ScMatrixBank matrixBank = swf.getMatrixBank(movieClip.getMatrixBankIndex());
+        long stamp = mix(movieClip.getVersion(), System.identityHashCode(matrixBank));
+        stamp = mix(stamp, matrixBank.getVersion());
+        for (MovieClipFrame frame : movieClip.getFrames()) {
+            stamp = mix(stamp, frame.getVersion());
+        }
+
+        for (DisplayObjectOriginal child : movieClip.createTimelineChildren(swf)) {
+            if (child instanceof ShapeOriginal shape) {
+                stamp = mix(stamp, shape.getCommandsVersion());
+            } else if (child instanceof MovieClipOriginal childClip) {
+                stamp = mix(stamp, getStamp(childClip));
+            }
+        }
+
+        stamps.put(movieClip, stamp);
+        return stamp;
+    }
+
+    private static long mix(long stamp, long value) {
+        return (stamp ^ value) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static Rect computeShapeBounds(ShapeOriginal shape) {
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+
+        for (ShapeDrawBitmapCommand command : shape.getCommands()) {
+            for (int i = 0; i < command.getVertexCount(); i++) {
+                float x = command.getX(i);
+                float y = command.getY(i);
+                left = Math.min(left, x);
+                top = Math.min(top, y);
+                right = Math.max(right, x);
+                bottom = Math.max(bottom, y);
+            }
+        }
+
+        return left <= right ? new Rect(left, top, right, bottom) : null;
+    }
+
+    /**
+     * @return bounds of the rect corners transformed by the matrix, the identity if the matrix is {@code null}
+     */
+    private static Rect transform(ReadonlyRect rect, Matrix2x3 matrix) {
+        if (matrix == null) {
+            return new Rect(rect);
+        }
+
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            float x = (corner & 1) == 0 ? rect.getLeft() : rect.getRight();
+            float y = (corner & 2) == 0 ? rect.getTop() : rect.getBottom();
+
+            float transformedX = matrix.applyX(x, y);
+            float transformedY = matrix.applyY(x, y);
+            left = Math.min(left, transformedX);
+            top = Math.min(top, transformedY);
+            right = Math.max(right, transformedX);
+            bottom = Math.max(bottom, transformedY);
+        }
+
+        return new Rect(left, top, right, bottom);
+    }
+
+    private static Rect union(Rect target, ReadonlyRect rect) {
+        if (rect == null) return target;
+        if (target == null) return new Rect(rect);
+
+        target.mergeBounds(rect);
+        return target;
+    }
+
+    private static final class ShapeBounds {
+        private final ReadonlyRect bounds;
+        private final long version;
+        // Edit count the version was last checked at
+        private long editCount = -1;
+
+        private ShapeBounds(ReadonlyRect bounds, long version) {
+            this.bounds = bounds;
+            this.version = version;
+        }
+    }
+
+    // Frames and their union along with the stamp of the clip they were computed with
+    private static final class ClipBounds {
+        private final ReadonlyRect[] frames;
+        private final ReadonlyRect bounds;
+        private final long stamp;
+        // Edit count the stamp was last checked at
+        private long editCount = -1;
+
+        private ClipBounds(ReadonlyRect[] frames, ReadonlyRect bounds, long stamp) {
+            this.frames = frames;
+            this.bounds = bounds;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package dev.donutquine.swf;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public abstract class DisplayObjectOriginal implements Savable {
+    private static final AtomicLong EDIT_COUNT = new AtomicLong();
+
     protected int id;
 
     public int getId() {
@@ -10,4 +14,23 @@ public abstract class DisplayObjectOriginal implements Savable {
     public void setId(int id) {
         this.id = id;
     }
+
+    /**
+     * Counts an edit of a movie clip, a frame, a matrix bank or a shape command. Called along with bumping
+     * versions of edited objects, loading isn't counted.
+     *
+     * @since 1.1.7
+     */
+    public static void countEdit() {
+        EDIT_COUNT.incrementAndGet();
+    }
+
+    /**
+     * @return count of edits made since the start, caches derived from object versions are current
+     * while it doesn't change, see {@link #countEdit()}
+     * @since 1.1.7
+     */
+    public static long getEditCount() {
+        return EDIT_COUNT.get();
+    }
 }
@@ -12,6 +12,9 @@ public class ScMatrixBank {
     private List<Matrix2x3> matrices;
     private List<ColorTransform> colorTransforms;
 
+    // Incremented on every change of matrices or color transforms, lets caches of bounds drop stale ones
+    private int version;
+
     public ScMatrixBank() {
         this(0, 0);
     }
@@ -25,6 +28,7 @@ public class ScMatrixBank {
         assert matrixCount > 0 && matrixCount <= MAX_MATRIX_CAPACITY + 1 : "Expected max %d, but got %d".formatted(ScMatrixBank.MAX_MATRIX_CAPACITY + 1, matrixCount);
         assert colorTransformCount > 0 && colorTransformCount <= MAX_COLOR_CAPACITY + 1 : "Expected max %d, but got %d".formatted(ScMatrixBank.MAX_COLOR_CAPACITY + 1, colorTransformCount);
 
+
         this.matrices = new ArrayList<>(matrixCount);
         for (int i = 0; i < matrixCount; i++) {
             this.matrices.add(new Matrix2x3());
@@ -38,18 +42,26 @@ public class ScMatrixBank {
 
     public void addMatrix(Matrix2x3 matrix) {
         this.matrices.add(matrix);
+        this.version++;
+        DisplayObjectOriginal.countEdit();
     }
 
     public void setMatrix(int index, Matrix2x3 matrix) {
         this.matrices.set(index, matrix);
+        this.version++;
+        DisplayObjectOriginal.countEdit();
     }
 
     public void addColorTransform(ColorTransform colorTransform) {
         this.colorTransforms.add(colorTransform);
+        this.version++;
+        DisplayObjectOriginal.countEdit();
     }
 
     public void setColorTransform(int index, ColorTransform colorTransform) {
         this.colorTransforms.set(index, colorTransform);
+        this.version++;
+        DisplayObjectOriginal.countEdit();
     }
 
     public List<Matrix2x3> getMatrices() {
@@ -75,4 +87,22 @@ public class ScMatrixBank {
     public int getColorTransformCount() {
         return this.colorTransforms.size();
     }
+
+    /**
+     * Notes that a matrix or a color transform has been changed in place.
+     *
+     * @since 1.1.7
+     */
+    public void markModified() {
+        this.version++;
+        DisplayObjectOriginal.countEdit();
+    }
+
+    /**
+     * @return count of changes of matrices and color transforms, see {@link #markModified()}
+     * @since 1.1.7
+     */
+    public int getVersion() {
+        return version;
+    }
 }
@@ -11,9 +11,15 @@ import dev.donutquine.swf.file.exceptions.FileVerificationException;
 import dev.donutquine.swf.file.exceptions.UnknownFileVersionException;
 import dev.donutquine.swf.movieclips.MovieClipModifierOriginal;
 import dev.donutquine.swf.movieclips.MovieClipOriginal;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
 import dev.donutquine.swf.shapes.ShapeOriginal;
+import dev.donutquine.swf.shapes.ShapePointBuffer;
 import dev.donutquine.swf.textfields.TextFieldOriginal;
+import dev.donutquine.swf.textures.AtlasRepacker;
 import dev.donutquine.swf.textures.SWFTexture;
+import dev.donutquine.swf.textures.TextureDownsampler;
+import dev.donutquine.swf.textures.TextureFileResolver;
+import dev.donutquine.swf.textures.TextureUsageOptimizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,11 +29,21 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-
-public class SupercellSWF {
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class SupercellSWF implements AutoCloseable {
     public static final String TEXTURE_EXTENSION = "_tex.sc";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SupercellSWF.class);
@@ -35,30 +51,59 @@ public class SupercellSWF {
     private static final String DEFAULT_HIGHRES_SUFFIX = "_highres";
     private static final String DEFAULT_LOWRES_SUFFIX = "_lowres";
 
+    /**
+     * Handlers of the top-level SC1 tags. Register a handler here to support a custom tag.
+     *
+     * @since 1.1.7
+     */
+    public static final TagRegistry<SupercellSWF> TAG_HANDLERS = createTagRegistry();
+
     private final List<String> fontsNames = new ArrayList<>();
     private final List<ScMatrixBank> matrixBanks = new ArrayList<>();
 
     private List<Export> exports;
 
-    private List<SWFTexture> textures;
+    // Replaced as a whole on resolution switches, while upgrading in the background it's an UpgradingTextureList
+    private volatile List<SWFTexture> textures;
+    /**
+     * SC2 textures of the other resolution, entries are {@code null} for sets containing only one resolution.
+     */
+    private List<SWFTexture> alternateTextures;
+    private CompletableFuture<Void> textureUpgrade = CompletableFuture.completedFuture(null);
+    private volatile boolean lowresTexturesActive;
     private List<ShapeOriginal> shapes;
+    // Points of SC1 shapes, shared by all shapes of the file
+    private ShapePointBuffer shapePoints;
     private List<MovieClipOriginal> movieClips;
     private List<TextFieldOriginal> textFields;
 
     private List<MovieClipModifierOriginal> movieClipModifiers;
 
-    // TODO: half-scale
     private boolean isHalfScalePossible;
+    private boolean saveLowresTextures;
     private boolean useExternalTexture;
     private boolean useUncommonResolution;
     private String highresSuffix = DEFAULT_HIGHRES_SUFFIX;
     private String lowresSuffix = DEFAULT_LOWRES_SUFFIX;
     private String uncommonResolutionTexturePath;
+    private boolean optimizeTextureTypes;
+    private int textureTypeTolerance;
+    private boolean removeUnusedTextures;
+    private boolean cropTexturesToUsage;
 
     private String filename;
     private Path path;
     private int containerVersion;
 
+    /**
+     * State of the SC1 file currently being loaded, only available inside tag handlers.
+     */
+    private Sc1LoadingState loadingState;
+    /**
+     * Not yet decoded objects of the file loaded by {@link #loadIndexed(String, String, boolean)}.
+     */
+    private volatile IndexedObjects indexedObjects;
+
     public static SupercellSWF createEmpty() {
         SupercellSWF swf = new SupercellSWF();
 
@@ -78,61 +123,347 @@ public class SupercellSWF {
         this.filename = filename;
         this.path = Path.of(filepath);
 
-        if (this.loadInternal(filepath, false, preferLowres)) {
+        if (this.loadInternal(filepath, false, preferLowres, false)) {
+            if (!this.useExternalTexture) return true;
+
+            return this.loadInternal(getTextureFilepath(filepath), true, preferLowres, false);
+        }
+
+        return false;
+    }
+
+    /**
+     * Loads the file building a {@link TagIndex} instead of decoding every object.
+     *
+     * <p>Only object ids, texture headers, matrix banks and flags are decoded. Shapes, movie clips
+     * and text fields are decoded on demand by {@link #getOriginalDisplayObject(int, String)} and
+     * {@link #getOriginalMovieClip(int, String)}. Object lists may contain not yet decoded objects,
+     * so call {@link #decodeAll()} before iterating them.</p>
+     *
+     * <p>Texture pixels are decoded on demand by {@link SWFTexture#getPixels()} from the texture
+     * {@link dev.donutquine.swf.textures.TexturePixelSource pixel source} and are managed by
+     * {@link dev.donutquine.swf.textures.TextureMemoryBudget TextureMemoryBudget}.</p>
+     *
+     * <p>SC2 files are loaded as usual, since they don't consist of tag blocks.</p>
+     *
+     * @since 1.1.7
+     */
+    public boolean loadIndexed(String filepath, String filename, boolean preferLowres) throws LoadingFaultException, UnableToFindObjectException, UnsupportedCustomPropertyException, TextureFileNotFound {
+        this.filename = filename;
+        this.path = Path.of(filepath);
+
+        if (this.loadInternal(filepath, false, preferLowres, true)) {
             if (!this.useExternalTexture) return true;
 
-            return this.loadInternal(getTextureFilepath(filepath), true, preferLowres);
+            return this.loadInternal(getTextureFilepath(filepath), true, preferLowres, true);
         }
 
         return false;
     }
 
+    /**
+     * Loads the file with lowres textures and upgrades them to highres ones on the executor.
+     *
+     * <p>The method returns as soon as lowres textures are loaded. Every highres texture is decoded
+     * in the background and replaces the lowres one in {@link #getTextures()}, after which the listener is notified.
+     * {@link #getTextureUpgrade()} completes when all textures are upgraded.</p>
+     *
+     * <p>SC2 files contain both resolutions. SC1 files with external textures load the lowres texture file
+     * first if it exists, otherwise the file is loaded as usual. Adding textures during the upgrade is not supported.</p>
+     *
+     * @param executor executor to decode highres textures on
+     * @param listener listener of swapped textures
+     * @since 1.1.7
+     */
+    public boolean loadProgressive(String filepath, String filename, Executor executor, TextureUpgradeListener listener) throws LoadingFaultException, UnableToFindObjectException, UnsupportedCustomPropertyException, TextureFileNotFound {
+        Objects.requireNonNull(executor, "executor");
+        Objects.requireNonNull(listener, "listener");
+
+        this.filename = filename;
+        this.path = Path.of(filepath);
+
+        if (!this.loadInternal(filepath, false, true, false)) {
+            return false;
+        }
+
+        if (this.containerVersion >= 5) {
+            this.textureUpgrade = this.upgradeSc2Textures(executor, listener);
+            return true;
+        }
+
+        if (!this.useExternalTexture) {
+            this.textureUpgrade = completeTextureUpgrade(CompletableFuture.completedFuture(null), listener);
+            return true;
+        }
+
+        String highresPath = getTextureFilepath(filepath);
+        String lowresPath = getLowresTextureFilepath(filepath);
+        if (lowresPath.equals(highresPath) || !doesFileExist(lowresPath)) {
+            boolean isLoaded = this.loadInternal(highresPath, true, false, false);
+            this.textureUpgrade = completeTextureUpgrade(CompletableFuture.completedFuture(null), listener);
+            return isLoaded;
+        }
+
+        if (!this.loadInternal(lowresPath, true, true, false)) {
+            return false;
+        }
+
+        this.lowresTexturesActive = true;
+        this.textureUpgrade = this.upgradeSc1Textures(highresPath, executor, listener);
+        return true;
+    }
+
+    /**
+     * @return future, which completes when textures are upgraded by {@link #loadProgressive(String, String, Executor, TextureUpgradeListener)},
+     * or a completed future if the file wasn't loaded progressively
+     * @since 1.1.7
+     */
+    public CompletableFuture<Void> getTextureUpgrade() {
+        return textureUpgrade;
+    }
+
+    /**
+     * @return true if lowres textures are active, either preferred while loading or switched by {@link #setLowresTexturesActive(boolean)}
+     * @since 1.1.7
+     */
+    public boolean isLowresTexturesActive() {
+        return lowresTexturesActive;
+    }
+
+    /**
+     * Switches textures to the other resolution in place, shapes, movie clips and other objects are kept as they are.
+     *
+     * <p>SC2 files keep textures of both resolutions in memory, so switching only swaps them. SC1 files with external
+     * textures load the texture file of the requested resolution and close replaced textures, pixels returned by
+     * {@link SWFTexture#getPixels()} stay valid as long as they're referenced.</p>
+     *
+     * @param lowres whether lowres textures should be active
+     * @return false if the file doesn't contain textures of the requested resolution
+     * @throws IllegalStateException if textures are still being upgraded by {@link #loadProgressive(String, String, Executor, TextureUpgradeListener)}
+     * @since 1.1.7
+     */
+    public boolean setLowresTexturesActive(boolean lowres) throws LoadingFaultException, TextureFileNotFound {
+        if (!this.textureUpgrade.isDone()) {
+            throw new IllegalStateException("Cannot switch texture resolution while textures are being upgraded: " + this.filename);
+        }
+
+        if (this.textures == null) return false;
+        if (this.lowresTexturesActive == lowres) return true;
+
+        if (this.alternateTextures != null) {
+            return this.swapAlternateTextures(lowres);
+        }
+
+        if (!this.useExternalTexture || this.path == null) return false;
+
+        String filepath = this.path.toString();
+        String highresPath = getHighresTextureFilepath(filepath);
+        String lowresPath = getLowresTextureFilepath(filepath);
+        String texturePath = lowres ? lowresPath : highresPath;
+        if (lowresPath.equals(highresPath) || !doesFileExist(texturePath)) {
+            return false;
+        }
+
+        List<SWFTexture> loadedTextures = this.loadTextureFile(texturePath);
+
+        List<SWFTexture> replacedTextures;
+        synchronized (this) {
+            replacedTextures = this.textures;
+            this.textures = loadedTextures;
+            this.lowresTexturesActive = lowres;
+        }
+
+        // Closing never frees pixels returned by getPixels(), see TextureMemory
+        for (SWFTexture texture : replacedTextures) {
+            texture.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Decodes all objects which are not decoded yet after {@link #loadIndexed(String, String, boolean)}
+     * and releases the tag index along with the file data it holds.
+     *
+     * @since 1.1.7
+     */
+    public void decodeAll() throws LoadingFaultException, UnsupportedCustomPropertyException {
+        if (this.indexedObjects == null) return;
+
+        for (int i = 0; i < this.shapes.size(); i++) {
+            decodeIndexedShape(i);
+        }
+
+        for (int i = 0; i < this.movieClips.size(); i++) {
+            decodeIndexedMovieClip(i);
+        }
+
+        for (int i = 0; i < this.textFields.size(); i++) {
+            decodeIndexedTextField(i);
+        }
+
+        for (SWFTexture texture : this.textures) {
+            texture.detachPixelSource();
+        }
+
+        this.indexedObjects = null;
+    }
+
+    /**
+     * @return index of the info file tags, or {@code null} if the file wasn't loaded by {@link #loadIndexed(String, String, boolean)}
+     * or all objects were already decoded by {@link #decodeAll()}
+     * @since 1.1.7
+     */
+    public TagIndex getTagIndex() {
+        return this.indexedObjects != null ? this.indexedObjects.index : null;
+    }
+
     public boolean loadTexture(String filepath, String filename, boolean preferLowres) throws LoadingFaultException, UnableToFindObjectException, UnsupportedCustomPropertyException, TextureFileNotFound {
         this.filename = filename;
         this.path = Path.of(filepath);
 
-        return this.loadInternal(filepath, true, preferLowres);
+        return this.loadInternal(filepath, true, preferLowres, false);
     }
 
     public void save(String filepath, ProgressTracker tracker) {
-        this.saveInternal(filepath, true, !this.useExternalTexture, tracker);
+        try {
+            this.decodeAll();
+        } catch (LoadingFaultException | UnsupportedCustomPropertyException exception) {
+            throw new IllegalStateException("Unable to decode indexed objects before saving", exception);
+        }
+
+        this.compactShapePoints();
+
+        // Lowres textures would be saved in place of highres ones, unless the file has only lowres textures of uncommon resolution
+        boolean isHighresActivated = this.lowresTexturesActive && this.activateHighresTexturesForSaving();
+        List<SWFTexture> savedTextures = this.textures;
+
+        try {
+            if (this.removeUnusedTextures || this.cropTexturesToUsage) {
+                TextureUsageOptimizer.optimize(this, this.removeUnusedTextures, this.cropTexturesToUsage, AtlasRepacker.DEFAULT_PADDING);
+            }
 
-        // TODO: Add an option "Save textures as external files" when saving the whole project
-        if (this.useExternalTexture) {
-            this.saveInternal(getTextureFilepath(filepath), false, true, tracker);
+            if (this.optimizeTextureTypes) {
+                for (SWFTexture texture : this.textures) {
+                    texture.optimizeType(this.textureTypeTolerance);
+                }
+            }
+
+            this.saveInternal(filepath, true, !this.useExternalTexture, tracker);
+
+            // TODO: Add an option "Save textures as external files" when saving the whole project
+            if (this.useExternalTexture) {
+                String texturePath = getTextureFilepath(filepath);
+                this.saveInternal(texturePath, false, true, tracker);
+
+                // With uncommon resolution the texture file may already be the lowres one, which mustn't be overwritten
+                String lowresPath = getLowresTextureFilepath(filepath);
+                if (this.isHalfScalePossible && this.saveLowresTextures && !lowresPath.equals(texturePath)) {
+                    this.saveLowresTextures(lowresPath, tracker);
+                }
+            }
+        } finally {
+            // Removed or cropped textures no longer match lowres textures of the file, so highres ones stay active
+            if (isHighresActivated && this.textures == savedTextures) {
+                this.restoreLowresTexturesAfterSaving();
+            }
         }
     }
 
-    public MovieClipOriginal getOriginalMovieClip(int id, String name) throws UnableToFindObjectException {
-        for (MovieClipOriginal movieClip : this.movieClips) {
-            if (movieClip.getId() == id) {
-                return movieClip;
+    /**
+     * Drops points left in point buffers by reloaded or changed shape commands.
+     */
+    private void compactShapePoints() {
+        Map<ShapePointBuffer, List<ShapeDrawBitmapCommand>> commandsByPoints = new IdentityHashMap<>();
+        for (ShapeOriginal shape : this.shapes) {
+            for (ShapeDrawBitmapCommand command : shape.getCommands()) {
+                if (command.getPoints() == null) continue;
+
+                commandsByPoints.computeIfAbsent(command.getPoints(), points -> new ArrayList<>()).add(command);
             }
         }
 
-        String message = String.format("Unable to find some MovieClip id from %s", this.filename);
-        if (name != null) {
-            message += String.format(" needed by export name %s", name);
+        commandsByPoints.forEach(ShapePointBuffer::compact);
+    }
+
+    /**
+     * @return true if highres textures were activated and lowres ones should be restored after saving
+     */
+    private boolean activateHighresTexturesForSaving() {
+        boolean isSwitched;
+        try {
+            isSwitched = this.setLowresTexturesActive(false);
+        } catch (LoadingFaultException | TextureFileNotFound exception) {
+            throw new IllegalStateException("Unable to load highres textures before saving", exception);
         }
 
-        throw new UnableToFindObjectException(message);
+        // SC2 sets without alternate textures are loaded in highres, even if lowres textures were preferred,
+        // and uncommon resolution files may have only lowres textures, which are saved as they are
+        if (!isSwitched && this.alternateTextures == null && !this.useUncommonResolution) {
+            throw new IllegalStateException("Cannot save lowres textures as highres ones, highres textures aren't available: " + this.filename);
+        }
+
+        return isSwitched;
+    }
+
+    private void restoreLowresTexturesAfterSaving() {
+        try {
+            this.setLowresTexturesActive(true);
+        } catch (LoadingFaultException | TextureFileNotFound exception) {
+            throw new IllegalStateException("Unable to load lowres textures after saving", exception);
+        }
+    }
+
+    /**
+     * Releases off-heap memory of texture pixels. Objects stay available, but textures no longer have pixels.
+     *
+     * @see SWFTexture#close()
+     * @since 1.1.7
+     */
+    @Override
+    public void close() {
+        if (this.textures == null) return;
+
+        for (SWFTexture texture : this.textures) {
+            texture.close();
+        }
+
+        if (this.alternateTextures != null) {
+            for (SWFTexture texture : this.alternateTextures) {
+                if (texture != null) {
+                    texture.close();
+                }
+            }
+        }
+    }
+
+    public MovieClipOriginal getOriginalMovieClip(int id, String name) throws UnableToFindObjectException {
+        int movieClipIndex = this.findMovieClipIndex(id, name);
+        decodeIndexedObject(this::decodeIndexedMovieClip, movieClipIndex);
+        return this.movieClips.get(movieClipIndex);
     }
 
     public DisplayObjectOriginal getOriginalDisplayObject(int id, String name) throws UnableToFindObjectException {
-        for (ShapeOriginal shape : this.shapes) {
+        for (int i = 0; i < this.shapes.size(); i++) {
+            ShapeOriginal shape = this.shapes.get(i);
             if (shape.getId() == id) {
+                decodeIndexedObject(this::decodeIndexedShape, i);
                 return shape;
             }
         }
 
-        for (MovieClipOriginal movieClip : this.movieClips) {
+        for (int i = 0; i < this.movieClips.size(); i++) {
+            MovieClipOriginal movieClip = this.movieClips.get(i);
             if (movieClip.getId() == id) {
+                decodeIndexedObject(this::decodeIndexedMovieClip, i);
                 return movieClip;
             }
         }
 
-        for (TextFieldOriginal textField : textFields) {
+        for (int i = 0; i < this.textFields.size(); i++) {
+            TextFieldOriginal textField = this.textFields.get(i);
             if (textField.getId() == id) {
+                decodeIndexedObject(this::decodeIndexedTextField, i);
                 return textField;
             }
         }
@@ -175,6 +506,27 @@ public class SupercellSWF {
         this.textures.add(texture);
     }
 
+    /**
+     * Replaces all textures, indices of the given textures are updated. Textures of the other resolution
+     * kept for {@link #setLowresTexturesActive(boolean)} are dropped, since they no longer match.
+     *
+     * @throws IllegalStateException if textures are still being upgraded by {@link #loadProgressive(String, String, Executor, TextureUpgradeListener)}
+     * @since 1.1.7
+     */
+    public synchronized void setTextures(List<SWFTexture> textures) {
+        if (!this.textureUpgrade.isDone()) {
+            throw new IllegalStateException("Cannot replace textures while they are being upgraded: " + this.filename);
+        }
+
+        List<SWFTexture> replacement = new ArrayList<>(textures);
+        for (int i = 0; i < replacement.size(); i++) {
+            replacement.get(i).setIndex(i);
+        }
+
+        this.textures = replacement;
+        this.alternateTextures = null;
+    }
+
     public List<ShapeOriginal> getShapes() {
         return Collections.unmodifiableList(shapes);
     }
@@ -293,6 +645,25 @@ public class SupercellSWF {
         isHalfScalePossible = halfScalePossible;
     }
 
+    /**
+     * @since 1.1.7
+     */
+    public boolean isSaveLowresTextures() {
+        return saveLowresTextures;
+    }
+
+    /**
+     * Enables or disables generating the lowres texture file with half-scale copies of textures on save.
+     * The file is generated only for files with external textures, where {@link #isHalfScalePossible() half scale is possible}.
+     * Disabled by default.
+     *
+     * @see #getLowresTextureFilepath(String)
+     * @since 1.1.7
+     */
+    public void setSaveLowresTextures(boolean saveLowresTextures) {
+        this.saveLowresTextures = saveLowresTextures;
+    }
+
     /**
      * Returns whether textures are split into high-resolution and low-resolution texture files.
      *
@@ -318,6 +689,83 @@ public class SupercellSWF {
         this.useUncommonResolution = useUncommonResolution;
     }
 
+    /**
+     * Returns whether textures are repacked into the smallest fitting type on save.
+     *
+     * @since 1.1.7
+     */
+    public boolean isOptimizeTextureTypes() {
+        return optimizeTextureTypes;
+    }
+
+    /**
+     * Enables or disables repacking textures into the smallest type, which stores their pixels
+     * within {@link #getTextureTypeTolerance() the tolerance}, on save.
+     * Disabled by default.
+     *
+     * @see SWFTexture#optimizeType(int)
+     * @since 1.1.7
+     */
+    public void setOptimizeTextureTypes(boolean optimizeTextureTypes) {
+        this.optimizeTextureTypes = optimizeTextureTypes;
+    }
+
+    /**
+     * @since 1.1.7
+     */
+    public int getTextureTypeTolerance() {
+        return textureTypeTolerance;
+    }
+
+    /**
+     * @since 1.1.7
+     */
+    public boolean isRemoveUnusedTextures() {
+        return removeUnusedTextures;
+    }
+
+    /**
+     * Enables or disables removing textures, which aren't referenced by any shape, on save. Disabled by default,
+     * since textures may be referenced by index outside of shapes.
+     *
+     * @see TextureUsageOptimizer
+     * @since 1.1.7
+     */
+    public void setRemoveUnusedTextures(boolean removeUnusedTextures) {
+        this.removeUnusedTextures = removeUnusedTextures;
+    }
+
+    /**
+     * @since 1.1.7
+     */
+    public boolean isCropTexturesToUsage() {
+        return cropTexturesToUsage;
+    }
+
+    /**
+     * Enables or disables cropping textures to the bounding box of UVs used by shapes on save. Disabled by default.
+     *
+     * @see TextureUsageOptimizer
+     * @since 1.1.7
+     */
+    public void setCropTexturesToUsage(boolean cropTexturesToUsage) {
+        this.cropTexturesToUsage = cropTexturesToUsage;
+    }
+
+    /**
+     * Sets maximum allowed difference of each channel value when choosing texture types on save.
+     * Default is 0, so textures are repacked only losslessly.
+     *
+     * @since 1.1.7
+     */
+    public void setTextureTypeTolerance(int textureTypeTolerance) {
+        if (textureTypeTolerance < 0) {
+            throw new IllegalArgumentException("Tolerance cannot be negative");
+        }
+
+        this.textureTypeTolerance = textureTypeTolerance;
+    }
+
     /**
      * <strong>Warning:</strong> This method is intended to affect file saving behavior, but currently has no effect,
      * as its saving logic is not yet implemented. It does not alter file reading behavior.
@@ -341,7 +789,23 @@ public class SupercellSWF {
         return filepath.substring(0, filepath.length() - 3) + TEXTURE_EXTENSION;
     }
 
-    private boolean loadInternal(String path, boolean isTextureFile, boolean preferLowres) throws LoadingFaultException, UnableToFindObjectException, UnsupportedCustomPropertyException, TextureFileNotFound {
+    private String getHighresTextureFilepath(String filepath) {
+        if (this.useUncommonResolution) {
+            return filepath.substring(0, filepath.length() - 3) + this.highresSuffix + TEXTURE_EXTENSION;
+        }
+
+        return getTextureFilepath(filepath);
+    }
+
+    /**
+     * @return path of the half-scale texture file, which is saved if {@link #setSaveLowresTextures(boolean) enabled}
+     * @since 1.1.7
+     */
+    public String getLowresTextureFilepath(String filepath) {
+        return filepath.substring(0, filepath.length() - 3) + this.lowresSuffix + TEXTURE_EXTENSION;
+    }
+
+    private boolean loadInternal(String path, boolean isTextureFile, boolean preferLowres, boolean indexed) throws LoadingFaultException, UnableToFindObjectException, UnsupportedCustomPropertyException, TextureFileNotFound {
         try {
             byte[] data;
             try (FileInputStream fis = new FileInputStream(path)) {
@@ -358,6 +822,10 @@ public class SupercellSWF {
                 return loadSc2(unpacked.data(), preferLowres);
             }
 
+            if (indexed) {
+                return loadSc1Indexed(path, isTextureFile, unpacked.data());
+            }
+
             return loadSc1(path, isTextureFile, unpacked.data());
         } catch (UnknownFileVersionException | FileVerificationException |
                  IOException exception) {
@@ -376,9 +844,16 @@ public class SupercellSWF {
         this.movieClips = loader.movieClips;
         this.shapes = loader.shapes;
         this.textures = loader.textures;
+        this.alternateTextures = loader.alternateTextures;
+        this.lowresTexturesActive = preferLowres;
 
         for (int i = 0; i < this.textures.size(); i++) {
             this.textures.get(i).setIndex(i);
+
+            SWFTexture alternateTexture = this.alternateTextures.get(i);
+            if (alternateTexture != null) {
+                alternateTexture.setIndex(i);
+            }
         }
 
         return true;
@@ -391,6 +866,197 @@ public class SupercellSWF {
             return this.loadTags(stream, true, path);
         }
 
+        this.readObjectsInfo(stream);
+
+        if (this.loadTags(stream, false, path)) {
+            this.assignExportNames();
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean loadSc1Indexed(String path, boolean isTextureFile, byte[] decompressedData) throws LoadingFaultException, UnsupportedCustomPropertyException, UnableToFindObjectException {
+        ByteStream stream = new ByteStream(decompressedData);
+
+        if (isTextureFile) {
+            this.indexTextureFile(TagIndex.build(decompressedData, 0));
+            return true;
+        }
+
+        this.readObjectsInfo(stream);
+        this.indexTags(TagIndex.build(decompressedData, stream.getPosition()), path);
+        this.assignExportNames();
+
+        return true;
+    }
+
+    private CompletableFuture<Void> upgradeSc2Textures(Executor executor, TextureUpgradeListener listener) {
+        this.textures = new UpgradingTextureList(this.textures);
+
+        List<CompletableFuture<Void>> upgrades = new ArrayList<>();
+
+        for (int i = 0; i < this.alternateTextures.size(); i++) {
+            SWFTexture highresTexture = this.alternateTextures.get(i);
+            // Sets without lowres textures are already loaded in highres
+            if (highresTexture == null) continue;
+
+            int textureIndex = i;
+            upgrades.add(CompletableFuture.runAsync(() -> {
+                // KTX data is a view of the file, only external textures need decoding
+                if (highresTexture.getTextureFilename() != null) {
+                    TextureFileResolver.resolveAsync(this, highresTexture).join();
+                }
+
+                this.swapTexture(textureIndex, highresTexture, listener);
+            }, executor));
+        }
+
+        return completeTextureUpgrade(CompletableFuture.allOf(upgrades.toArray(new CompletableFuture<?>[0])), listener);
+    }
+
+    private CompletableFuture<Void> upgradeSc1Textures(String highresPath, Executor executor, TextureUpgradeListener listener) {
+        this.textures = new UpgradingTextureList(this.textures);
+
+        CompletableFuture<Void> upgrade = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return readTextureFileIndex(highresPath);
+                } catch (IOException | UnknownFileVersionException | FileVerificationException | LoadingFaultException exception) {
+                    throw new CompletionException(exception);
+                }
+            }, executor)
+            .thenCompose(index -> {
+                List<CompletableFuture<Void>> upgrades = new ArrayList<>();
+
+                int textureIndex = 0;
+                for (int entry = 0; entry < index.getCount(); entry++) {
+                    Tag tag = index.getTagValue(entry);
+                    if (tag == null || !tag.isTexture()) continue;
+
+                    if (textureIndex >= this.textures.size()) {
+                        throw new CompletionException(new TooManyObjectsException("Trying to load too many textures from " + highresPath));
+                    }
+
+                    int entryIndex = entry, slot = textureIndex++;
+                    upgrades.add(CompletableFuture.runAsync(() -> {
+                        SWFTexture highresTexture = new SWFTexture();
+                        try {
+                            highresTexture.load(index.openStream(entryIndex), tag, true, index.getLength(entryIndex));
+                        } catch (LoadingFaultException exception) {
+                            throw new CompletionException(exception);
+                        }
+
+                        highresTexture.setIndex(slot);
+                        this.swapTexture(slot, highresTexture, listener);
+                    }, executor));
+                }
+
+                return CompletableFuture.allOf(upgrades.toArray(new CompletableFuture<?>[0]));
+            });
+
+        return completeTextureUpgrade(upgrade, listener);
+    }
+
+    private CompletableFuture<Void> completeTextureUpgrade(CompletableFuture<Void> upgrade, TextureUpgradeListener listener) {
+        return upgrade.whenComplete((result, throwable) -> {
+            // Upgraded textures are published once, so textures can be added again
+            synchronized (this) {
+                if (this.textures instanceof UpgradingTextureList) {
+                    this.textures = new ArrayList<>(this.textures);
+                }
+            }
+
+            if (throwable == null) {
+                this.lowresTexturesActive = false;
+                listener.onUpgradeCompleted(this);
+            } else {
+                LOGGER.error("An error occurred while upgrading textures: {}", this.filename, throwable);
+                listener.onUpgradeFailed(this, throwable);
+            }
+        });
+    }
+
+    private synchronized boolean swapAlternateTextures(boolean lowres) {
+        boolean hasAlternateTextures = false;
+
+        List<SWFTexture> textures = new ArrayList<>(this.textures);
+        for (int i = 0; i < textures.size(); i++) {
+            SWFTexture alternateTexture = this.alternateTextures.get(i);
+            if (alternateTexture == null) continue;
+
+            this.alternateTextures.set(i, textures.set(i, alternateTexture));
+            hasAlternateTextures = true;
+        }
+
+        if (!hasAlternateTextures) return false;
+
+        this.textures = textures;
+        this.lowresTexturesActive = lowres;
+        return true;
+    }
+
+    /**
+     * Decodes textures of the external texture file without touching textures of this file.
+     */
+    private List<SWFTexture> loadTextureFile(String path) throws LoadingFaultException, TextureFileNotFound {
+        TagIndex index;
+        try {
+            index = readTextureFileIndex(path);
+        } catch (IOException exception) {
+            throw new TextureFileNotFound(path);
+        } catch (UnknownFileVersionException | FileVerificationException exception) {
+            LOGGER.error("An error occurred while decompressing the file: {}", path, exception);
+            throw new LoadingFaultException("Unable to decompress texture file: " + path);
+        }
+
+        List<SWFTexture> textures = new ArrayList<>(this.textures.size());
+        for (int entry = 0; entry < index.getCount(); entry++) {
+            Tag tag = index.getTagValue(entry);
+            if (tag == null || !tag.isTexture()) continue;
+
+            SWFTexture texture = new SWFTexture();
+            texture.setIndex(textures.size());
+            texture.load(index.openStream(entry), tag, true, index.getLength(entry));
+            textures.add(texture);
+        }
+
+        if (textures.size() != this.textures.size()) {
+            throw new LoadingFaultException(String.format("Texture count in .sc and _tex.sc doesn't match: %s", this.filename));
+        }
+
+        return textures;
+    }
+
+    private void swapTexture(int textureIndex, SWFTexture texture, TextureUpgradeListener listener) {
+        SWFTexture previousTexture;
+        boolean isPreviousTextureKept;
+        synchronized (this) {
+            // Swapped in place, copying the list for every texture would make the upgrade quadratic
+            previousTexture = this.textures.set(textureIndex, texture);
+
+            isPreviousTextureKept = this.alternateTextures != null;
+            if (isPreviousTextureKept) {
+                this.alternateTextures.set(textureIndex, previousTexture);
+            }
+        }
+
+        try {
+            listener.onTextureUpgraded(this, textureIndex, previousTexture, texture);
+        } finally {
+            // SC1 files don't keep lowres textures, so nothing else would release them. Closing never frees
+            // pixels returned by getPixels(), see TextureMemory, so renderers may keep drawing the lowres texture
+            if (!isPreviousTextureKept) {
+                previousTexture.close();
+            }
+        }
+    }
+
+    private static TagIndex readTextureFileIndex(String path) throws IOException, UnknownFileVersionException, FileVerificationException, LoadingFaultException {
+        byte[] data = Files.readAllBytes(Path.of(path));
+        return TagIndex.build(ScFileUnpacker.unpack(data).data(), 0);
+    }
+
+    private void readObjectsInfo(ByteStream stream) {
         int shapeCount = stream.readShort();
         int movieClipCount = stream.readShort();
         int textureCount = stream.readShort();
@@ -418,6 +1084,7 @@ public class SupercellSWF {
         }
 
         this.shapes = new ArrayList<>(shapeCount);
+        this.shapePoints = new ShapePointBuffer();
         for (int i = 0; i < shapeCount; i++) {
             this.shapes.add(new ShapeOriginal());
         }
@@ -436,181 +1103,377 @@ public class SupercellSWF {
         for (int i = 0; i < textFieldCount; i++) {
             this.textFields.add(new TextFieldOriginal());
         }
+    }
 
-        if (this.loadTags(stream, false, path)) {
-            for (Export export : exports) {
-                MovieClipOriginal movieClip = this.getOriginalMovieClip(export.id(), export.name());
-                movieClip.setExportName(export.name());
+    private void assignExportNames() throws UnableToFindObjectException {
+        for (Export export : exports) {
+            MovieClipOriginal movieClip = this.movieClips.get(this.findMovieClipIndex(export.id(), export.name()));
+            movieClip.setExportName(export.name());
+        }
+    }
+
+    private int findMovieClipIndex(int id, String name) throws UnableToFindObjectException {
+        for (int i = 0; i < this.movieClips.size(); i++) {
+            if (this.movieClips.get(i).getId() == id) {
+                return i;
             }
+        }
 
-            return true;
+        String message = String.format("Unable to find some MovieClip id from %s", this.filename);
+        if (name != null) {
+            message += String.format(" needed by export name %s", name);
         }
 
-        return false;
+        throw new UnableToFindObjectException(message);
     }
 
     private boolean loadTags(ByteStream stream, boolean isTextureFile, String path) throws LoadingFaultException, UnsupportedCustomPropertyException {
-        highresSuffix = DEFAULT_HIGHRES_SUFFIX;
-        lowresSuffix = DEFAULT_LOWRES_SUFFIX;
+        // Suffixes are declared by the info file, they're needed to locate texture files afterwards
+        if (!isTextureFile) {
+            highresSuffix = DEFAULT_HIGHRES_SUFFIX;
+            lowresSuffix = DEFAULT_LOWRES_SUFFIX;
+        }
 
-        ScMatrixBank matrixBank = this.matrixBanks.get(0);
+        Sc1LoadingState state = new Sc1LoadingState(path, isTextureFile, this.matrixBanks.get(0));
+        this.loadingState = state;
 
-        int loadedShapes = 0;
-        int loadedMovieClips = 0;
-        int loadedTextures = 0;
-        int loadedTextFields = 0;
-        int loadedMatrices = 0;
-        int loadedColorTransforms = 0;
+        try {
+            while (true) {
+                int tag = stream.readUnsignedChar();
+                int length = stream.readInt();
 
-        int loadedMovieClipsModifiers = 0;
+                if (length < 0) {
+                    throw new NegativeTagLengthException(String.format("Negative tag length. Tag %d, %s", tag, this.filename));
+                }
 
-        while (true) {
-            int tag = stream.readUnsignedChar();
-            int length = stream.readInt();
+                if (tag == Tag.EOF.ordinal()) {
+                    validateLoadedObjectCounts(state);
+                    return true;
+                }
 
-            if (length < 0) {
-                throw new NegativeTagLengthException(String.format("Negative tag length. Tag %d, %s", tag, this.filename));
+                this.handleTag(stream, tag, length);
             }
+        } finally {
+            this.loadingState = null;
+        }
+    }
 
-            if (tag > Tag.values().length) {
-                try {
-                    throw new UnsupportedTagException(String.format("Encountered unknown tag %d, %s", tag, this.filename));
-                } catch (UnsupportedTagException exception) {
-                    LOGGER.error("An error occurred while loading the file: {}", path, exception);
-                }
+    private void handleTag(ByteStream stream, int tag, int length) throws LoadingFaultException, UnsupportedCustomPropertyException {
+        TagHandler<SupercellSWF> handler = TAG_HANDLERS.get(tag);
+        if (handler != null) {
+            handler.handle(this, stream, tag, length);
+            return;
+        }
 
-                if (length > 0) {
-                    stream.skip(length);
-                    continue;
-                }
-            }
+        // TODO: add strict mode which crashes on errors and probably enable it by default
+        // TODO: also add properties and settings for the app
+        try {
+            throw new UnsupportedTagException(String.format("Encountered unknown tag %d, %s", tag, this.filename));
+        } catch (UnsupportedTagException exception) {
+            LOGGER.error("An error occurred while loading the file: {}", this.loadingState.path, exception);
+        }
 
-            Tag tagValue = Tag.values()[tag];
-            switch (tagValue) {
-                case EOF -> {
-                    if (isTextureFile) {
-                        if (loadedTextures != this.textures.size()) {
-                            throw new LoadingFaultException(String.format("Texture count in .sc and _tex.sc doesn't match: %s", this.filename));
-                        }
-                    } else {
-                        if (loadedMatrices != matrixBank.getMatrixCount() ||
-                            loadedColorTransforms != matrixBank.getColorTransformCount() ||
-                            loadedMovieClips != this.movieClips.size() ||
-                            loadedShapes != this.shapes.size() ||
-                            loadedTextFields != this.textFields.size()) {
-                            throw new LoadingFaultException("Didn't load whole .sc properly. " + filename);
-                        }
-                    }
+        if (length > 0) {
+            stream.skip(length);
+        }
+    }
 
-                    return true;
-                }
-                case TEXTURE, TEXTURE_2, TEXTURE_3, TEXTURE_4, TEXTURE_5, TEXTURE_6,
-                     TEXTURE_7, TEXTURE_8, KHRONOS_TEXTURE, TEXTURE_FILE_REFERENCE -> {
-                    if (loadedTextures >= this.textures.size()) {
-                        throw new TooManyObjectsException("Trying to load too many textures from " + filename);
-                    }
-                    this.textures.get(loadedTextures).setIndex(loadedTextures);
-                    this.textures.get(loadedTextures++).load(stream, tagValue, !this.useExternalTexture || isTextureFile);
-                }
-                case SHAPE, SHAPE_2 -> {
-                    if (loadedShapes >= this.shapes.size()) {
+    /**
+     * Assigns object ids and decodes everything except shapes, movie clips, text fields and texture pixels.
+     */
+    private void indexTags(TagIndex index, String path) throws LoadingFaultException, UnsupportedCustomPropertyException {
+        highresSuffix = DEFAULT_HIGHRES_SUFFIX;
+        lowresSuffix = DEFAULT_LOWRES_SUFFIX;
+
+        IndexedObjects indexed = new IndexedObjects(index, this.shapes.size(), this.movieClips.size(), this.textFields.size());
+
+        Sc1LoadingState state = new Sc1LoadingState(path, false, this.matrixBanks.get(0));
+        this.loadingState = state;
+
+        try {
+            for (int entry = 0; entry < index.getCount(); entry++) {
+                int tag = index.getTag(entry);
+                Tag tagValue = index.getTagValue(entry);
+
+                if (tagValue == null || TAG_HANDLERS.get(tag) == null) {
+                    this.handleTag(index.openStream(entry), tag, index.getLength(entry));
+                } else if (tagValue.isShape()) {
+                    if (state.loadedShapes >= this.shapes.size()) {
                         throw new TooManyObjectsException("Trying to load too many shapes from " + filename);
                     }
 
-                    this.shapes.get(loadedShapes++).load(stream, tagValue, this::getTexture, filename);
-                }
-                case MOVIE_CLIP, MOVIE_CLIP_2, MOVIE_CLIP_3, MOVIE_CLIP_4, MOVIE_CLIP_5,
-                     MOVIE_CLIP_6 -> {
-                    if (loadedMovieClips >= this.movieClips.size()) {
+                    indexed.shapeEntries[state.loadedShapes] = entry;
+                    this.shapes.get(state.loadedShapes++).setId(index.getObjectId(entry));
+                } else if (tagValue.isMovieClip()) {
+                    if (state.loadedMovieClips >= this.movieClips.size()) {
                         throw new TooManyObjectsException("Trying to load too many MovieClips from " + filename);
                     }
 
-                    this.movieClips.get(loadedMovieClips++).load(stream, tagValue, filename);
-                }
-                case TEXT_FIELD, TEXT_FIELD_2, TEXT_FIELD_3, TEXT_FIELD_4, TEXT_FIELD_5,
-                     TEXT_FIELD_6, TEXT_FIELD_7, TEXT_FIELD_8, TEXT_FIELD_9 -> {
-                    if (loadedTextFields >= this.textFields.size()) {
+                    indexed.movieClipEntries[state.loadedMovieClips] = entry;
+                    this.movieClips.get(state.loadedMovieClips++).setId(index.getObjectId(entry));
+                } else if (tagValue.isTextField()) {
+                    if (state.loadedTextFields >= this.textFields.size()) {
                         throw new TooManyObjectsException("Trying to load too many TextFields from " + filename);
                     }
 
-                    this.textFields.get(loadedTextFields++).load(stream, tagValue, this::readFontName);
-                }
-                case MATRIX ->
-                    matrixBank.getMatrix(loadedMatrices++).load(stream, false);
-                case COLOR_TRANSFORM ->
-                    matrixBank.getColorTransform(loadedColorTransforms++).read(stream);
-                case TAG_TIMELINE_INDEXES -> {
-                    try {
-                        throw new UnsupportedTagException("TAG_TIMELINE_INDEXES no longer in use");
-                    } catch (UnsupportedTagException exception) {
-                        LOGGER.error("An error occurred while loading the file: {}", path, exception);
-                    }
-
-                    int indicesLength = stream.readInt();
-                    stream.skip(indicesLength);
-                }
-                case HALF_SCALE_POSSIBLE -> this.isHalfScalePossible = true;
-                case USE_EXTERNAL_TEXTURE -> this.useExternalTexture = true;
-                case USE_UNCOMMON_RESOLUTION -> {
-                    this.useUncommonResolution = true;
-
-                    String withoutExtension = path.substring(0, path.length() - 3);
-                    String highresPath = withoutExtension + highresSuffix + TEXTURE_EXTENSION;
-                    String lowresPath = withoutExtension + lowresSuffix + TEXTURE_EXTENSION;
-
-                    this.isHalfScalePossible = true;
-                    String uncommonPath = highresPath;
-                    if (!doesFileExist(highresPath)) {
-                        if (doesFileExist(lowresPath)) {
-                            uncommonPath = lowresPath;
-                        }
+                    indexed.textFieldEntries[state.loadedTextFields] = entry;
+                    this.textFields.get(state.loadedTextFields++).setId(index.getObjectId(entry));
+                } else if (tagValue.isTexture()) {
+                    if (state.loadedTextures >= this.textures.size()) {
+                        throw new TooManyObjectsException("Trying to load too many textures from " + filename);
                     }
 
-                    this.uncommonResolutionTexturePath = uncommonPath;
-                }
-                case EXTERNAL_FILES_SUFFIXES -> {
-                    highresSuffix = stream.readAscii();
-                    lowresSuffix = stream.readAscii();
-                }
-                case MATRIX_PRECISE ->
-                    matrixBank.getMatrix(loadedMatrices++).load(stream, true);
-                case MOVIE_CLIP_MODIFIERS -> {
-                    int movieClipModifierCount = stream.readShort();
-
-                    this.movieClipModifiers = new ArrayList<>(movieClipModifierCount);
-                    for (int i = 0; i < movieClipModifierCount; i++) {
-                        this.movieClipModifiers.add(new MovieClipModifierOriginal());
+                    SWFTexture texture = this.textures.get(state.loadedTextures);
+                    texture.setIndex(state.loadedTextures++);
+                    if (this.useExternalTexture) {
+                        texture.load(index.openStream(entry), tagValue, false);
+                    } else {
+                        indexTexture(texture, index, entry);
                     }
+                } else {
+                    this.handleTag(index.openStream(entry), tag, index.getLength(entry));
                 }
-                case MODIFIER_STATE_2, MODIFIER_STATE_3, MODIFIER_STATE_4 ->
-                    this.movieClipModifiers.get(loadedMovieClipsModifiers++).load(stream, tagValue);
-                case EXTRA_MATRIX_BANK -> {
-                    int matrixCount = stream.readShort();
-                    int colorTransformCount = stream.readShort();
+            }
 
-                    matrixBank = new ScMatrixBank(matrixCount, colorTransformCount);
-                    this.matrixBanks.add(matrixBank);
+            validateLoadedObjectCounts(state);
+        } finally {
+            this.loadingState = null;
+        }
 
-                    loadedMatrices = 0;
-                    loadedColorTransforms = 0;
-                }
-                default -> {
-                    // TODO: add strict mode which crashes on errors and probably enable it by default
-                    // TODO: also add properties and settings for the app
-                    try {
-                        throw new UnsupportedTagException(String.format("Encountered unknown tag %d, %s", tag, this.filename));
-                    } catch (UnsupportedTagException exception) {
-                        LOGGER.error("An error occurred while loading the file: {}", path, exception);
-                    }
+        this.indexedObjects = indexed;
+    }
 
-                    if (length > 0) {
-                        stream.skip(length);
-                    }
-                }
+    private void indexTextureFile(TagIndex index) throws LoadingFaultException {
+        int loadedTextures = 0;
+        for (int entry = 0; entry < index.getCount(); entry++) {
+            Tag tagValue = index.getTagValue(entry);
+            if (tagValue == null || !tagValue.isTexture()) continue;
+
+            if (loadedTextures >= this.textures.size()) {
+                throw new TooManyObjectsException("Trying to load too many textures from " + filename);
             }
+
+            indexTexture(this.textures.get(loadedTextures++), index, entry);
+        }
+
+        if (loadedTextures != this.textures.size()) {
+            throw new LoadingFaultException(String.format("Texture count in .sc and _tex.sc doesn't match: %s", this.filename));
         }
     }
 
+    /**
+     * Loads the texture header, deferring pixel decoding. KTX data and textures with mipmaps are loaded immediately.
+     */
+    private static void indexTexture(SWFTexture texture, TagIndex index, int entry) throws LoadingFaultException {
+        Tag tag = index.getTagValue(entry);
+        if (tag == Tag.KHRONOS_TEXTURE || tag == Tag.TEXTURE_FILE_REFERENCE || tag.hasMipmaps()) {
+            texture.load(index.openStream(entry), tag, true, index.getLength(entry));
+            return;
+        }
+
+        texture.load(index.openStream(entry), tag, false);
+        texture.setPixelSource(tag, () -> index.openStream(entry));
+    }
+
+    private void decodeIndexedShape(int slot) throws LoadingFaultException, UnsupportedCustomPropertyException {
+        IndexedObjects indexed = this.indexedObjects;
+        if (indexed == null || slot >= indexed.shapeEntries.length) return;
+
+        synchronized (indexed) {
+            if (indexed.decodedShapes.get(slot)) return;
+
+            int entry = indexed.shapeEntries[slot];
+            this.shapes.get(slot).load(indexed.index.openStream(entry), indexed.index.getTagValue(entry), this::getTexture, filename, this.shapePoints);
+            indexed.decodedShapes.set(slot);
+        }
+    }
+
+    private void decodeIndexedMovieClip(int slot) throws LoadingFaultException, UnsupportedCustomPropertyException {
+        IndexedObjects indexed = this.indexedObjects;
+        if (indexed == null || slot >= indexed.movieClipEntries.length) return;
+
+        synchronized (indexed) {
+            if (indexed.decodedMovieClips.get(slot)) return;
+
+            int entry = indexed.movieClipEntries[slot];
+            this.movieClips.get(slot).load(indexed.index.openStream(entry), indexed.index.getTagValue(entry), filename);
+            indexed.decodedMovieClips.set(slot);
+        }
+    }
+
+    private void decodeIndexedTextField(int slot) {
+        IndexedObjects indexed = this.indexedObjects;
+        if (indexed == null || slot >= indexed.textFieldEntries.length) return;
+
+        synchronized (indexed) {
+            if (indexed.decodedTextFields.get(slot)) return;
+
+            int entry = indexed.textFieldEntries[slot];
+            this.textFields.get(slot).load(indexed.index.openStream(entry), indexed.index.getTagValue(entry), this::readFontName);
+            indexed.decodedTextFields.set(slot);
+        }
+    }
+
+    private void decodeIndexedObject(IndexedObjectDecoder decoder, int slot) {
+        if (this.indexedObjects == null) return;
+
+        try {
+            decoder.decode(slot);
+        } catch (LoadingFaultException | UnsupportedCustomPropertyException exception) {
+            throw new IllegalStateException("Unable to decode indexed object from " + filename, exception);
+        }
+    }
+
+    private void validateLoadedObjectCounts(Sc1LoadingState state) throws LoadingFaultException {
+        if (state.isTextureFile) {
+            if (state.loadedTextures != this.textures.size()) {
+                throw new LoadingFaultException(String.format("Texture count in .sc and _tex.sc doesn't match: %s", this.filename));
+            }
+        } else {
+            if (state.loadedMatrices != state.matrixBank.getMatrixCount() ||
+                state.loadedColorTransforms != state.matrixBank.getColorTransformCount() ||
+                state.loadedMovieClips != this.movieClips.size() ||
+                state.loadedShapes != this.shapes.size() ||
+                state.loadedTextFields != this.textFields.size()) {
+                throw new LoadingFaultException("Didn't load whole .sc properly. " + filename);
+            }
+        }
+    }
+
+    private static TagRegistry<SupercellSWF> createTagRegistry() {
+        TagRegistry<SupercellSWF> registry = new TagRegistry<>();
+
+        registry.register(SupercellSWF::readTextureTag, Tag.TEXTURE, Tag.TEXTURE_2, Tag.TEXTURE_3, Tag.TEXTURE_4,
+            Tag.TEXTURE_5, Tag.TEXTURE_6, Tag.TEXTURE_7, Tag.TEXTURE_8, Tag.KHRONOS_TEXTURE, Tag.TEXTURE_FILE_REFERENCE);
+        registry.register(SupercellSWF::readShapeTag, Tag.SHAPE, Tag.SHAPE_2);
+        registry.register(SupercellSWF::readMovieClipTag, Tag.MOVIE_CLIP, Tag.MOVIE_CLIP_2, Tag.MOVIE_CLIP_3,
+            Tag.MOVIE_CLIP_4, Tag.MOVIE_CLIP_5, Tag.MOVIE_CLIP_6);
+        registry.register(SupercellSWF::readTextFieldTag, Tag.TEXT_FIELD, Tag.TEXT_FIELD_2, Tag.TEXT_FIELD_3,
+            Tag.TEXT_FIELD_4, Tag.TEXT_FIELD_5, Tag.TEXT_FIELD_6, Tag.TEXT_FIELD_7, Tag.TEXT_FIELD_8, Tag.TEXT_FIELD_9);
+        registry.register(SupercellSWF::readMatrixTag, Tag.MATRIX, Tag.MATRIX_PRECISE);
+        registry.register(SupercellSWF::readColorTransformTag, Tag.COLOR_TRANSFORM);
+        registry.register(SupercellSWF::readTimelineIndexesTag, Tag.TAG_TIMELINE_INDEXES);
+        registry.register((swf, stream, tag, length) -> swf.isHalfScalePossible = true, Tag.HALF_SCALE_POSSIBLE);
+        registry.register((swf, stream, tag, length) -> swf.useExternalTexture = true, Tag.USE_EXTERNAL_TEXTURE);
+        registry.register(SupercellSWF::readUncommonResolutionTag, Tag.USE_UNCOMMON_RESOLUTION);
+        registry.register(SupercellSWF::readExternalFilesSuffixesTag, Tag.EXTERNAL_FILES_SUFFIXES);
+        registry.register(SupercellSWF::readMovieClipModifiersTag, Tag.MOVIE_CLIP_MODIFIERS);
+        registry.register(SupercellSWF::readMovieClipModifierTag, Tag.MODIFIER_STATE_2, Tag.MODIFIER_STATE_3, Tag.MODIFIER_STATE_4);
+        registry.register(SupercellSWF::readExtraMatrixBankTag, Tag.EXTRA_MATRIX_BANK);
+
+        return registry;
+    }
+
+    private void readTextureTag(ByteStream stream, int tag, int length) throws LoadingFaultException {
+        Sc1LoadingState state = this.loadingState;
+        if (state.loadedTextures >= this.textures.size()) {
+            throw new TooManyObjectsException("Trying to load too many textures from " + filename);
+        }
+
+        SWFTexture texture = this.textures.get(state.loadedTextures);
+        texture.setIndex(state.loadedTextures++);
+        texture.load(stream, Tag.getByOrdinal(tag), !this.useExternalTexture || state.isTextureFile, length);
+    }
+
+    private void readShapeTag(ByteStream stream, int tag, int length) throws LoadingFaultException, UnsupportedCustomPropertyException {
+        Sc1LoadingState state = this.loadingState;
+        if (state.loadedShapes >= this.shapes.size()) {
+            throw new TooManyObjectsException("Trying to load too many shapes from " + filename);
+        }
+
+        this.shapes.get(state.loadedShapes++).load(stream, Tag.getByOrdinal(tag), this::getTexture, filename, this.shapePoints);
+    }
+
+    private void readMovieClipTag(ByteStream stream, int tag, int length) throws LoadingFaultException, UnsupportedCustomPropertyException {
+        Sc1LoadingState state = this.loadingState;
+        if (state.loadedMovieClips >= this.movieClips.size()) {
+            throw new TooManyObjectsException("Trying to load too many MovieClips from " + filename);
+        }
+
+        this.movieClips.get(state.loadedMovieClips++).load(stream, Tag.getByOrdinal(tag), filename);
+    }
+
+    private void readTextFieldTag(ByteStream stream, int tag, int length) throws LoadingFaultException {
+        Sc1LoadingState state = this.loadingState;
+        if (state.loadedTextFields >= this.textFields.size()) {
+            throw new TooManyObjectsException("Trying to load too many TextFields from " + filename);
+        }
+
+        this.textFields.get(state.loadedTextFields++).load(stream, Tag.getByOrdinal(tag), this::readFontName);
+    }
+
+    private void readMatrixTag(ByteStream stream, int tag, int length) {
+        Sc1LoadingState state = this.loadingState;
+        state.matrixBank.getMatrix(state.loadedMatrices++).load(stream, tag == Tag.MATRIX_PRECISE.ordinal());
+    }
+
+    private void readColorTransformTag(ByteStream stream, int tag, int length) {
+        Sc1LoadingState state = this.loadingState;
+        state.matrixBank.getColorTransform(state.loadedColorTransforms++).read(stream);
+    }
+
+    private void readTimelineIndexesTag(ByteStream stream, int tag, int length) {
+        try {
+            throw new UnsupportedTagException("TAG_TIMELINE_INDEXES no longer in use");
+        } catch (UnsupportedTagException exception) {
+            LOGGER.error("An error occurred while loading the file: {}", this.loadingState.path, exception);
+        }
+
+        int indicesLength = stream.readInt();
+        stream.skip(indicesLength);
+    }
+
+    private void readUncommonResolutionTag(ByteStream stream, int tag, int length) {
+        this.useUncommonResolution = true;
+
+        String path = this.loadingState.path;
+        String withoutExtension = path.substring(0, path.length() - 3);
+        String highresPath = withoutExtension + highresSuffix + TEXTURE_EXTENSION;
+        String lowresPath = withoutExtension + lowresSuffix + TEXTURE_EXTENSION;
+
+        this.isHalfScalePossible = true;
+        String uncommonPath = highresPath;
+        if (!doesFileExist(highresPath)) {
+            if (doesFileExist(lowresPath)) {
+                uncommonPath = lowresPath;
+                this.lowresTexturesActive = true;
+            }
+        }
+
+        this.uncommonResolutionTexturePath = uncommonPath;
+    }
+
+    private void readExternalFilesSuffixesTag(ByteStream stream, int tag, int length) {
+        highresSuffix = stream.readAscii();
+        lowresSuffix = stream.readAscii();
+    }
+
+    private void readMovieClipModifiersTag(ByteStream stream, int tag, int length) {
+        int movieClipModifierCount = stream.readShort();
+
+        this.movieClipModifiers = new ArrayList<>(movieClipModifierCount);
+        for (int i = 0; i < movieClipModifierCount; i++) {
+            this.movieClipModifiers.add(new MovieClipModifierOriginal());
+        }
+    }
+
+    private void readMovieClipModifierTag(ByteStream stream, int tag, int length) {
+        Sc1LoadingState state = this.loadingState;
+        this.movieClipModifiers.get(state.loadedMovieClipModifiers++).load(stream, Tag.getByOrdinal(tag));
+    }
+
+    private void readExtraMatrixBankTag(ByteStream stream, int tag, int length) {
+        int matrixCount = stream.readShort();
+        int colorTransformCount = stream.readShort();
+
+        Sc1LoadingState state = this.loadingState;
+        state.matrixBank = new ScMatrixBank(matrixCount, colorTransformCount);
+        this.matrixBanks.add(state.matrixBank);
+
+        state.loadedMatrices = 0;
+        state.loadedColorTransforms = 0;
+    }
+
     private String readFontName(ByteStream stream) {
         String fontName = stream.readAscii();
         if (fontName != null) {
@@ -631,6 +1494,36 @@ public class SupercellSWF {
 
         this.saveTags(stream, includeInfo, includeTextures, tracker);
 
+        writeFile(path, stream);
+    }
+
+    /**
+     * Saves half-scale copies of textures. Textures without pixels, e.g. KTX ones, are saved as is.
+     */
+    private void saveLowresTextures(String path, ProgressTracker tracker) {
+        ByteStream stream = new ByteStream();
+
+        int i = 0;
+        for (SWFTexture texture : this.textures) {
+            SWFTexture lowresTexture = texture.isPixelsLoaded() || texture.getPixelSource() != null ? TextureDownsampler.halfScale(texture) : texture;
+            lowresTexture.setHasTexture(true);
+            stream.writeSavable(lowresTexture);
+
+            if (lowresTexture != texture) {
+                lowresTexture.close();
+            }
+
+            if (tracker != null) {
+                tracker.setProgress(++i, this.textures.size());
+            }
+        }
+
+        stream.writeBlock(Tag.EOF, null);
+
+        writeFile(path, stream);
+    }
+
+    private static void writeFile(String path, ByteStream stream) {
         byte[] data = stream.getData();
 
         try {
@@ -784,6 +1677,82 @@ public class SupercellSWF {
         return nextId;
     }
 
+    @FunctionalInterface
+    private interface IndexedObjectDecoder {
+        void decode(int slot) throws LoadingFaultException, UnsupportedCustomPropertyException;
+    }
+
+    /**
+     * Maps object slots to {@link TagIndex} entries of the file loaded by {@link #loadIndexed(String, String, boolean)}.
+     * Objects are decoded while holding the lock of this instance, since lookups may decode them from several threads.
+     */
+    private static final class IndexedObjects {
+        private final TagIndex index;
+
+        private final int[] shapeEntries;
+        private final int[] movieClipEntries;
+        private final int[] textFieldEntries;
+
+        private final BitSet decodedShapes = new BitSet();
+        private final BitSet decodedMovieClips = new BitSet();
+        private final BitSet decodedTextFields = new BitSet();
+
+        private IndexedObjects(TagIndex index, int shapeCount, int movieClipCount, int textFieldCount) {
+            this.index = index;
+            this.shapeEntries = new int[shapeCount];
+            this.movieClipEntries = new int[movieClipCount];
+            this.textFieldEntries = new int[textFieldCount];
+        }
+    }
+
+    private static final class Sc1LoadingState {
+        private final String path;
+        private final boolean isTextureFile;
+
+        private ScMatrixBank matrixBank;
+
+        private int loadedShapes;
+        private int loadedMovieClips;
+        private int loadedTextures;
+        private int loadedTextFields;
+        private int loadedMatrices;
+        private int loadedColorTransforms;
+        private int loadedMovieClipModifiers;
+
+        private Sc1LoadingState(String path, boolean isTextureFile, ScMatrixBank matrixBank) {
+            this.path = path;
+            this.isTextureFile = isTextureFile;
+            this.matrixBank = matrixBank;
+        }
+    }
+
+    /**
+     * Texture list of a file being upgraded, slots are swapped atomically and in constant time,
+     * readers see every texture either before or after its upgrade.
+     */
+    private static final class UpgradingTextureList extends AbstractList<SWFTexture> implements RandomAccess {
+        private final AtomicReferenceArray<SWFTexture> slots;
+
+        private UpgradingTextureList(List<SWFTexture> textures) {
+            this.slots = new AtomicReferenceArray<>(textures.toArray(new SWFTexture[0]));
+        }
+
+        @Override
+        public SWFTexture get(int index) {
+            return slots.get(index);
+        }
+
+        @Override
+        public SWFTexture set(int index, SWFTexture texture) {
+            return slots.getAndSet(index, texture);
+        }
+
+        @Override
+        public int size() {
+            return slots.length();
+        }
+    }
+
     private record ExtraMatrixBankInfo(int matrixCount, int colorTransformCount) implements Savable {
         @Override
         public void save(ByteStream stream) {
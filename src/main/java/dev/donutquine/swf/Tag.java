@@ -96,6 +96,23 @@ public enum Tag {
     MOVIE_CLIP_6,
     ;
 
+    private static final Tag[] VALUES = values();
+
+    /**
+     * Returns tag by its ordinal without cloning {@link #values()} array.
+     *
+     * @param ordinal raw tag byte
+     * @return tag or {@code null} if the ordinal doesn't represent any known tag
+     * @since 1.1.7
+     */
+    public static Tag getByOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            return null;
+        }
+
+        return VALUES[ordinal];
+    }
+
     public boolean isTexture() {
         return this == TEXTURE || this == TEXTURE_2 || this == TEXTURE_3
             || this == TEXTURE_4 || this == TEXTURE_5 || this == TEXTURE_6
@@ -142,6 +159,13 @@ public enum Tag {
         return this == Tag.TEXTURE_5 || this == Tag.TEXTURE_6 || this == Tag.TEXTURE_7;
     }
 
+    /**
+     * @since 1.1.7
+     */
+    public boolean hasMipmaps() {
+        return this == Tag.TEXTURE_2 || this == Tag.TEXTURE_3 || this == Tag.TEXTURE_7;
+    }
+
     public boolean hasBlendData() {
         return this == MOVIE_CLIP_3 || this == MOVIE_CLIP_5 || this == MOVIE_CLIP_6;
     }
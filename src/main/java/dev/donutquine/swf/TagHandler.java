@@ -0,0 +1,25 @@
+package dev.donutquine.swf;
+
+import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.UnsupportedCustomPropertyException;
+
+/**
+ * Reads a single tag block into the object being loaded.
+ *
+ * <p>The stream is positioned right after the block header, so the handler has to consume
+ * exactly {@code length} bytes.</p>
+ *
+ * @param <T> type of the object being loaded
+ * @since 1.1.7
+ */
+@FunctionalInterface
+public interface TagHandler<T> {
+    /**
+     * @param target object being loaded
+     * @param stream stream positioned at the block payload
+     * @param tag    raw tag byte, may be outside the {@link Tag} enum range
+     * @param length payload length in bytes
+     */
+    void handle(T target, ByteStream stream, int tag, int length) throws LoadingFaultException, UnsupportedCustomPropertyException;
+}
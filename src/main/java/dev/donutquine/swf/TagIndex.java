@@ -0,0 +1,153 @@
+package dev.donutquine.swf;
+
+import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.NegativeTagLengthException;
+
+import java.util.Arrays;
+
+/**
+ * Index of SC1 tag blocks ({@code [tag][int length][payload]}), built by skipping payloads using the length field only.
+ *
+ * <p>Keeps a reference to the decompressed data, so any block can be decoded later through {@link #openStream(int)}.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TagIndex {
+    private static final int HEADER_SIZE = 5;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final byte[] data;
+    private final byte[] tags;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int count;
+
+    private TagIndex(byte[] data, byte[] tags, int[] offsets, int[] lengths, int count) {
+        this.data = data;
+        this.tags = tags;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.count = count;
+    }
+
+    /**
+     * Scans tag blocks from the given position up to the EOF tag.
+     *
+     * @param data     decompressed file data
+     * @param position position of the first tag block
+     * @return index of all blocks, excluding EOF
+     * @throws LoadingFaultException if a block is truncated or EOF tag is missing
+     */
+    public static TagIndex build(byte[] data, int position) throws LoadingFaultException {
+        byte[] tags = new byte[INITIAL_CAPACITY];
+        int[] offsets = new int[INITIAL_CAPACITY];
+        int[] lengths = new int[INITIAL_CAPACITY];
+        int count = 0;
+
+        while (true) {
+            if (position + HEADER_SIZE > data.length) {
+                throw new LoadingFaultException("Unexpected end of data: EOF tag is missing.");
+            }
+
+            int tag = data[position] & 0xFF;
+            int length = (data[position + 1] & 0xFF) |
+                (data[position + 2] & 0xFF) << 8 |
+                (data[position + 3] & 0xFF) << 16 |
+                (data[position + 4] & 0xFF) << 24;
+
+            if (length < 0) {
+                throw new NegativeTagLengthException(String.format("Negative tag length. Tag %d at %d", tag, position));
+            }
+
+            int offset = position + HEADER_SIZE;
+            if (length > data.length - offset) {
+                throw new LoadingFaultException(String.format("Tag %d at %d exceeds data length", tag, position));
+            }
+
+            if (tag == Tag.EOF.ordinal()) {
+                return new TagIndex(data, tags, offsets, lengths, count);
+            }
+
+            if (count == tags.length) {
+                int newCapacity = count * 2;
+                tags = Arrays.copyOf(tags, newCapacity);
+                offsets = Arrays.copyOf(offsets, newCapacity);
+                lengths = Arrays.copyOf(lengths, newCapacity);
+            }
+
+            tags[count] = (byte) tag;
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+
+            position = offset + length;
+        }
+    }
+
+    /**
+     * @return block count, excluding EOF
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return raw tag byte of the block
+     */
+    public int getTag(int entry) {
+        return tags[checkEntry(entry)] & 0xFF;
+    }
+
+    /**
+     * @return tag of the block or {@code null} if the tag is unknown
+     */
+    public Tag getTagValue(int entry) {
+        return Tag.getByOrdinal(getTag(entry));
+    }
+
+    /**
+     * @return payload offset in the decompressed data
+     */
+    public int getOffset(int entry) {
+        return offsets[checkEntry(entry)];
+    }
+
+    /**
+     * @return payload length in bytes
+     */
+    public int getLength(int entry) {
+        return lengths[checkEntry(entry)];
+    }
+
+    /**
+     * Reads the first unsigned short of the payload, which is an object id for shapes, movie clips and text fields.
+     *
+     * @throws LoadingFaultException if the payload is shorter than an object id
+     */
+    public int getObjectId(int entry) throws LoadingFaultException {
+        if (getLength(entry) < 2) {
+            throw new LoadingFaultException(String.format("Tag %d at %d is too short to contain an object id", getTag(entry), getOffset(entry) - HEADER_SIZE));
+        }
+
+        int offset = getOffset(entry);
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    /**
+     * Creates a stream over the indexed data positioned at the block payload. Data is not copied.
+     */
+    public ByteStream openStream(int entry) {
+        ByteStream stream = new ByteStream(data);
+        stream.setPosition(getOffset(entry));
+        return stream;
+    }
+
+    private int checkEntry(int entry) {
+        if (entry < 0 || entry >= count) {
+            throw new IndexOutOfBoundsException("Entry " + entry + " out of bounds for count " + count);
+        }
+
+        return entry;
+    }
+}
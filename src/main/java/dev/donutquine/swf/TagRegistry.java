@@ -0,0 +1,55 @@
+package dev.donutquine.swf;
+
+/**
+ * Table of tag handlers indexed by the raw tag byte.
+ *
+ * <p>Every loader owns a registry of this kind, so custom or unknown tags (e.g. {@link Tag#UNKNOWN_48})
+ * can be handled by registering a handler before loading a file.</p>
+ *
+ * <p>Registries are not synchronized: register handlers before loading files from multiple threads.</p>
+ *
+ * @param <T> type of the object being loaded
+ * @since 1.1.7
+ */
+public final class TagRegistry<T> {
+    public static final int MAX_TAG_COUNT = 256;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final TagHandler<T>[] handlers = new TagHandler[MAX_TAG_COUNT];
+
+    /**
+     * Registers the handler for each of the given tags, replacing the previous ones.
+     */
+    public void register(TagHandler<T> handler, Tag... tags) {
+        for (Tag tag : tags) {
+            register(tag.ordinal(), handler);
+        }
+    }
+
+    /**
+     * Registers the handler for a raw tag byte, replacing the previous one.
+     * Passing {@code null} removes the handler, so the tag is treated as unknown.
+     */
+    public void register(int tag, TagHandler<T> handler) {
+        validateTag(tag);
+
+        this.handlers[tag] = handler;
+    }
+
+    /**
+     * @return handler for the raw tag byte, or {@code null} if the tag is unknown
+     */
+    public TagHandler<T> get(int tag) {
+        return this.handlers[tag];
+    }
+
+    public boolean isRegistered(int tag) {
+        return this.handlers[tag] != null;
+    }
+
+    private static void validateTag(int tag) {
+        if (tag < 0 || tag >= MAX_TAG_COUNT) {
+            throw new IllegalArgumentException("Tag must be between 0 and " + (MAX_TAG_COUNT - 1) + ", but was " + tag);
+        }
+    }
+}
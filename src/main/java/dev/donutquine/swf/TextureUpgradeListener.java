@@ -0,0 +1,34 @@
+package dev.donutquine.swf;
+
+import dev.donutquine.swf.textures.SWFTexture;
+
+/**
+ * Receives highres textures swapped in by {@link SupercellSWF#loadProgressive(String, String, java.util.concurrent.Executor, TextureUpgradeListener)}.
+ *
+ * <p>Methods are called from executor threads.</p>
+ *
+ * @since 1.1.7
+ */
+public interface TextureUpgradeListener {
+    /**
+     * Called after the highres texture replaced the lowres one in {@link SupercellSWF#getTextures()}.
+     *
+     * <p>SC2 files keep the lowres texture for {@link SupercellSWF#setLowresTexturesActive(boolean)}, so it stays owned
+     * by the file. SC1 files don't keep it, so it's closed right after this method returns. Pixels acquired by
+     * {@link SWFTexture#acquirePixels()} stay valid until they're released, pixels returned by
+     * {@link SWFTexture#getPixels()} stay valid as long as they're referenced.</p>
+     */
+    void onTextureUpgraded(SupercellSWF swf, int textureIndex, SWFTexture lowresTexture, SWFTexture highresTexture);
+
+    /**
+     * Called after all textures are upgraded, or right after loading if there is nothing to upgrade.
+     */
+    default void onUpgradeCompleted(SupercellSWF swf) {
+    }
+
+    /**
+     * Called if loading of highres textures failed. Textures, which weren't upgraded, stay lowres.
+     */
+    default void onUpgradeFailed(SupercellSWF swf, Throwable throwable) {
+    }
+}
@@ -0,0 +1,431 @@
+package dev.donutquine.swf.movieclips;
+
+import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.ColorTransform;
+import dev.donutquine.swf.DisplayObjectOriginal;
+import dev.donutquine.swf.Matrix2x3;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flattened draw lists of every frame of a movie clip, evaluated once by {@link TimelineEvaluator}, so playback
+ * is a linear scan over primitive arrays without walking the clip tree.
+ *
+ * <p>Every draw refers to a leaf object by id, a world matrix, a color transform and a blend mode. Matrices and
+ * color transforms are deduplicated across all frames. Color transforms are packed into two ints: multipliers
+ * as red, green, blue and alpha bytes from the lowest one, and additions as red, green and blue bytes.</p>
+ *
+ * <p>Written animations store the {@link Source source} they were baked from, so stale files can be detected.</p>
+ *
+ * @since 1.1.7
+ */
+public final class BakedAnimation {
+    public static final int MATRIX_STRIDE = 6;
+    public static final int COLOR_TRANSFORM_STRIDE = 2;
+    public static final int DRAW_STRIDE = 3;
+
+    private static final int MAGIC = 0x4D4E4142;  // "BANM"
+    private static final int VERSION = 2;
+
+    private final Source source;
+    private final String exportName;
+    private final int fps;
+    // Offsets of the first draw of every frame, with the draw count as the last element
+    private final int[] frameOffsets;
+    // Object id with the blend mode in bits 16..23, matrix index and color transform index of every draw
+    private final int[] draws;
+    private final float[] matrices;
+    private final int[] colorTransforms;
+
+    /**
+     * Version of the file an animation was baked from.
+     *
+     * @param size         size of the file in bytes
+     * @param modifiedTime last modification time of the file in milliseconds
+     */
+    public record Source(long size, long modifiedTime) {
+        /**
+         * Source of animations, which weren't baked from a file.
+         */
+        public static final Source UNKNOWN = new Source(-1, -1);
+
+        public static Source of(Path path) throws IOException {
+            return new Source(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+        }
+    }
+
+    private BakedAnimation(Source source, String exportName, int fps, int[] frameOffsets, int[] draws, float[] matrices, int[] colorTransforms) {
+        this.source = source;
+        this.exportName = exportName;
+        this.fps = fps;
+        this.frameOffsets = frameOffsets;
+        this.draws = draws;
+        this.matrices = matrices;
+        this.colorTransforms = colorTransforms;
+    }
+
+    /**
+     * Evaluates every frame of the movie clip. Nested clips are evaluated at times of the frames,
+     * so their loops are baked only as far as the root clip plays.
+     */
+    public static BakedAnimation bake(TimelineEvaluator evaluator, MovieClipOriginal movieClip) throws UnableToFindObjectException {
+        return bake(evaluator, movieClip, Math.max(1, movieClip.getFrames().size()));
+    }
+
+    /**
+     * Evaluates frames of the movie clip at its frame rate, the root timeline wraps around if the count exceeds
+     * its frames. Useful when nested clips loop longer than the root clip.
+     */
+    public static BakedAnimation bake(TimelineEvaluator evaluator, MovieClipOriginal movieClip, int frameCount) throws UnableToFindObjectException {
+        if (frameCount <= 0) {
+            throw new IllegalArgumentException("Frame count must be positive: " + frameCount);
+        }
+
+        int[] frameOffsets = new int[frameCount + 1];
+
+        Map<MatrixKey, Integer> matrixIndices = new HashMap<>();
+        Map<Long, Integer> colorTransformIndices = new HashMap<>();
+        float[] matrices = new float[64 * MATRIX_STRIDE];
+        int[] colorTransforms = new int[16 * COLOR_TRANSFORM_STRIDE];
+        int[] draws = new int[64 * DRAW_STRIDE];
+        int drawCount = 0;
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            frameOffsets[frame] = drawCount;
+
+            int leafCount = evaluator.evaluate(movieClip, frame);
+            DisplayObjectOriginal[] leaves = evaluator.getLeaves();
+            float[] leafMatrices = evaluator.getMatrices();
+            int[] leafColorTransforms = evaluator.getColorTransforms();
+            int[] leafBlendModes = evaluator.getBlendModes();
+
+            for (int leaf = 0; leaf < leafCount; leaf++) {
+                int matrixOffset = leaf * TimelineEvaluator.MATRIX_STRIDE;
+                MatrixKey matrixKey = new MatrixKey(leafMatrices[matrixOffset], leafMatrices[matrixOffset + 1], leafMatrices[matrixOffset + 2],
+                    leafMatrices[matrixOffset + 3], leafMatrices[matrixOffset + 4], leafMatrices[matrixOffset + 5]);
+
+                Integer matrixIndex = matrixIndices.get(matrixKey);
+                if (matrixIndex == null) {
+                    matrixIndex = matrixIndices.size();
+                    matrixIndices.put(matrixKey, matrixIndex);
+
+                    if ((matrixIndex + 1) * MATRIX_STRIDE > matrices.length) {
+                        matrices = Arrays.copyOf(matrices, matrices.length * 2);
+                    }
+
+                    System.arraycopy(leafMatrices, matrixOffset, matrices, matrixIndex * MATRIX_STRIDE, MATRIX_STRIDE);
+                }
+
+                int colorOffset = leaf * TimelineEvaluator.COLOR_TRANSFORM_STRIDE;
+                int multipliers = packBytes(leafColorTransforms[colorOffset], leafColorTransforms[colorOffset + 1], leafColorTransforms[colorOffset + 2], leafColorTransforms[colorOffset + 3]);
+                int additions = packBytes(leafColorTransforms[colorOffset + 4], leafColorTransforms[colorOffset + 5], leafColorTransforms[colorOffset + 6], 0);
+
+                Long colorKey = (long) multipliers << 32 | additions & 0xFFFFFFFFL;
+                Integer colorTransformIndex = colorTransformIndices.get(colorKey);
+                if (colorTransformIndex == null) {
+                    colorTransformIndex = colorTransformIndices.size();
+                    colorTransformIndices.put(colorKey, colorTransformIndex);
+
+                    if ((colorTransformIndex + 1) * COLOR_TRANSFORM_STRIDE > colorTransforms.length) {
+                        colorTransforms = Arrays.copyOf(colorTransforms, colorTransforms.length * 2);
+                    }
+
+                    colorTransforms[colorTransformIndex * COLOR_TRANSFORM_STRIDE] = multipliers;
+                    colorTransforms[colorTransformIndex * COLOR_TRANSFORM_STRIDE + 1] = additions;
+                }
+
+                if ((drawCount + 1) * DRAW_STRIDE > draws.length) {
+                    draws = Arrays.copyOf(draws, draws.length * 2);
+                }
+
+                int draw = drawCount++ * DRAW_STRIDE;
+                draws[draw] = leaves[leaf].getId() & 0xFFFF | (leafBlendModes[leaf] & 0xFF) << 16;
+                draws[draw + 1] = matrixIndex;
+                draws[draw + 2] = colorTransformIndex;
+            }
+        }
+
+        frameOffsets[frameCount] = drawCount;
+
+        return new BakedAnimation(
+            Source.UNKNOWN,
+            movieClip.getExportName(),
+            movieClip.getFps(),
+            frameOffsets,
+            Arrays.copyOf(draws, drawCount * DRAW_STRIDE),
+            Arrays.copyOf(matrices, matrixIndices.size() * MATRIX_STRIDE),
+            Arrays.copyOf(colorTransforms, colorTransformIndices.size() * COLOR_TRANSFORM_STRIDE)
+        );
+    }
+
+    public static BakedAnimation read(Path path) throws IOException, LoadingFaultException {
+        return read(new ByteStream(Files.readAllBytes(path)));
+    }
+
+    /**
+     * @throws LoadingFaultException if the data isn't a baked animation of the supported version, is truncated
+     *                               or refers to draws, matrices or color transforms it doesn't contain
+     */
+    public static BakedAnimation read(ByteStream stream) throws LoadingFaultException {
+        requireRemaining(stream, 2 * Integer.BYTES);
+        if (stream.readInt() != MAGIC) {
+            throw new LoadingFaultException("Not a baked animation");
+        }
+
+        int version = stream.readInt();
+        if (version != VERSION) {
+            throw new LoadingFaultException("Unsupported baked animation version: " + version);
+        }
+
+        requireRemaining(stream, 2 * Long.BYTES + 1);
+        Source source = new Source(readLong(stream), readLong(stream));
+
+        // Name length is checked beforehand, since reading past the end yields zeros instead of failing
+        int nameLength = stream.readUnsignedChar();
+        stream.skip(-1);
+        if (nameLength != 0xFF) {
+            requireRemaining(stream, 1 + nameLength);
+        }
+
+        String exportName = stream.readAscii();
+
+        requireRemaining(stream, 1 + 4 * Integer.BYTES);
+        int fps = stream.readUnsignedChar();
+        int frameCount = stream.readInt();
+        int drawCount = stream.readInt();
+        int matrixCount = stream.readInt();
+        int colorTransformCount = stream.readInt();
+
+        if (frameCount < 0 || drawCount < 0 || matrixCount < 0 || colorTransformCount < 0) {
+            throw new LoadingFaultException(String.format("Negative baked animation counts: %d frames, %d draws, %d matrices, %d color transforms",
+                frameCount, drawCount, matrixCount, colorTransformCount));
+        }
+
+        long intCount = frameCount + 1L + (long) drawCount * DRAW_STRIDE + (long) matrixCount * MATRIX_STRIDE + (long) colorTransformCount * COLOR_TRANSFORM_STRIDE;
+        requireRemaining(stream, intCount * Integer.BYTES);
+
+        int[] frameOffsets = stream.readIntArray(frameCount + 1);
+        int[] draws = stream.readIntArray(drawCount * DRAW_STRIDE);
+
+        int[] matrixBits = stream.readIntArray(matrixCount * MATRIX_STRIDE);
+        float[] matrices = new float[matrixBits.length];
+        for (int i = 0; i < matrices.length; i++) {
+            matrices[i] = Float.intBitsToFloat(matrixBits[i]);
+        }
+
+        int[] colorTransforms = stream.readIntArray(colorTransformCount * COLOR_TRANSFORM_STRIDE);
+
+        validateIndices(frameOffsets, draws, matrixCount, colorTransformCount);
+
+        return new BakedAnimation(source, exportName, fps, frameOffsets, draws, matrices, colorTransforms);
+    }
+
+    /**
+     * Writes the animation to a temporary file next to the path and moves it in place, so readers never see
+     * a partially written file.
+     */
+    public void write(Path path) throws IOException {
+        ByteStream stream = new ByteStream();
+        write(stream);
+
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryPath, stream.getData());
+
+            try {
+                Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    public void write(ByteStream stream) {
+        stream.writeInt(MAGIC);
+        stream.writeInt(VERSION);
+        writeLong(stream, source.size());
+        writeLong(stream, source.modifiedTime());
+        stream.writeAscii(exportName);
+        stream.writeUnsignedChar(fps);
+        stream.writeInt(getFrameCount());
+        stream.writeInt(getDrawCount());
+        stream.writeInt(getMatrixCount());
+        stream.writeInt(getColorTransformCount());
+
+        stream.writeIntArray(frameOffsets);
+        stream.writeIntArray(draws);
+
+        int[] matrixBits = new int[matrices.length];
+        for (int i = 0; i < matrices.length; i++) {
+            matrixBits[i] = Float.floatToRawIntBits(matrices[i]);
+        }
+
+        stream.writeIntArray(matrixBits);
+        stream.writeIntArray(colorTransforms);
+    }
+
+    /**
+     * @return animation sharing baked data, which is marked as baked from the source
+     */
+    public BakedAnimation withSource(Source source) {
+        return new BakedAnimation(source, exportName, fps, frameOffsets, draws, matrices, colorTransforms);
+    }
+
+    /**
+     * @return source the animation was baked from, {@link Source#UNKNOWN} if it wasn't set
+     */
+    public Source getSource() {
+        return source;
+    }
+
+    public String getExportName() {
+        return exportName;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    public int getFrameCount() {
+        return frameOffsets.length - 1;
+    }
+
+    public int getDrawCount() {
+        return draws.length / DRAW_STRIDE;
+    }
+
+    public int getMatrixCount() {
+        return matrices.length / MATRIX_STRIDE;
+    }
+
+    public int getColorTransformCount() {
+        return colorTransforms.length / COLOR_TRANSFORM_STRIDE;
+    }
+
+    /**
+     * @return index of the first draw of the frame
+     */
+    public int getFrameStart(int frameIndex) {
+        return frameOffsets[frameIndex];
+    }
+
+    /**
+     * @return index after the last draw of the frame
+     */
+    public int getFrameEnd(int frameIndex) {
+        return frameOffsets[frameIndex + 1];
+    }
+
+    public int getObjectId(int drawIndex) {
+        return draws[drawIndex * DRAW_STRIDE] & 0xFFFF;
+    }
+
+    public int getBlendMode(int drawIndex) {
+        return draws[drawIndex * DRAW_STRIDE] >>> 16 & 0xFF;
+    }
+
+    /**
+     * @return index of the matrix in {@link #getMatrices()}
+     */
+    public int getMatrixIndex(int drawIndex) {
+        return draws[drawIndex * DRAW_STRIDE + 1];
+    }
+
+    /**
+     * @return index of the color transform in {@link #getColorTransforms()}
+     */
+    public int getColorTransformIndex(int drawIndex) {
+        return draws[drawIndex * DRAW_STRIDE + 2];
+    }
+
+    public void getMatrix(int drawIndex, Matrix2x3 matrix) {
+        int offset = getMatrixIndex(drawIndex) * MATRIX_STRIDE;
+        matrix.set(matrices[offset], matrices[offset + 1], matrices[offset + 2], matrices[offset + 3], matrices[offset + 4], matrices[offset + 5]);
+    }
+
+    public void getColorTransform(int drawIndex, ColorTransform colorTransform) {
+        int offset = getColorTransformIndex(drawIndex) * COLOR_TRANSFORM_STRIDE;
+        int multipliers = colorTransforms[offset];
+        int additions = colorTransforms[offset + 1];
+
+        colorTransform.set(
+            multipliers & 0xFF, multipliers >>> 8 & 0xFF, multipliers >>> 16 & 0xFF, multipliers >>> 24,
+            additions & 0xFF, additions >>> 8 & 0xFF, additions >>> 16 & 0xFF
+        );
+    }
+
+    /**
+     * @return unique matrices, {@link #MATRIX_STRIDE} floats per matrix, must not be modified
+     */
+    public float[] getMatrices() {
+        return matrices;
+    }
+
+    /**
+     * @return unique packed color transforms, {@link #COLOR_TRANSFORM_STRIDE} ints per transform, must not be modified
+     */
+    public int[] getColorTransforms() {
+        return colorTransforms;
+    }
+
+    private static void requireRemaining(ByteStream stream, long length) throws LoadingFaultException {
+        if (length > stream.getRemaining()) {
+            throw new LoadingFaultException(String.format("Baked animation is truncated: expected %d more bytes at %d, but got %d",
+                length, stream.getPosition(), stream.getRemaining()));
+        }
+    }
+
+    /**
+     * Checks that frames cover draws in order and draws refer to existing matrices and color transforms,
+     * so getters never index out of baked arrays.
+     */
+    private static void validateIndices(int[] frameOffsets, int[] draws, int matrixCount, int colorTransformCount) throws LoadingFaultException {
+        int drawCount = draws.length / DRAW_STRIDE;
+        if (frameOffsets[0] != 0 || frameOffsets[frameOffsets.length - 1] != drawCount) {
+            throw new LoadingFaultException("Baked animation frames don't cover its " + drawCount + " draws");
+        }
+
+        for (int frame = 1; frame < frameOffsets.length; frame++) {
+            if (frameOffsets[frame] < frameOffsets[frame - 1]) {
+                throw new LoadingFaultException("Baked animation frame " + frame + " starts before the previous one");
+            }
+        }
+
+        for (int draw = 0; draw < draws.length; draw += DRAW_STRIDE) {
+            int matrixIndex = draws[draw + 1];
+            int colorTransformIndex = draws[draw + 2];
+            if (matrixIndex < 0 || matrixIndex >= matrixCount || colorTransformIndex < 0 || colorTransformIndex >= colorTransformCount) {
+                throw new LoadingFaultException(String.format("Baked animation draw %d refers to matrix %d and color transform %d out of %d and %d",
+                    draw / DRAW_STRIDE, matrixIndex, colorTransformIndex, matrixCount, colorTransformCount));
+            }
+        }
+    }
+
+    private static long readLong(ByteStream stream) {
+        return stream.readInt() & 0xFFFFFFFFL | (long) stream.readInt() << 32;
+    }
+
+    private static void writeLong(ByteStream stream, long value) {
+        stream.writeInt((int) value);
+        stream.writeInt((int) (value >>> 32));
+    }
+
+    private static int packBytes(int first, int second, int third, int fourth) {
+        return first & 0xFF | (second & 0xFF) << 8 | (third & 0xFF) << 16 | (fourth & 0xFF) << 24;
+    }
+
+    private record MatrixKey(float a, float b, float c, float d, float x, float y) {
+    }
+}
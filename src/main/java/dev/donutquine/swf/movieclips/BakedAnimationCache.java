@@ -0,0 +1,128 @@
+package dev.donutquine.swf.movieclips;
+
+import dev.donutquine.swf.Export;
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bakes exports of a file on first request and keeps {@link BakedAnimation baked animations} in memory and,
+ * if a directory is given, on disk, so they survive restarts.
+ *
+ * <p>Files on disk are named after exports, with characters other than lowercase letters, digits, {@code _},
+ * {@code .} and {@code -} percent-encoded, so names differing only by such characters or by case don't collide.
+ * Files store size and modification time of the source file and are baked again if the source file changed.
+ * Animations of files without a path are kept only in memory.</p>
+ *
+ * @since 1.1.7
+ */
+public final class BakedAnimationCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BakedAnimationCache.class);
+
+    private static final String FILE_EXTENSION = ".banm";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final SupercellSWF swf;
+    private final Path directory;
+    private final TimelineEvaluator evaluator;
+    private final Map<String, BakedAnimation> animations = new HashMap<>();
+
+    public BakedAnimationCache(SupercellSWF swf) {
+        this(swf, null);
+    }
+
+    /**
+     * @param directory directory of baked files or {@code null} to keep animations only in memory
+     */
+    public BakedAnimationCache(SupercellSWF swf, Path directory) {
+        this.swf = swf;
+        this.directory = directory;
+        this.evaluator = new TimelineEvaluator(swf);
+    }
+
+    public synchronized BakedAnimation get(Export export) throws UnableToFindObjectException {
+        BakedAnimation animation = animations.get(export.name());
+        if (animation != null) {
+            return animation;
+        }
+
+        BakedAnimation.Source source = getSource();
+        Path path = directory != null && source != BakedAnimation.Source.UNKNOWN ? directory.resolve(getFilename(export.name())) : null;
+        if (path != null && Files.isRegularFile(path)) {
+            try {
+                animation = BakedAnimation.read(path);
+            } catch (IOException | LoadingFaultException exception) {
+                LOGGER.warn("Unable to read baked animation {}, baking it again", path, exception);
+            }
+
+            if (animation != null && !animation.getSource().equals(source)) {
+                LOGGER.debug("Baked animation {} is stale, baking it again", path);
+                animation = null;
+            }
+        }
+
+        if (animation == null) {
+            animation = BakedAnimation.bake(evaluator, swf.getOriginalMovieClip(export.id(), export.name())).withSource(source);
+
+            if (path != null) {
+                try {
+                    Files.createDirectories(directory);
+                    animation.write(path);
+                } catch (IOException exception) {
+                    LOGGER.warn("Unable to write baked animation {}", path, exception);
+                }
+            }
+        }
+
+        animations.put(export.name(), animation);
+        return animation;
+    }
+
+    /**
+     * Forgets animations kept in memory and compiled timelines, files on disk are kept.
+     */
+    public synchronized void invalidate() {
+        animations.clear();
+        evaluator.invalidate();
+    }
+
+    private BakedAnimation.Source getSource() {
+        Path sourcePath = swf.getPath();
+        if (sourcePath == null) {
+            return BakedAnimation.Source.UNKNOWN;
+        }
+
+        try {
+            return BakedAnimation.Source.of(sourcePath);
+        } catch (IOException exception) {
+            LOGGER.warn("Unable to read attributes of {}, baked animations are kept only in memory", sourcePath, exception);
+            return BakedAnimation.Source.UNKNOWN;
+        }
+    }
+
+    /**
+     * Percent-encodes UTF-8 bytes of the name, except lowercase letters, digits, {@code _}, {@code .} and {@code -}.
+     * Uppercase letters are encoded too, so the names are unique on case-insensitive file systems.
+     */
+    private static String getFilename(String exportName) {
+        StringBuilder filename = new StringBuilder(exportName.length() + FILE_EXTENSION.length());
+        for (byte value : exportName.getBytes(StandardCharsets.UTF_8)) {
+            if (value >= 'a' && value <= 'z' || value >= '0' && value <= '9' || value == '_' || value == '.' || value == '-') {
+                filename.append((char) value);
+            } else {
+                filename.append('%').append(HEX_DIGITS[value >> 4 & 0xF]).append(HEX_DIGITS[value & 0xF]);
+            }
+        }
+
+        return filename.append(FILE_EXTENSION).toString();
+    }
+}
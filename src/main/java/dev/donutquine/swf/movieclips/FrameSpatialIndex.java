@@ -0,0 +1,366 @@
+package dev.donutquine.swf.movieclips;
+
+import dev.donutquine.math.Point;
+import dev.donutquine.math.ReadonlyRect;
+import dev.donutquine.math.Rect;
+import dev.donutquine.swf.BoundsCache;
+import dev.donutquine.swf.DisplayObjectOriginal;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
+import dev.donutquine.swf.shapes.ShapeOriginal;
+import dev.donutquine.swf.textfields.TextFieldOriginal;
+
+import java.util.Arrays;
+
+/**
+ * Packed R-tree over world bounds of leaves of an evaluated frame, answering rect queries and hit tests
+ * in logarithmic time.
+ *
+ * <p>Leaves are sorted by the Hilbert curve index of their centers and grouped into nodes of {@link #NODE_SIZE}
+ * entries level by level, the whole tree is kept in two primitive arrays. Leaf indices are indices of
+ * {@link TimelineEvaluator} leaves, so they follow the draw order. Leaves without bounds aren't indexed.</p>
+ *
+ * @since 1.1.7
+ */
+public final class FrameSpatialIndex {
+    public static final int NODE_SIZE = 16;
+
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    private final DisplayObjectOriginal[] leaves;
+    private final float[] matrices;
+
+    private final int itemCount;
+    // Left, top, right and bottom of every item, followed by nodes of upper levels, the root is the last one
+    private final float[] boxes;
+    // Leaf indices of items and offsets of first children in boxes of upper level nodes
+    private final int[] indices;
+    // Ends of levels in boxes, starting with the item level
+    private final int[] levelBounds;
+
+    private FrameSpatialIndex(DisplayObjectOriginal[] leaves, float[] matrices, int itemCount, float[] boxes, int[] indices, int[] levelBounds) {
+        this.leaves = leaves;
+        this.matrices = matrices;
+        this.itemCount = itemCount;
+        this.boxes = boxes;
+        this.indices = indices;
+        this.levelBounds = levelBounds;
+    }
+
+    /**
+     * Indexes leaves of the frame last evaluated by the evaluator.
+     *
+     * @param bounds cache of local bounds of leaves
+     */
+    public static FrameSpatialIndex build(TimelineEvaluator evaluator, BoundsCache bounds) throws UnableToFindObjectException {
+        int leafCount = evaluator.getLeafCount();
+        DisplayObjectOriginal[] leaves = Arrays.copyOf(evaluator.getLeaves(), leafCount);
+        float[] matrices = Arrays.copyOf(evaluator.getMatrices(), leafCount * TimelineEvaluator.MATRIX_STRIDE);
+
+        float[] leafBoxes = new float[leafCount * 4];
+        int[] leafIndices = new int[leafCount];
+        int itemCount = 0;
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            ReadonlyRect local = bounds.getBounds(leaves[leaf]);
+            if (local == null) continue;
+
+            transform(local, matrices, leaf * TimelineEvaluator.MATRIX_STRIDE, leafBoxes, itemCount * 4);
+            leafIndices[itemCount] = leaf;
+
+            minX = Math.min(minX, leafBoxes[itemCount * 4]);
+            minY = Math.min(minY, leafBoxes[itemCount * 4 + 1]);
+            maxX = Math.max(maxX, leafBoxes[itemCount * 4 + 2]);
+            maxY = Math.max(maxY, leafBoxes[itemCount * 4 + 3]);
+            itemCount++;
+        }
+
+        int[] levelBounds = computeLevelBounds(itemCount);
+        int nodeCount = levelBounds[levelBounds.length - 1] / 4;
+        float[] boxes = new float[nodeCount * 4];
+        int[] indices = new int[nodeCount];
+
+        // Hilbert index in the upper half and item in the lower half, so sorting keys sorts items
+        long[] keys = new long[itemCount];
+        float width = maxX - minX, height = maxY - minY;
+        for (int item = 0; item < itemCount; item++) {
+            float centerX = (leafBoxes[item * 4] + leafBoxes[item * 4 + 2]) / 2;
+            float centerY = (leafBoxes[item * 4 + 1] + leafBoxes[item * 4 + 3]) / 2;
+            int x = width > 0 ? (int) (HILBERT_MAX * (centerX - minX) / width) : 0;
+            int y = height > 0 ? (int) (HILBERT_MAX * (centerY - minY) / height) : 0;
+
+            keys[item] = (hilbert(x, y) & 0xFFFFFFFFL) << 32 | item;
+        }
+
+        Arrays.sort(keys);
+
+        for (int position = 0; position < itemCount; position++) {
+            int item = (int) keys[position];
+            System.arraycopy(leafBoxes, item * 4, boxes, position * 4, 4);
+            indices[position] = leafIndices[item];
+        }
+
+        int position = 0;
+        for (int level = 0; level < levelBounds.length - 1; level++) {
+            int end = levelBounds[level];
+            int nodePosition = end;
+
+            while (position < end) {
+                float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+                float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+
+                indices[nodePosition / 4] = position;
+                for (int child = 0; child < NODE_SIZE && position < end; child++, position += 4) {
+                    left = Math.min(left, boxes[position]);
+                    top = Math.min(top, boxes[position + 1]);
+                    right = Math.max(right, boxes[position + 2]);
+                    bottom = Math.max(bottom, boxes[position + 3]);
+                }
+
+                boxes[nodePosition] = left;
+                boxes[nodePosition + 1] = top;
+                boxes[nodePosition + 2] = right;
+                boxes[nodePosition + 3] = bottom;
+                nodePosition += 4;
+            }
+        }
+
+        return new FrameSpatialIndex(leaves, matrices, itemCount, boxes, indices, levelBounds);
+    }
+
+    /**
+     * @return count of evaluated leaves, including ones without bounds
+     */
+    public int getLeafCount() {
+        return leaves.length;
+    }
+
+    public DisplayObjectOriginal getLeaf(int leafIndex) {
+        return leaves[leafIndex];
+    }
+
+    /**
+     * @return world bounds of the frame or {@code null} if nothing is indexed
+     */
+    public ReadonlyRect getBounds() {
+        if (itemCount == 0) return null;
+
+        int root = boxes.length - 4;
+        return new Rect(boxes[root], boxes[root + 1], boxes[root + 2], boxes[root + 3]);
+    }
+
+    /**
+     * @return indices of leaves, which world bounds intersect the rect, in draw order
+     */
+    public int[] query(ReadonlyRect rect) {
+        return search(rect.getLeft(), rect.getTop(), rect.getRight(), rect.getBottom());
+    }
+
+    /**
+     * @return indices of leaves, which world bounds contain the point, in draw order
+     */
+    public int[] query(Point point) {
+        return search(point.getX(), point.getY(), point.getX(), point.getY());
+    }
+
+    /**
+     * Finds the topmost leaf under the point. Shapes are tested against their triangles and text fields
+     * against their bounds, other leaves are skipped.
+     *
+     * @return index of the leaf or -1 if there is none
+     */
+    public int hitTest(Point point) {
+        int[] candidates = query(point);
+        for (int i = candidates.length - 1; i >= 0; i--) {
+            int leaf = candidates[i];
+            if (hitTest(leaf, point.getX(), point.getY())) {
+                return leaf;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean hitTest(int leaf, float x, float y) {
+        int offset = leaf * TimelineEvaluator.MATRIX_STRIDE;
+        float a = matrices[offset], b = matrices[offset + 1], c = matrices[offset + 2], d = matrices[offset + 3];
+        float determinant = a * d - b * c;
+        if (determinant == 0) return false;
+
+        float dx = x - matrices[offset + 4];
+        float dy = y - matrices[offset + 5];
+        float localX = (dx * d - dy * c) / determinant;
+        float localY = (dy * a - dx * b) / determinant;
+
+        DisplayObjectOriginal object = leaves[leaf];
+        if (object instanceof ShapeOriginal shape) {
+            for (ShapeDrawBitmapCommand command : shape.getCommands()) {
+                for (int i = 1; i < command.getVertexCount() - 1; i++) {
+                    if (isInTriangle(localX, localY, command.getX(0), command.getY(0), command.getX(i), command.getY(i), command.getX(i + 1), command.getY(i + 1))) {
+                        return true;
+                    }
+                }
+            }
+        } else if (object instanceof TextFieldOriginal textField) {
+            return textField.getBounds().containsPoint(localX, localY);
+        }
+
+        return false;
+    }
+
+    private int[] search(float left, float top, float right, float bottom) {
+        if (itemCount == 0) return new int[0];
+
+        int[] result = new int[16];
+        int resultCount = 0;
+
+        int[] stack = new int[16];
+        int stackSize = 0;
+
+        int nodePosition = boxes.length - 4;
+        while (true) {
+            int end = Math.min(nodePosition + NODE_SIZE * 4, getLevelEnd(nodePosition));
+            for (int position = nodePosition; position < end; position += 4) {
+                if (right < boxes[position] || bottom < boxes[position + 1] || left > boxes[position + 2] || top > boxes[position + 3]) continue;
+
+                int index = indices[position / 4];
+                if (nodePosition >= itemCount * 4) {
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize * 2);
+                    }
+
+                    stack[stackSize++] = index;
+                } else {
+                    if (resultCount == result.length) {
+                        result = Arrays.copyOf(result, resultCount * 2);
+                    }
+
+                    result[resultCount++] = index;
+                }
+            }
+
+            if (stackSize == 0) break;
+            nodePosition = stack[--stackSize];
+        }
+
+        result = Arrays.copyOf(result, resultCount);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int getLevelEnd(int position) {
+        for (int levelBound : levelBounds) {
+            if (levelBound > position) {
+                return levelBound;
+            }
+        }
+
+        return levelBounds[levelBounds.length - 1];
+    }
+
+    private static int[] computeLevelBounds(int itemCount) {
+        int[] levelBounds = new int[8];
+        int levelCount = 0;
+
+        int count = itemCount;
+        int nodeCount = itemCount;
+        levelBounds[levelCount++] = nodeCount * 4;
+        while (count > 1) {
+            count = (count + NODE_SIZE - 1) / NODE_SIZE;
+            nodeCount += count;
+
+            if (levelCount == levelBounds.length) {
+                levelBounds = Arrays.copyOf(levelBounds, levelCount * 2);
+            }
+
+            levelBounds[levelCount++] = nodeCount * 4;
+        }
+
+        return Arrays.copyOf(levelBounds, levelCount);
+    }
+
+    private static void transform(ReadonlyRect rect, float[] matrices, int offset, float[] target, int targetOffset) {
+        float a = matrices[offset], b = matrices[offset + 1], c = matrices[offset + 2], d = matrices[offset + 3];
+        float x = matrices[offset + 4], y = matrices[offset + 5];
+
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            float localX = (corner & 1) == 0 ? rect.getLeft() : rect.getRight();
+            float localY = (corner & 2) == 0 ? rect.getTop() : rect.getBottom();
+
+            float worldX = localX * a + localY * c + x;
+            float worldY = localX * b + localY * d + y;
+            left = Math.min(left, worldX);
+            top = Math.min(top, worldY);
+            right = Math.max(right, worldX);
+            bottom = Math.max(bottom, worldY);
+        }
+
+        target[targetOffset] = left;
+        target[targetOffset + 1] = top;
+        target[targetOffset + 2] = right;
+        target[targetOffset + 3] = bottom;
+    }
+
+    private static boolean isInTriangle(float x, float y, float x0, float y0, float x1, float y1, float x2, float y2) {
+        float d0 = (x - x1) * (y0 - y1) - (x0 - x1) * (y - y1);
+        float d1 = (x - x2) * (y1 - y2) - (x1 - x2) * (y - y2);
+        float d2 = (x - x0) * (y2 - y0) - (x2 - x0) * (y - y0);
+
+        boolean hasNegative = d0 < 0 || d1 < 0 || d2 < 0;
+        boolean hasPositive = d0 > 0 || d1 > 0 || d2 > 0;
+        return !(hasNegative && hasPositive);
+    }
+
+    /**
+     * @return index of the point on the Hilbert curve of order 16
+     */
+    private static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int nextA = a | (b >> 1);
+        int nextB = (a >> 1) ^ a;
+        int nextC = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+        int nextD = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+        a = nextA; b = nextB; c = nextC; d = nextD;
+        nextA = ((a & (a >> 2)) ^ (b & (b >> 2)));
+        nextB = ((a & (b >> 2)) ^ (b & ((a ^ b) >> 2)));
+        nextC ^= ((a & (c >> 2)) ^ (b & (d >> 2)));
+        nextD ^= ((b & (c >> 2)) ^ ((a ^ b) & (d >> 2)));
+
+        a = nextA; b = nextB; c = nextC; d = nextD;
+        nextA = ((a & (a >> 4)) ^ (b & (b >> 4)));
+        nextB = ((a & (b >> 4)) ^ (b & ((a ^ b) >> 4)));
+        nextC ^= ((a & (c >> 4)) ^ (b & (d >> 4)));
+        nextD ^= ((b & (c >> 4)) ^ ((a ^ b) & (d >> 4)));
+
+        a = nextA; b = nextB; c = nextC; d = nextD;
+        nextC ^= ((a & (c >> 8)) ^ (b & (d >> 8)));
+        nextD ^= ((b & (c >> 8)) ^ ((a ^ b) & (d >> 8)));
+
+        a = nextC ^ (nextC >> 1);
+        b = nextD ^ (nextD >> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return (i1 << 1) | i0;
+    }
+}
@@ -3,6 +3,7 @@ package dev.donutquine.swf.movieclips;
 import com.supercell.swf.FBMovieClipFrame;
 import com.supercell.swf.FBResources;
 import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.DisplayObjectOriginal;
 import dev.donutquine.swf.Savable;
 import dev.donutquine.swf.Tag;
 
@@ -17,6 +18,9 @@ public class MovieClipFrame implements Savable {
 
     private List<MovieClipFrameElement> elements;
 
+    // Incremented on every change of elements, lets caches of timelines rebuild the frame
+    private int version;
+
     public MovieClipFrame() {
     }
 
@@ -87,7 +91,24 @@ public class MovieClipFrame implements Savable {
     }
 
     public void setElements(List<MovieClipFrameElement> elements) {
+        loadElements(elements);
+        DisplayObjectOriginal.countEdit();
+    }
+
+    /**
+     * Sets elements decoded while loading the clip, which isn't counted as an edit.
+     */
+    void loadElements(List<MovieClipFrameElement> elements) {
         this.elements = elements;
+        this.version++;
+    }
+
+    /**
+     * @return count of changes of elements, see {@link #setElements(List)}
+     * @since 1.1.7
+     */
+    public int getVersion() {
+        return version;
     }
 
     public static Builder builder() {
@@ -25,7 +25,7 @@ public class MovieClipModifierOriginal extends DisplayObjectOriginal {
 
     public MovieClipModifierOriginal(FBMovieClipModifier fb) {
         id = fb.id();
-        tag = Tag.values()[fb.tag()];
+        tag = Tag.getByOrdinal(fb.tag());
     }
 
     public int load(ByteStream stream, Tag tag) {
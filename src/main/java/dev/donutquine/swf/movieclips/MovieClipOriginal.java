@@ -20,6 +20,13 @@ import java.util.Objects;
 public class MovieClipOriginal extends DisplayObjectOriginal {
     private static final Logger LOGGER = LoggerFactory.getLogger(MovieClipOriginal.class);
 
+    /**
+     * Handlers of the movie clip frame level tags. Register a handler here to support a custom tag.
+     *
+     * @since 1.1.7
+     */
+    public static final TagRegistry<MovieClipOriginal> TAG_HANDLERS = createTagRegistry();
+
     private Tag tag;
 
     private String exportName;
@@ -35,6 +42,14 @@ public class MovieClipOriginal extends DisplayObjectOriginal {
 
     private DisplayObjectOriginal[] timelineChildren;
 
+    // Incremented on every change of children, frame list or matrix bank, lets caches of timelines rebuild the clip
+    private int version;
+
+    // SC1 loading state, only available inside tag handlers
+    private short[] frameElements;
+    private int loadedFrames;
+    private int usedElements;
+
     public MovieClipOriginal() { }
 
     public MovieClipOriginal(FBMovieClip fb, FBResources resources, ByteBuffer frameDataBuffer) {
@@ -71,7 +86,7 @@ public class MovieClipOriginal extends DisplayObjectOriginal {
             ExternalMovieClipFrameElementDecoder decoder = new ExternalMovieClipFrameElementDecoder();
             List<List<MovieClipFrameElement>> frameElements = decoder.decodeMovieClipFrames(frameDataBuffer, frameDataOffset);
             for (int i = 0; i < frames.size(); i++) {
-                frames.get(i).setElements(frameElements.get(i));
+                frames.get(i).loadElements(frameElements.get(i));
             }
         }
 
@@ -163,68 +178,92 @@ public class MovieClipOriginal extends DisplayObjectOriginal {
             children.add(new MovieClipChild(childIds[i], childBlends[i], childNames[i]));
         }
 
-        int loadedCommands = 0;
-        int usedElements = 0;
+        this.frameElements = frameElements;
+        this.loadedFrames = 0;
+        this.usedElements = 0;
 
-        while (true) {
-            int frameTag = stream.readUnsignedChar();
-            int length = stream.readInt();
+        try {
+            while (true) {
+                int frameTag = stream.readUnsignedChar();
+                int length = stream.readInt();
 
-            if (length < 0) {
-                throw new NegativeTagLengthException(String.format("Negative tag length in MovieClip. Tag %d, %s", frameTag, filename));
-            }
+                if (length < 0) {
+                    throw new NegativeTagLengthException(String.format("Negative tag length in MovieClip. Tag %d, %s", frameTag, filename));
+                }
 
-            Tag tagValue = Tag.values()[frameTag];
-            switch (tagValue) {
-                case EOF -> {
+                if (frameTag == Tag.EOF.ordinal()) {
                     return this.id;
                 }
-                case MOVIE_CLIP_FRAME,
-                     MOVIE_CLIP_FRAME_2 -> {  // TAG_MOVIE_CLIP_FRAME no longer supported
-                    MovieClipFrame frame = this.frames.get(loadedCommands++);
-                    int elementCount = frame.load(stream, tagValue);
-
-                    if (tagValue != Tag.MOVIE_CLIP_FRAME) {
-                        if (frameElements == null) {
-                            throw new IllegalStateException("Frame elements cannot be null.");
-                        }
-
-                        List<MovieClipFrameElement> elements = new ArrayList<>(elementCount);
-                        for (int i = 0; i < elementCount; i++) {
-                            elements.add(new MovieClipFrameElement(frameElements[usedElements * 3] & 0xFFFF, frameElements[usedElements * 3 + 1] & 0xFFFF, frameElements[usedElements * 3 + 2] & 0xFFFF));
-
-                            usedElements++;
-                        }
-                        frame.setElements(elements);
-                    }
-                }
-                case SCALING_GRID -> {
-                    if (this.scalingGrid != null) {
-                        throw new LoadingFaultException("multiple scaling grids, id=" + this.id);
-                    }
 
-                    float left = stream.readTwip();
-                    float top = stream.readTwip();
-                    float width = stream.readTwip();
-                    float height = stream.readTwip();
-                    float right = MathHelper.round(left + width, 2);
-                    float bottom = MathHelper.round(top + height, 2);
+                TagHandler<MovieClipOriginal> handler = TAG_HANDLERS.get(frameTag);
+                if (handler != null) {
+                    handler.handle(this, stream, frameTag, length);
+                    continue;
+                }
 
-                    this.scalingGrid = new Rect(left, top, right, bottom);
+                try {
+                    throw new UnsupportedTagException(String.format("Unknown tag %d in MovieClip, %s", frameTag, filename));
+                } catch (UnsupportedTagException exception) {
+                    LOGGER.error(exception.getMessage(), exception);
                 }
-                case MATRIX_BANK_INDEX -> // (a1 + 54) & 0x80FF | ((ZN12SupercellSWF16readUnsignedCharEv(a2) & 0x7F) << 8);
-                    this.matrixBankIndex = stream.readUnsignedChar();
-                default -> {
-                    try {
-                        throw new UnsupportedTagException(String.format("Unknown tag %d in MovieClip, %s", frameTag, filename));
-                    } catch (UnsupportedTagException exception) {
-                        LOGGER.error(exception.getMessage(), exception);
-                    }
+
+                if (length > 0) {
+                    stream.skip(length);
                 }
             }
+        } finally {
+            this.frameElements = null;
         }
     }
 
+    private static TagRegistry<MovieClipOriginal> createTagRegistry() {
+        TagRegistry<MovieClipOriginal> registry = new TagRegistry<>();
+
+        // TAG_MOVIE_CLIP_FRAME no longer supported
+        registry.register(MovieClipOriginal::readFrameTag, Tag.MOVIE_CLIP_FRAME, Tag.MOVIE_CLIP_FRAME_2);
+        registry.register(MovieClipOriginal::readScalingGridTag, Tag.SCALING_GRID);
+        // (a1 + 54) & 0x80FF | ((ZN12SupercellSWF16readUnsignedCharEv(a2) & 0x7F) << 8);
+        registry.register((movieClip, stream, tag, length) -> movieClip.matrixBankIndex = stream.readUnsignedChar(), Tag.MATRIX_BANK_INDEX);
+
+        return registry;
+    }
+
+    private void readFrameTag(ByteStream stream, int tag, int length) {
+        Tag tagValue = Tag.getByOrdinal(tag);
+
+        MovieClipFrame frame = this.frames.get(this.loadedFrames++);
+        int elementCount = frame.load(stream, tagValue);
+
+        if (tagValue != Tag.MOVIE_CLIP_FRAME) {
+            if (this.frameElements == null) {
+                throw new IllegalStateException("Frame elements cannot be null.");
+            }
+
+            List<MovieClipFrameElement> elements = new ArrayList<>(elementCount);
+            for (int i = 0; i < elementCount; i++) {
+                elements.add(new MovieClipFrameElement(frameElements[usedElements * 3] & 0xFFFF, frameElements[usedElements * 3 + 1] & 0xFFFF, frameElements[usedElements * 3 + 2] & 0xFFFF));
+
+                usedElements++;
+            }
+            frame.loadElements(elements);
+        }
+    }
+
+    private void readScalingGridTag(ByteStream stream, int tag, int length) throws LoadingFaultException {
+        if (this.scalingGrid != null) {
+            throw new LoadingFaultException("multiple scaling grids, id=" + this.id);
+        }
+
+        float left = stream.readTwip();
+        float top = stream.readTwip();
+        float width = stream.readTwip();
+        float height = stream.readTwip();
+        float right = MathHelper.round(left + width, 2);
+        float bottom = MathHelper.round(top + height, 2);
+
+        this.scalingGrid = new Rect(left, top, right, bottom);
+    }
+
     @Override
     public void save(ByteStream stream) {
         stream.writeShort(this.id);
@@ -300,12 +339,36 @@ public class MovieClipOriginal extends DisplayObjectOriginal {
         return fps;
     }
 
+    /**
+     * Returns the frame list, {@link #markModified()} must be called after changing it.
+     */
     public List<MovieClipFrame> getFrames() {
         return frames;
     }
 
+    /**
+     * Notes that the frame list has been changed in place.
+     *
+     * @since 1.1.7
+     */
+    public void markModified() {
+        this.version++;
+        DisplayObjectOriginal.countEdit();
+    }
+
+    /**
+     * @return count of changes of children, frame list and matrix bank index, changes of frames themselves are
+     * counted by {@link MovieClipFrame#getVersion()}
+     * @since 1.1.7
+     */
+    public int getVersion() {
+        return version;
+    }
+
     public void setChildren(List<MovieClipChild> children) {
         this.children = children;
+        this.timelineChildren = null;
+        markModified();
     }
 
     public List<MovieClipChild> getChildren() {
@@ -326,6 +389,7 @@ public class MovieClipOriginal extends DisplayObjectOriginal {
 
     public void setMatrixBankIndex(short matrixBankIndex) {
         this.matrixBankIndex = matrixBankIndex;
+        markModified();
     }
 
     public DisplayObjectOriginal[] getTimelineChildren() {
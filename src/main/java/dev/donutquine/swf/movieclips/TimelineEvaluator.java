@@ -0,0 +1,339 @@
+package dev.donutquine.swf.movieclips;
+
+import dev.donutquine.math.MathHelper;
+import dev.donutquine.swf.ColorTransform;
+import dev.donutquine.swf.DisplayObjectOriginal;
+import dev.donutquine.swf.Export;
+import dev.donutquine.swf.Matrix2x3;
+import dev.donutquine.swf.ScMatrixBank;
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates a frame of a movie clip tree into flat arrays of leaf display objects in draw order along with
+ * their world matrices, concatenated color transforms and blend modes.
+ *
+ * <p>Timelines of movie clips are compiled to arrays on first use, so evaluation doesn't walk frame lists
+ * and doesn't allocate once the output arrays have grown to the size of the tree. Compiled timelines keep
+ * versions of clips and frames they were compiled from and are compiled again after those are changed.
+ * Leaves are all objects except movie clips: shapes, text fields and movie clip modifiers. Scaling grids
+ * aren't applied.</p>
+ *
+ * <p>Nested clips play their own timelines, at time {@code t} a clip shows frame {@code floor(t * fps)} modulo
+ * its frame count. The evaluator isn't thread-safe, arrays are overwritten by the next evaluation.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TimelineEvaluator {
+    /**
+     * Floats per matrix in {@link #getMatrices()}: a, b, c, d, x, y.
+     */
+    public static final int MATRIX_STRIDE = 6;
+    /**
+     * Ints per color transform in {@link #getColorTransforms()}: red, green and blue multipliers, alpha,
+     * red, green and blue additions.
+     */
+    public static final int COLOR_TRANSFORM_STRIDE = 7;
+
+    // Guards against clips containing themselves
+    private static final int MAX_DEPTH = 64;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final float[] IDENTITY_MATRIX = {1, 0, 0, 1, 0, 0};
+    private static final int[] IDENTITY_COLOR_TRANSFORM = {255, 255, 255, 255, 0, 0, 0};
+
+    private final SupercellSWF swf;
+    private final Map<MovieClipOriginal, CompiledClip> compiledClips = new IdentityHashMap<>();
+
+    private DisplayObjectOriginal[] leaves = new DisplayObjectOriginal[INITIAL_CAPACITY];
+    private float[] matrices = new float[INITIAL_CAPACITY * MATRIX_STRIDE];
+    private int[] colorTransforms = new int[INITIAL_CAPACITY * COLOR_TRANSFORM_STRIDE];
+    private int[] blendModes = new int[INITIAL_CAPACITY];
+    private int leafCount;
+
+    // Transforms of every depth of the clip being walked
+    private final float[] matrixStack = new float[(MAX_DEPTH + 1) * MATRIX_STRIDE];
+    private final int[] colorTransformStack = new int[(MAX_DEPTH + 1) * COLOR_TRANSFORM_STRIDE];
+
+    public TimelineEvaluator(SupercellSWF swf) {
+        this.swf = swf;
+    }
+
+    /**
+     * Evaluates a frame of the exported movie clip.
+     *
+     * @return count of leaves
+     */
+    public int evaluate(Export export, int frameIndex) throws UnableToFindObjectException {
+        return evaluate(swf.getOriginalMovieClip(export.id(), export.name()), frameIndex);
+    }
+
+    /**
+     * Evaluates a frame of the movie clip, nested clips are evaluated at the time of the frame.
+     *
+     * @param frameIndex frame of the clip, wrapped around its frame count
+     * @return count of leaves
+     */
+    public int evaluate(MovieClipOriginal movieClip, int frameIndex) throws UnableToFindObjectException {
+        CompiledClip clip = compile(movieClip);
+
+        double time = clip.fps > 0 ? (double) frameIndex / clip.fps : 0;
+        return evaluate(clip, Math.floorMod(frameIndex, clip.frameCount), time);
+    }
+
+    /**
+     * Evaluates the movie clip tree at the time.
+     *
+     * @param time time in seconds
+     * @return count of leaves
+     */
+    public int evaluateTime(MovieClipOriginal movieClip, double time) throws UnableToFindObjectException {
+        CompiledClip clip = compile(movieClip);
+        return evaluate(clip, clip.getFrameAt(time), time);
+    }
+
+    /**
+     * Forgets compiled timelines, e.g. to free memory of clips that aren't evaluated anymore.
+     */
+    public void invalidate() {
+        compiledClips.clear();
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * @return leaves in draw order, valid up to {@link #getLeafCount()}
+     */
+    public DisplayObjectOriginal[] getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * @return world matrices of leaves, {@link #MATRIX_STRIDE} floats per leaf
+     */
+    public float[] getMatrices() {
+        return matrices;
+    }
+
+    /**
+     * @return concatenated color transforms of leaves, {@link #COLOR_TRANSFORM_STRIDE} ints per leaf
+     */
+    public int[] getColorTransforms() {
+        return colorTransforms;
+    }
+
+    /**
+     * @return blend modes of leaves, inherited from the nearest clip child with a non-zero blend mode
+     */
+    public int[] getBlendModes() {
+        return blendModes;
+    }
+
+    public void getMatrix(int leafIndex, Matrix2x3 matrix) {
+        int offset = leafIndex * MATRIX_STRIDE;
+        matrix.set(matrices[offset], matrices[offset + 1], matrices[offset + 2], matrices[offset + 3], matrices[offset + 4], matrices[offset + 5]);
+    }
+
+    public void getColorTransform(int leafIndex, ColorTransform colorTransform) {
+        int offset = leafIndex * COLOR_TRANSFORM_STRIDE;
+        colorTransform.set(colorTransforms[offset], colorTransforms[offset + 1], colorTransforms[offset + 2], colorTransforms[offset + 3], colorTransforms[offset + 4], colorTransforms[offset + 5], colorTransforms[offset + 6]);
+    }
+
+    private int evaluate(CompiledClip clip, int frameIndex, double time) throws UnableToFindObjectException {
+        leafCount = 0;
+
+        System.arraycopy(IDENTITY_MATRIX, 0, matrixStack, 0, MATRIX_STRIDE);
+        System.arraycopy(IDENTITY_COLOR_TRANSFORM, 0, colorTransformStack, 0, COLOR_TRANSFORM_STRIDE);
+
+        walk(clip, frameIndex, time, 0, 0);
+        return leafCount;
+    }
+
+    private void walk(CompiledClip clip, int frameIndex, double time, int depth, int parentBlendMode) throws UnableToFindObjectException {
+        if (depth >= MAX_DEPTH) {
+            throw new IllegalStateException("Movie clip tree is deeper than " + MAX_DEPTH + ", movie clip id " + clip.id);
+        }
+
+        int parentMatrix = depth * MATRIX_STRIDE;
+        int parentColorTransform = depth * COLOR_TRANSFORM_STRIDE;
+        int matrix = parentMatrix + MATRIX_STRIDE;
+        int colorTransform = parentColorTransform + COLOR_TRANSFORM_STRIDE;
+
+        if (clip.isFrameModified(frameIndex)) {
+            clip = recompile(clip.movieClip);
+        }
+
+        int[] elements = clip.elements;
+        for (int element = clip.frameOffsets[frameIndex]; element < clip.frameOffsets[frameIndex + 1]; element += 3) {
+            int childIndex = elements[element];
+            if (childIndex >= clip.children.length) continue;
+
+            concatenateMatrix(clip.matrixBank, elements[element + 1], parentMatrix, matrix);
+            concatenateColorTransform(clip.matrixBank, elements[element + 2], parentColorTransform, colorTransform);
+
+            int blendMode = clip.blendModes[childIndex] != 0 ? clip.blendModes[childIndex] : parentBlendMode;
+
+            DisplayObjectOriginal child = clip.children[childIndex];
+            if (child instanceof MovieClipOriginal movieClip) {
+                CompiledClip childClip = compile(movieClip);
+                walk(childClip, childClip.getFrameAt(time), time, depth + 1, blendMode);
+            } else {
+                addLeaf(child, matrix, colorTransform, blendMode);
+            }
+        }
+    }
+
+    private void addLeaf(DisplayObjectOriginal leaf, int matrix, int colorTransform, int blendMode) {
+        if (leafCount == leaves.length) {
+            int capacity = leafCount * 2;
+            leaves = Arrays.copyOf(leaves, capacity);
+            matrices = Arrays.copyOf(matrices, capacity * MATRIX_STRIDE);
+            colorTransforms = Arrays.copyOf(colorTransforms, capacity * COLOR_TRANSFORM_STRIDE);
+            blendModes = Arrays.copyOf(blendModes, capacity);
+        }
+
+        leaves[leafCount] = leaf;
+        System.arraycopy(matrixStack, matrix, matrices, leafCount * MATRIX_STRIDE, MATRIX_STRIDE);
+        System.arraycopy(colorTransformStack, colorTransform, colorTransforms, leafCount * COLOR_TRANSFORM_STRIDE, COLOR_TRANSFORM_STRIDE);
+        blendModes[leafCount] = blendMode;
+        leafCount++;
+    }
+
+    /**
+     * Writes the local matrix multiplied by the parent one, see {@link Matrix2x3#multiply(Matrix2x3)}.
+     */
+    private void concatenateMatrix(ScMatrixBank bank, int matrixIndex, int parent, int target) {
+        float[] stack = matrixStack;
+        if (matrixIndex >= bank.getMatrixCount()) {
+            System.arraycopy(stack, parent, stack, target, MATRIX_STRIDE);
+            return;
+        }
+
+        Matrix2x3 local = bank.getMatrix(matrixIndex);
+        float a = local.getA(), b = local.getB(), c = local.getC(), d = local.getD(), x = local.getX(), y = local.getY();
+        float pa = stack[parent], pb = stack[parent + 1], pc = stack[parent + 2], pd = stack[parent + 3];
+
+        stack[target] = a * pa + b * pc;
+        stack[target + 1] = a * pb + b * pd;
+        stack[target + 2] = c * pa + d * pc;
+        stack[target + 3] = c * pb + d * pd;
+        stack[target + 4] = x * pa + y * pc + stack[parent + 4];
+        stack[target + 5] = x * pb + y * pd + stack[parent + 5];
+    }
+
+    /**
+     * Writes the local color transform multiplied by the parent one, see {@link ColorTransform#multiply(ColorTransform)}.
+     */
+    private void concatenateColorTransform(ScMatrixBank bank, int colorTransformIndex, int parent, int target) {
+        int[] stack = colorTransformStack;
+        if (colorTransformIndex >= bank.getColorTransformCount()) {
+            System.arraycopy(stack, parent, stack, target, COLOR_TRANSFORM_STRIDE);
+            return;
+        }
+
+        ColorTransform local = bank.getColorTransform(colorTransformIndex);
+        stack[target] = multiplyChannel(local.getRedMultiplier(), stack[parent]);
+        stack[target + 1] = multiplyChannel(local.getGreenMultiplier(), stack[parent + 1]);
+        stack[target + 2] = multiplyChannel(local.getBlueMultiplier(), stack[parent + 2]);
+        stack[target + 3] = multiplyChannel(local.getAlpha(), stack[parent + 3]);
+        stack[target + 4] = MathHelper.clamp(local.getRedAddition() + stack[parent + 4], 0, 255);
+        stack[target + 5] = MathHelper.clamp(local.getGreenAddition() + stack[parent + 5], 0, 255);
+        stack[target + 6] = MathHelper.clamp(local.getBlueAddition() + stack[parent + 6], 0, 255);
+    }
+
+    private static int multiplyChannel(int value, int multiplier) {
+        return (int) MathHelper.clamp(value * multiplier / 255f, 0, 255);
+    }
+
+    /**
+     * Returns the compiled timeline, compiling it again if the clip has been changed. Changes of frames
+     * are checked when they are walked.
+     */
+    private CompiledClip compile(MovieClipOriginal movieClip) throws UnableToFindObjectException {
+        CompiledClip clip = compiledClips.get(movieClip);
+        if (clip == null || clip.version != movieClip.getVersion() || clip.frameVersions.length != movieClip.getFrames().size()) {
+            clip = recompile(movieClip);
+        }
+
+        return clip;
+    }
+
+    private CompiledClip recompile(MovieClipOriginal movieClip) throws UnableToFindObjectException {
+        CompiledClip clip = new CompiledClip(movieClip, swf);
+        compiledClips.put(movieClip, clip);
+        return clip;
+    }
+
+    private static final class CompiledClip {
+        private final MovieClipOriginal movieClip;
+        private final int version;
+        private final int[] frameVersions;
+        private final int id;
+        private final int fps;
+        private final int frameCount;
+        private final ScMatrixBank matrixBank;
+        private final DisplayObjectOriginal[] children;
+        private final int[] blendModes;
+        // Child index, matrix index and color transform index of every element of all frames
+        private final int[] elements;
+        // Offsets of frames in elements, with the element array length as the last one
+        private final int[] frameOffsets;
+
+        private CompiledClip(MovieClipOriginal movieClip, SupercellSWF swf) throws UnableToFindObjectException {
+            this.movieClip = movieClip;
+            this.version = movieClip.getVersion();
+            this.id = movieClip.getId();
+            this.fps = movieClip.getFps();
+            this.matrixBank = swf.getMatrixBank(movieClip.getMatrixBankIndex());
+            this.children = movieClip.createTimelineChildren(swf);
+
+            List<MovieClipChild> clipChildren = movieClip.getChildren();
+            this.blendModes = new int[clipChildren.size()];
+            for (int i = 0; i < blendModes.length; i++) {
+                blendModes[i] = clipChildren.get(i).blend();
+            }
+
+            List<MovieClipFrame> frames = movieClip.getFrames();
+            this.frameCount = Math.max(1, frames.size());
+            this.frameOffsets = new int[frameCount + 1];
+            this.frameVersions = new int[frames.size()];
+
+            int elementCount = 0;
+            for (MovieClipFrame frame : frames) {
+                elementCount += frame.getElementCount();
+            }
+
+            this.elements = new int[elementCount * 3];
+
+            int offset = 0;
+            for (int i = 0; i < frames.size(); i++) {
+                frameOffsets[i] = offset;
+                frameVersions[i] = frames.get(i).getVersion();
+                for (MovieClipFrameElement element : frames.get(i).getElements()) {
+                    elements[offset++] = element.childIndex();
+                    elements[offset++] = element.matrixIndex();
+                    elements[offset++] = element.colorTransformIndex();
+                }
+            }
+
+            frameOffsets[frameCount] = offset;
+        }
+
+        private boolean isFrameModified(int frameIndex) {
+            return frameIndex < frameVersions.length && movieClip.getFrames().get(frameIndex).getVersion() != frameVersions[frameIndex];
+        }
+
+        private int getFrameAt(double time) {
+            if (fps == 0) return 0;
+
+            return Math.floorMod((long) Math.floor(time * fps + 1e-6), frameCount);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.supercell.swf.FBResources;
 import com.supercell.swf.FBShapeDrawBitmapCommand;
 import com.supercell.swf.FBShapePoint;
 import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.DisplayObjectOriginal;
 import dev.donutquine.swf.Savable;
 import dev.donutquine.swf.Tag;
 import dev.donutquine.swf.exceptions.UnsupportedTagException;
@@ -20,7 +21,17 @@ public class ShapeDrawBitmapCommand implements Savable {
     private Tag tag;
 
     private int textureIndex;
-    private List<ShapePoint> shapePoints;
+
+    private ShapePointBuffer points;
+    private int pointOffset;
+    private int pointCount;
+    // Points may be referenced by several commands of FlatBuffers files, they're copied on the first change
+    private boolean isPointsShared;
+    // Count of points owned by the command in the buffer, loading fewer points reuses the range
+    private int pointCapacity;
+
+    // Incremented on every change of points or texture, lets shapes invalidate cached geometry
+    private int version;
 
     /**
      * @since 1.0.0
@@ -28,6 +39,14 @@ public class ShapeDrawBitmapCommand implements Savable {
     public ShapeDrawBitmapCommand() {
     }
 
+    /**
+     * @param points buffer, which points are appended to on {@link #load(ByteStream, Tag)}
+     * @since 1.1.7
+     */
+    public ShapeDrawBitmapCommand(ShapePointBuffer points) {
+        this.points = points;
+    }
+
     /**
      * @since 1.0.9
      */
@@ -50,7 +69,16 @@ public class ShapeDrawBitmapCommand implements Savable {
         }
 
         this.textureIndex = textureIndex;
-        this.shapePoints = new ArrayList<>(points);
+
+        this.points = new ShapePointBuffer(points.size());
+        this.pointOffset = this.points.allocate(points.size());
+        this.pointCount = points.size();
+        this.pointCapacity = this.pointCount;
+        for (int i = 0; i < this.pointCount; i++) {
+            ShapePoint point = points.get(i);
+            this.points.setXY(this.pointOffset + i, point.getX(), point.getY());
+            this.points.setUV(this.pointOffset + i, point.getU(), point.getV());
+        }
 
         this.tag = determineTag();
     }
@@ -62,17 +90,38 @@ public class ShapeDrawBitmapCommand implements Savable {
 //        unk = fb.unknown0();
         textureIndex = fb.textureIndex();
 
-        int vertexCount = fb.pointCount();
+        pointCount = fb.pointCount();
+        points = new ShapePointBuffer(pointCount);
+        pointOffset = points.allocate(pointCount);
+        pointCapacity = pointCount;
 
-        shapePoints = new ArrayList<>(vertexCount);
-        for (int i = 0; i < vertexCount; i++) {
-            FBShapePoint sbPoint = resources.shapePoints(fb.startingPointIndex() + i);
-            shapePoints.add(i, new ShapePoint(sbPoint));
+        FBShapePoint fbPoint = new FBShapePoint();
+        for (int i = 0; i < pointCount; i++) {
+            resources.shapePoints(fbPoint, fb.startingPointIndex() + i);
+            points.setXY(pointOffset + i, fbPoint.x(), fbPoint.y());
+            points.setUV(pointOffset + i, fbPoint.u(), fbPoint.v());
         }
 
         this.tag = determineTag();
     }
 
+    /**
+     * Creates a command referring to points of the file without copying them.
+     *
+     * @param points points of the file, see {@link ShapePointBuffer#fromFlatBuffers(FBResources)}
+     * @since 1.1.7
+     */
+    public ShapeDrawBitmapCommand(FBShapeDrawBitmapCommand fb, ShapePointBuffer points) {
+        this.textureIndex = fb.textureIndex();
+
+        this.points = points;
+        this.pointOffset = fb.startingPointIndex();
+        this.pointCount = fb.pointCount();
+        this.isPointsShared = true;
+
+        this.tag = determineTag();
+    }
+
     /**
      * @since 1.0.0
      */
@@ -81,6 +130,11 @@ public class ShapeDrawBitmapCommand implements Savable {
 
         this.textureIndex = stream.readUnsignedChar();
 
+        // Reloading replaces a command, which may already be in computed bounds
+        if (this.version++ != 0) {
+            DisplayObjectOriginal.countEdit();
+        }
+
         int vertexCount = 4;
         if (tag != Tag.SHAPE_DRAW_BITMAP_COMMAND) {
             vertexCount = stream.readUnsignedChar();
@@ -93,19 +147,29 @@ public class ShapeDrawBitmapCommand implements Savable {
             }
         }
 
-        this.shapePoints = new ArrayList<>(vertexCount);
-        for (int i = 0; i < vertexCount; i++) {
-            this.shapePoints.add(i, new ShapePoint());
+        if (this.points == null) {
+            this.points = new ShapePointBuffer(vertexCount);
+        }
+
+        // Loading the command again reuses its points, so the buffer doesn't grow
+        if (this.isPointsShared || vertexCount > this.pointCapacity) {
+            this.pointOffset = this.points.allocate(vertexCount);
+            this.pointCapacity = vertexCount;
         }
 
-        for (ShapePoint shapePoint : this.shapePoints) {
-            shapePoint.setX(stream.readTwip());
-            shapePoint.setY(stream.readTwip());
+        this.pointCount = vertexCount;
+        this.isPointsShared = false;
+
+        for (int i = 0; i < vertexCount; i++) {
+            float x = stream.readTwip();
+            float y = stream.readTwip();
+            this.points.setXY(this.pointOffset + i, x, y);
         }
 
-        for (ShapePoint shapePoint : this.shapePoints) {
-            shapePoint.setU(stream.readShort());
-            shapePoint.setV(stream.readShort());
+        for (int i = 0; i < vertexCount; i++) {
+            int u = stream.readShort();
+            int v = stream.readShort();
+            this.points.setUV(this.pointOffset + i, u, v);
         }
     }
 
@@ -116,17 +180,17 @@ public class ShapeDrawBitmapCommand implements Savable {
         stream.writeUnsignedChar(this.textureIndex);
 
         if (this.getTag() != Tag.SHAPE_DRAW_BITMAP_COMMAND) {
-            stream.writeUnsignedChar(this.shapePoints.size());
+            stream.writeUnsignedChar(this.pointCount);
         }
 
-        for (ShapePoint point : this.shapePoints) {
-            stream.writeTwip(point.getX());
-            stream.writeTwip(point.getY());
+        for (int i = this.pointOffset; i < this.pointOffset + this.pointCount; i++) {
+            stream.writeTwip(this.points.getX(i));
+            stream.writeTwip(this.points.getY(i));
         }
 
-        for (ShapePoint point : this.shapePoints) {
-            stream.writeShort(point.getU());
-            stream.writeShort(point.getV());
+        for (int i = this.pointOffset; i < this.pointOffset + this.pointCount; i++) {
+            stream.writeShort(this.points.getU(i));
+            stream.writeShort(this.points.getV(i));
         }
     }
 
@@ -134,48 +198,48 @@ public class ShapeDrawBitmapCommand implements Savable {
      * @since 1.0.0
      */
     public float getX(int pointIndex) {
-        return this.shapePoints.get(pointIndex).getX();
+        return this.points.getX(this.getPointIndex(pointIndex));
     }
 
     /**
      * @since 1.0.0
      */
     public float getY(int pointIndex) {
-        return this.shapePoints.get(pointIndex).getY();
+        return this.points.getY(this.getPointIndex(pointIndex));
     }
 
     /**
      * @since 1.0.0
      */
     public void setXY(int pointIndex, float x, float y) {
-        ShapePoint point = this.shapePoints.get(pointIndex);
-
-        point.setX(x);
-        point.setY(y);
+        this.unsharePoints();
+        this.points.setXY(this.getPointIndex(pointIndex), x, y);
+        this.version++;
+        DisplayObjectOriginal.countEdit();
     }
 
     /**
      * @since 1.0.0
      */
     public float getU(int pointIndex) {
-        return this.shapePoints.get(pointIndex).getU() / 65535f;
+        return this.points.getU(this.getPointIndex(pointIndex)) / 65535f;
     }
 
     /**
      * @since 1.0.0
      */
     public float getV(int pointIndex) {
-        return this.shapePoints.get(pointIndex).getV() / 65535f;
+        return this.points.getV(this.getPointIndex(pointIndex)) / 65535f;
     }
 
     /**
      * @since 1.0.0
      */
     public void setUV(int pointIndex, float u, float v) {
-        ShapePoint point = this.shapePoints.get(pointIndex);
-
-        point.setU((int) (u * 65535f));
-        point.setV((int) (v * 65535f));
+        this.unsharePoints();
+        this.points.setUV(this.getPointIndex(pointIndex), (int) (u * 65535f), (int) (v * 65535f));
+        this.version++;
+        DisplayObjectOriginal.countEdit();
     }
 
     // TODO: add methods for adding points to the polygon.
@@ -202,13 +266,15 @@ public class ShapeDrawBitmapCommand implements Savable {
      */
     public void setTextureIndex(int textureIndex) {
         this.textureIndex = textureIndex;
+        this.version++;
+        DisplayObjectOriginal.countEdit();
     }
 
     /**
      * @since 1.0.0
      */
     public int getVertexCount() {
-        return shapePoints.size();
+        return pointCount;
     }
 
     /**
@@ -218,10 +284,58 @@ public class ShapeDrawBitmapCommand implements Savable {
         return this.getVertexCount() - 2;
     }
 
+    /**
+     * @return buffer holding points of the command
+     * @since 1.1.7
+     */
+    public ShapePointBuffer getPoints() {
+        return points;
+    }
+
+    /**
+     * @return index of the first point of the command in {@link #getPoints()}
+     * @since 1.1.7
+     */
+    public int getPointOffset() {
+        return pointOffset;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Updates the offset of points moved by {@link ShapePointBuffer#compact(Iterable)}.
+     */
+    void relocatePoints(int pointOffset) {
+        this.pointOffset = pointOffset;
+        if (!this.isPointsShared) {
+            this.pointCapacity = this.pointCount;
+        }
+    }
+
+    private int getPointIndex(int pointIndex) {
+        if (pointIndex < 0 || pointIndex >= this.pointCount) {
+            throw new IndexOutOfBoundsException("Point index " + pointIndex + " out of bounds for length " + this.pointCount);
+        }
+
+        return this.pointOffset + pointIndex;
+    }
+
+    private void unsharePoints() {
+        if (!this.isPointsShared) return;
+
+        int offset = this.points.allocate(this.pointCount);
+        this.points.copy(this.pointOffset, offset, this.pointCount);
+        this.pointOffset = offset;
+        this.pointCapacity = this.pointCount;
+        this.isPointsShared = false;
+    }
+
     private Tag determineTag() {
         // Note: determining tag due to state (data)
         boolean isQuadShapeAllowed = false;
-        return shapePoints.size() == 4 && isQuadShapeAllowed ? Tag.SHAPE_DRAW_BITMAP_COMMAND : Tag.SHAPE_DRAW_BITMAP_COMMAND_3;
+        return pointCount == 4 && isQuadShapeAllowed ? Tag.SHAPE_DRAW_BITMAP_COMMAND : Tag.SHAPE_DRAW_BITMAP_COMMAND_3;
     }
 
     /**
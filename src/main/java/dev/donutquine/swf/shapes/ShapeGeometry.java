@@ -0,0 +1,202 @@
+package dev.donutquine.swf.shapes;
+
+import dev.donutquine.utilities.BufferUtils;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Triangulated geometry of one or more shapes, ready to be uploaded at once.
+ *
+ * <p>Vertices are interleaved {@code x, y, u, v} floats in a direct buffer, UVs are normalized to 0..1.
+ * Polygons of draw bitmap commands are triangulated as fans. Indices are unsigned shorts if all vertices fit
+ * into them, otherwise ints. Commands keep their drawing order and consecutive commands of a shape with
+ * the same texture index are merged into one {@link Batch}, so each batch is one draw call.</p>
+ *
+ * @see ShapeOriginal#getGeometry()
+ * @since 1.1.7
+ */
+public final class ShapeGeometry {
+    public static final int FLOATS_PER_VERTEX = 4;
+
+    private static final int MAX_SHORT_INDEX_VERTICES = 0xFFFF + 1;
+
+    private final FloatBuffer vertices;
+    private final Buffer indices;
+    private final int vertexCount;
+    private final int indexCount;
+    private final List<Batch> batches;
+    // Offsets of batches of every shape in the batch list, with the batch count as the last element
+    private final int[] shapeBatchOffsets;
+
+    /**
+     * Range of indices drawn with one texture.
+     *
+     * @param shapeIndex   index of the shape in order of {@link Builder#addShape(ShapeOriginal)}
+     * @param textureIndex index of the texture in the file
+     * @param indexOffset  offset of the first index in {@link #getIndices()}
+     * @param indexCount   count of indices, 3 per triangle
+     */
+    public record Batch(int shapeIndex, int textureIndex, int indexOffset, int indexCount) {
+    }
+
+    private ShapeGeometry(FloatBuffer vertices, Buffer indices, int vertexCount, int indexCount, List<Batch> batches, int[] shapeBatchOffsets) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.vertexCount = vertexCount;
+        this.indexCount = indexCount;
+        this.batches = Collections.unmodifiableList(batches);
+        this.shapeBatchOffsets = shapeBatchOffsets;
+    }
+
+    /**
+     * @return read-only view of vertex data, {@link #FLOATS_PER_VERTEX} floats per vertex
+     */
+    public FloatBuffer getVertices() {
+        return vertices.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return read-only view of indices, either a {@link ShortBuffer} of unsigned values or an {@link IntBuffer}
+     */
+    public Buffer getIndices() {
+        if (indices instanceof ShortBuffer shortBuffer) {
+            return shortBuffer.asReadOnlyBuffer();
+        }
+
+        return ((IntBuffer) indices).asReadOnlyBuffer();
+    }
+
+    public boolean hasShortIndices() {
+        return indices instanceof ShortBuffer;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * @return batches of all shapes in drawing order
+     */
+    public List<Batch> getBatches() {
+        return batches;
+    }
+
+    /**
+     * @param shapeIndex index of the shape in order of {@link Builder#addShape(ShapeOriginal)}
+     * @return batches of the shape in drawing order
+     */
+    public List<Batch> getShapeBatches(int shapeIndex) {
+        return batches.subList(shapeBatchOffsets[shapeIndex], shapeBatchOffsets[shapeIndex + 1]);
+    }
+
+    public int getShapeCount() {
+        return shapeBatchOffsets.length - 1;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private final List<ShapeOriginal> shapes = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder addShape(ShapeOriginal shape) {
+            shapes.add(shape);
+            return this;
+        }
+
+        public Builder addShapes(Iterable<ShapeOriginal> shapes) {
+            for (ShapeOriginal shape : shapes) {
+                addShape(shape);
+            }
+
+            return this;
+        }
+
+        public ShapeGeometry build() {
+            int vertexCount = 0;
+            int indexCount = 0;
+            for (ShapeOriginal shape : shapes) {
+                for (ShapeDrawBitmapCommand command : shape.getCommands()) {
+                    vertexCount += command.getVertexCount();
+                    indexCount += Math.max(0, command.getTriangleCount()) * 3;
+                }
+            }
+
+            FloatBuffer vertices = BufferUtils.allocateDirectFloat(vertexCount * FLOATS_PER_VERTEX);
+            int[] indices = new int[indexCount];
+
+            List<Batch> batches = new ArrayList<>();
+            int[] shapeBatchOffsets = new int[shapes.size() + 1];
+
+            int vertexOffset = 0;
+            int indexOffset = 0;
+            for (int shapeIndex = 0; shapeIndex < shapes.size(); shapeIndex++) {
+                shapeBatchOffsets[shapeIndex] = batches.size();
+
+                // Commands aren't reordered by texture, as it would break the order of overlapping polygons
+                List<ShapeDrawBitmapCommand> commands = shapes.get(shapeIndex).getCommands();
+
+                int batchStart = indexOffset;
+                for (int i = 0; i < commands.size(); i++) {
+                    ShapeDrawBitmapCommand command = commands.get(i);
+
+                    int pointCount = command.getVertexCount();
+                    for (int point = 0; point < pointCount; point++) {
+                        int offset = (vertexOffset + point) * FLOATS_PER_VERTEX;
+                        vertices.put(offset, command.getX(point));
+                        vertices.put(offset + 1, command.getY(point));
+                        vertices.put(offset + 2, command.getU(point));
+                        vertices.put(offset + 3, command.getV(point));
+                    }
+
+                    for (int point = 1; point < pointCount - 1; point++) {
+                        indices[indexOffset++] = vertexOffset;
+                        indices[indexOffset++] = vertexOffset + point;
+                        indices[indexOffset++] = vertexOffset + point + 1;
+                    }
+
+                    vertexOffset += pointCount;
+
+                    boolean isBatchEnd = i == commands.size() - 1 || commands.get(i + 1).getTextureIndex() != command.getTextureIndex();
+                    if (isBatchEnd && indexOffset > batchStart) {
+                        batches.add(new Batch(shapeIndex, command.getTextureIndex(), batchStart, indexOffset - batchStart));
+                        batchStart = indexOffset;
+                    }
+                }
+            }
+
+            shapeBatchOffsets[shapes.size()] = batches.size();
+
+            return new ShapeGeometry(vertices, packIndices(indices, vertexCount), vertexCount, indexCount, batches, shapeBatchOffsets);
+        }
+
+        private static Buffer packIndices(int[] indices, int vertexCount) {
+            if (vertexCount <= MAX_SHORT_INDEX_VERTICES) {
+                ShortBuffer buffer = BufferUtils.allocateDirect(indices.length * Short.BYTES).asShortBuffer();
+                for (int i = 0; i < indices.length; i++) {
+                    buffer.put(i, (short) indices[i]);
+                }
+
+                return buffer;
+            }
+
+            IntBuffer buffer = BufferUtils.allocateDirectInt(indices.length);
+            buffer.put(0, indices);
+            return buffer;
+        }
+    }
+}
@@ -5,7 +5,11 @@ import com.supercell.swf.FBShape;
 import dev.donutquine.streams.ByteStream;
 import dev.donutquine.swf.DisplayObjectOriginal;
 import dev.donutquine.swf.Tag;
+import dev.donutquine.swf.TagHandler;
+import dev.donutquine.swf.TagRegistry;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
 import dev.donutquine.swf.exceptions.NegativeTagLengthException;
+import dev.donutquine.swf.exceptions.UnsupportedCustomPropertyException;
 import dev.donutquine.swf.exceptions.UnsupportedTagException;
 import dev.donutquine.swf.textures.SWFTexture;
 import org.slf4j.Logger;
@@ -19,10 +23,23 @@ import java.util.function.Function;
 public class ShapeOriginal extends DisplayObjectOriginal {
     private static final Logger LOGGER = LoggerFactory.getLogger(ShapeOriginal.class);
 
+    /**
+     * Handlers of the shape command tags. Register a handler here to support a custom command.
+     *
+     * @since 1.1.7
+     */
+    public static final TagRegistry<ShapeOriginal> TAG_HANDLERS = createTagRegistry();
+
     private Tag tag;
 
     private List<ShapeDrawBitmapCommand> commands;
 
+    private int loadedCommands;
+
+    private ShapeGeometry geometry;
+    // Sum of command versions the geometry was built with
+    private long geometryVersion;
+
     public ShapeOriginal() {
     }
 
@@ -43,30 +60,65 @@ public class ShapeOriginal extends DisplayObjectOriginal {
         tag = determineTag();
     }
 
+    /**
+     * Creates a shape, which commands refer to points of the file without copying them.
+     *
+     * @param points points of the file, see {@link ShapePointBuffer#fromFlatBuffers(FBResources)}
+     * @since 1.1.7
+     */
+    public ShapeOriginal(FBShape fb, ShapePointBuffer points) {
+        id = fb.id();
+
+        commands = new ArrayList<>(fb.commandsLength());
+        for (int i = 0; i < fb.commandsLength(); i++) {
+            commands.add(new ShapeDrawBitmapCommand(fb.commands(i), points));
+        }
+
+        tag = determineTag();
+    }
+
     private Tag determineTag() {
         boolean onlyQuadCommands = commands.stream().allMatch(shapeDrawBitmapCommand -> shapeDrawBitmapCommand.getTag() == Tag.SHAPE_DRAW_BITMAP_COMMAND);
 
         return onlyQuadCommands ? Tag.SHAPE : Tag.SHAPE_2;
     }
 
-    public int load(ByteStream stream, Tag tag, Function<Integer, SWFTexture> imageFunction, String filename) throws NegativeTagLengthException {
+    public int load(ByteStream stream, Tag tag, Function<Integer, SWFTexture> imageFunction, String filename) throws LoadingFaultException, UnsupportedCustomPropertyException {
+        return load(stream, tag, imageFunction, filename, null);
+    }
+
+    /**
+     * Loads the shape appending points of its commands to the buffer.
+     *
+     * @param points buffer shared by shapes of the file or {@code null} to allocate a buffer for the shape
+     * @since 1.1.7
+     */
+    public int load(ByteStream stream, Tag tag, Function<Integer, SWFTexture> imageFunction, String filename, ShapePointBuffer points) throws LoadingFaultException, UnsupportedCustomPropertyException {
         this.tag = tag;
 
         this.id = stream.readShort();
         int commandCount = stream.readShort();
 
-        this.commands = new ArrayList<>(commandCount);
-        for (int i = 0; i < commandCount; i++) {
-            this.commands.add(new ShapeDrawBitmapCommand());
-        }
-
         // Used for allocating memory for points
         int pointCount = 4 * commandCount;
         if (tag == Tag.SHAPE_2) {
             pointCount = stream.readShort();
         }
 
-        int loadedCommands = 0;
+        if (points == null) {
+            points = new ShapePointBuffer(pointCount);
+        } else {
+            points.ensureCapacity(points.getPointCount() + pointCount);
+        }
+
+        this.geometry = null;
+
+        this.commands = new ArrayList<>(commandCount);
+        for (int i = 0; i < commandCount; i++) {
+            this.commands.add(new ShapeDrawBitmapCommand(points));
+        }
+
+        this.loadedCommands = 0;
 
         while (true) {
             int commandTag = stream.readUnsignedChar();
@@ -76,33 +128,24 @@ public class ShapeOriginal extends DisplayObjectOriginal {
                 throw new NegativeTagLengthException(String.format("Negative tag length in Shape. Tag %d, %s", commandTag, filename));
             }
 
+            if (commandTag == Tag.EOF.ordinal()) {
+                return this.id;
+            }
+
             int startPosition = stream.getPosition();
 
-            Tag tagValue = Tag.values()[commandTag];
-            switch (tagValue) {
-                case EOF -> {
-                    return this.id;
+            TagHandler<ShapeOriginal> handler = TAG_HANDLERS.get(commandTag);
+            if (handler != null) {
+                handler.handle(this, stream, commandTag, length);
+            } else {
+                try {
+                    throw new UnsupportedTagException(String.format("Unknown tag %d in Shape, %s", commandTag, filename));
+                } catch (UnsupportedTagException exception) {
+                    LOGGER.error(exception.getMessage(), exception);
                 }
-                case SHAPE_DRAW_BITMAP_COMMAND, SHAPE_DRAW_BITMAP_COMMAND_2,
-                     SHAPE_DRAW_BITMAP_COMMAND_3 ->
-                    this.commands.get(loadedCommands++).load(stream, tagValue);
-                case SHAPE_DRAW_COLOR_FILL_COMMAND -> {
-                    try {
-                        throw new UnsupportedTagException(String.format("SupercellSWF::TAG_SHAPE_DRAW_COLOR_FILL_COMMAND not supported, %s", filename));
-                    } catch (UnsupportedTagException exception) {
-                        LOGGER.error(exception.getMessage(), exception);
-                    }
-                }
-                default -> {
-                    try {
-                        throw new UnsupportedTagException(String.format("Unknown tag %d in Shape, %s", commandTag, filename));
-                    } catch (UnsupportedTagException exception) {
-                        LOGGER.error(exception.getMessage(), exception);
-                    }
-
-                    if (length > 0) {
-                        stream.skip(length);
-                    }
+
+                if (length > 0) {
+                    stream.skip(length);
                 }
             }
 
@@ -113,6 +156,30 @@ public class ShapeOriginal extends DisplayObjectOriginal {
         }
     }
 
+    private static TagRegistry<ShapeOriginal> createTagRegistry() {
+        TagRegistry<ShapeOriginal> registry = new TagRegistry<>();
+
+        registry.register(ShapeOriginal::readDrawBitmapCommandTag, Tag.SHAPE_DRAW_BITMAP_COMMAND,
+            Tag.SHAPE_DRAW_BITMAP_COMMAND_2, Tag.SHAPE_DRAW_BITMAP_COMMAND_3);
+        registry.register(ShapeOriginal::readDrawColorFillCommandTag, Tag.SHAPE_DRAW_COLOR_FILL_COMMAND);
+
+        return registry;
+    }
+
+    private void readDrawBitmapCommandTag(ByteStream stream, int tag, int length) {
+        this.commands.get(this.loadedCommands++).load(stream, Tag.getByOrdinal(tag));
+    }
+
+    private void readDrawColorFillCommandTag(ByteStream stream, int tag, int length) {
+        try {
+            throw new UnsupportedTagException(String.format("SupercellSWF::TAG_SHAPE_DRAW_COLOR_FILL_COMMAND not supported, shape id %d", this.id));
+        } catch (UnsupportedTagException exception) {
+            LOGGER.error(exception.getMessage(), exception);
+        }
+
+        stream.skip(length);
+    }
+
     @Override
     public void save(ByteStream stream) {
         stream.writeShort(this.id);
@@ -138,6 +205,36 @@ public class ShapeOriginal extends DisplayObjectOriginal {
         return Collections.unmodifiableList(this.commands);
     }
 
+    /**
+     * Returns triangulated geometry of the shape batched by texture. The geometry is cached and rebuilt
+     * after points or texture indices of commands are changed.
+     *
+     * @return geometry with a single shape
+     * @since 1.1.7
+     */
+    public synchronized ShapeGeometry getGeometry() {
+        long version = getCommandsVersion();
+        if (this.geometry == null || this.geometryVersion != version) {
+            this.geometry = ShapeGeometry.builder().addShape(this).build();
+            this.geometryVersion = version;
+        }
+
+        return this.geometry;
+    }
+
+    /**
+     * @return sum of versions of commands, changes after points or texture indices of commands are changed
+     * @since 1.1.7
+     */
+    public long getCommandsVersion() {
+        long version = 0;
+        for (ShapeDrawBitmapCommand command : this.commands) {
+            version += command.getVersion();
+        }
+
+        return version;
+    }
+
     private int calculatePointCount() {
         int pointCount = 0;
         for (ShapeDrawBitmapCommand command : this.commands) {
@@ -0,0 +1,180 @@
+package dev.donutquine.swf.shapes;
+
+import com.supercell.swf.FBResources;
+import com.supercell.swf.FBShapePoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packed storage of shape points shared by draw bitmap commands of a file, mirroring {@code shape_points}
+ * of FlatBuffers resources. Positions are kept as {@code x, y} pairs in one float array and UVs as
+ * {@code u, v} pairs of unsigned shorts, commands refer to their points by offset and count.
+ *
+ * <p>Points are appended and ranges of commands move only when the buffer is {@link #compact(Iterable) compacted}.
+ * Writes are synchronized, so shapes sharing the buffer can be loaded concurrently. Reads aren't, points of
+ * a command must be read after the command is loaded.</p>
+ *
+ * @since 1.1.7
+ */
+public final class ShapePointBuffer {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Volatile, so readers see arrays grown by another thread
+    private volatile float[] xy;
+    private volatile short[] uv;
+    private volatile int pointCount;
+
+    public ShapePointBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ShapePointBuffer(int capacity) {
+        this.xy = new float[capacity * 2];
+        this.uv = new short[capacity * 2];
+    }
+
+    /**
+     * Copies all points of FlatBuffers resources, so point indices of commands stay valid.
+     */
+    public static ShapePointBuffer fromFlatBuffers(FBResources resources) {
+        int pointCount = resources.shapePointsLength();
+
+        ShapePointBuffer buffer = new ShapePointBuffer(pointCount);
+        FBShapePoint point = new FBShapePoint();
+        for (int i = 0; i < pointCount; i++) {
+            resources.shapePoints(point, i);
+            buffer.xy[i * 2] = point.x();
+            buffer.xy[i * 2 + 1] = point.y();
+            buffer.uv[i * 2] = (short) point.u();
+            buffer.uv[i * 2 + 1] = (short) point.v();
+        }
+
+        buffer.pointCount = pointCount;
+        return buffer;
+    }
+
+    /**
+     * Appends zeroed points.
+     *
+     * @return index of the first appended point
+     */
+    public synchronized int allocate(int count) {
+        ensureCapacity(this.pointCount + count);
+
+        int offset = this.pointCount;
+        this.pointCount += count;
+        return offset;
+    }
+
+    /**
+     * Reserves space for points, so following allocations don't grow the arrays.
+     */
+    public synchronized void ensureCapacity(int pointCount) {
+        if (pointCount * 2 <= this.xy.length) return;
+
+        // Array length is twice the capacity, so the capacity at least doubles
+        int capacity = Math.max(pointCount, this.xy.length);
+        this.xy = Arrays.copyOf(this.xy, capacity * 2);
+        this.uv = Arrays.copyOf(this.uv, capacity * 2);
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public float getX(int index) {
+        return xy[index * 2];
+    }
+
+    public float getY(int index) {
+        return xy[index * 2 + 1];
+    }
+
+    public synchronized void setXY(int index, float x, float y) {
+        xy[index * 2] = x;
+        xy[index * 2 + 1] = y;
+    }
+
+    /**
+     * @return unsigned U coordinate in 0..65535
+     */
+    public int getU(int index) {
+        return uv[index * 2] & 0xFFFF;
+    }
+
+    /**
+     * @return unsigned V coordinate in 0..65535
+     */
+    public int getV(int index) {
+        return uv[index * 2 + 1] & 0xFFFF;
+    }
+
+    /**
+     * @param u unsigned U coordinate in 0..65535
+     * @param v unsigned V coordinate in 0..65535
+     */
+    public synchronized void setUV(int index, int u, int v) {
+        uv[index * 2] = (short) u;
+        uv[index * 2 + 1] = (short) v;
+    }
+
+    /**
+     * Drops points, which aren't referenced by the commands, moving ranges of the commands to the start of the buffer.
+     * Points left by reloaded or changed commands are dropped this way. All commands referring to the buffer must be
+     * passed, commands referring to other buffers are skipped.
+     *
+     * @return count of dropped points
+     */
+    public synchronized int compact(Iterable<ShapeDrawBitmapCommand> commands) {
+        List<ShapeDrawBitmapCommand> bufferCommands = new ArrayList<>();
+        Map<ShapeDrawBitmapCommand, Boolean> visitedCommands = new IdentityHashMap<>();
+
+        boolean[] isReferenced = new boolean[this.pointCount];
+        for (ShapeDrawBitmapCommand command : commands) {
+            if (command.getPoints() != this || visitedCommands.put(command, Boolean.TRUE) != null) continue;
+
+            bufferCommands.add(command);
+            Arrays.fill(isReferenced, command.getPointOffset(), command.getPointOffset() + command.getVertexCount(), true);
+        }
+
+        // Points only move towards the start, so they can be moved in place
+        float[] xy = this.xy;
+        short[] uv = this.uv;
+        int[] newIndices = new int[this.pointCount];
+        int referencedCount = 0;
+        for (int i = 0; i < this.pointCount; i++) {
+            newIndices[i] = referencedCount;
+            if (!isReferenced[i]) continue;
+
+            xy[referencedCount * 2] = xy[i * 2];
+            xy[referencedCount * 2 + 1] = xy[i * 2 + 1];
+            uv[referencedCount * 2] = uv[i * 2];
+            uv[referencedCount * 2 + 1] = uv[i * 2 + 1];
+            referencedCount++;
+        }
+
+        int droppedCount = this.pointCount - referencedCount;
+        if (droppedCount == 0) {
+            return 0;
+        }
+
+        for (ShapeDrawBitmapCommand command : bufferCommands) {
+            int offset = command.getPointOffset();
+            command.relocatePoints(offset < this.pointCount ? newIndices[offset] : referencedCount);
+        }
+
+        this.pointCount = referencedCount;
+        this.xy = Arrays.copyOf(xy, referencedCount * 2);
+        this.uv = Arrays.copyOf(uv, referencedCount * 2);
+        return droppedCount;
+    }
+
+    synchronized void copy(int sourceIndex, int destinationIndex, int count) {
+        System.arraycopy(xy, sourceIndex * 2, xy, destinationIndex * 2, count * 2);
+        System.arraycopy(uv, sourceIndex * 2, uv, destinationIndex * 2, count * 2);
+    }
+}
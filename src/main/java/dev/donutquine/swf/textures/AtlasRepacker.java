@@ -0,0 +1,407 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.Tag;
+import dev.donutquine.swf.TextureType;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.UnsupportedCustomPropertyException;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
+import dev.donutquine.swf.shapes.ShapeOriginal;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repacks used regions of textures into fewer and tighter atlases.
+ *
+ * <p>Used regions are the UV bounds of every {@link ShapeDrawBitmapCommand}, extended by padding and merged while
+ * they overlap. Regions of textures with the same tag and type are packed by {@link MaxRectsPacker}, pixels are
+ * copied to atlases in parallel and commands are rewritten to the new texture indices and UVs.</p>
+ *
+ * <p>Textures without pixels, e.g. KTX textures, and textures not referenced by commands are kept as they are.
+ * Groups are repacked only if it reduces either the texture count or the pixel count.</p>
+ *
+ * @since 1.1.7
+ */
+public final class AtlasRepacker {
+    public static final int DEFAULT_MAX_SIZE = 2048;
+    /**
+     * Pixels around used regions kept for bilinear filtering.
+     */
+    public static final int DEFAULT_PADDING = 2;
+
+    private AtlasRepacker() {
+    }
+
+    /**
+     * @param originalTextureCount texture count before repacking
+     * @param textureCount         texture count after repacking
+     * @param originalPixelCount   pixel count of all textures before repacking
+     * @param pixelCount           pixel count of all textures after repacking
+     */
+    public record Result(int originalTextureCount, int textureCount, long originalPixelCount, long pixelCount) {
+    }
+
+    public static Result repack(SupercellSWF swf) {
+        return repack(swf, DEFAULT_MAX_SIZE, DEFAULT_PADDING);
+    }
+
+    /**
+     * Repacks textures of the file. Replaced textures are closed, pixels returned by their {@link SWFTexture#getPixels()}
+     * stay valid and are released by the garbage collector.
+     *
+     * @param maxSize maximal width and height of atlases, regions larger than it get an atlas of their size
+     * @param padding pixels kept around used regions
+     */
+    public static Result repack(SupercellSWF swf, int maxSize, int padding) {
+        if (maxSize <= 0 || padding < 0) {
+            throw new IllegalArgumentException("Invalid atlas size or padding: " + maxSize + ", " + padding);
+        }
+
+        try {
+            swf.decodeAll();
+        } catch (LoadingFaultException | UnsupportedCustomPropertyException exception) {
+            throw new IllegalStateException("Unable to decode indexed objects before repacking", exception);
+        }
+
+        List<SWFTexture> textures = swf.getTextures();
+        long originalPixelCount = countPixels(textures);
+
+        List<ShapeDrawBitmapCommand> commands = new ArrayList<>();
+        for (ShapeOriginal shape : swf.getShapes()) {
+            commands.addAll(shape.getCommands());
+        }
+
+        List<List<Region>> regionsByTexture = collectRegions(textures, commands, padding);
+
+        // Groups keep the order of textures, so the result is deterministic
+        Map<GroupKey, List<Region>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < textures.size(); i++) {
+            List<Region> regions = regionsByTexture.get(i);
+            if (regions == null) continue;
+
+            SWFTexture texture = textures.get(i);
+            groups.computeIfAbsent(new GroupKey(texture.getTag(), texture.getType()), key -> new ArrayList<>()).addAll(regions);
+        }
+
+        List<Atlas> atlases = new ArrayList<>();
+        Set<SWFTexture> repackedTextures = new HashSet<>();
+        for (Map.Entry<GroupKey, List<Region>> group : groups.entrySet()) {
+            List<Atlas> groupAtlases = pack(group.getKey(), group.getValue(), maxSize);
+
+            Set<SWFTexture> groupTextures = new HashSet<>();
+            long groupPixelCount = 0;
+            for (Region region : group.getValue()) {
+                if (groupTextures.add(region.texture)) {
+                    groupPixelCount += (long) region.texture.getWidth() * region.texture.getHeight();
+                }
+            }
+
+            long atlasPixelCount = 0;
+            for (Atlas atlas : groupAtlases) {
+                atlasPixelCount += (long) atlas.width * atlas.height;
+            }
+
+            if (groupAtlases.size() < groupTextures.size() || atlasPixelCount < groupPixelCount) {
+                atlases.addAll(groupAtlases);
+                repackedTextures.addAll(groupTextures);
+            }
+        }
+
+        if (atlases.isEmpty()) {
+            return new Result(textures.size(), textures.size(), originalPixelCount, originalPixelCount);
+        }
+
+        List<SWFTexture> result = new ArrayList<>();
+        Map<SWFTexture, Integer> keptIndices = new IdentityHashMap<>();
+        for (SWFTexture texture : textures) {
+            if (repackedTextures.contains(texture)) continue;
+
+            keptIndices.put(texture, result.size());
+            result.add(texture);
+        }
+
+        for (Atlas atlas : atlases) {
+            atlas.index = result.size();
+            result.add(blit(atlas));
+        }
+
+        rewriteCommands(commands, textures, regionsByTexture, keptIndices);
+
+        swf.setTextures(result);
+
+        // Closing never frees pixels returned by getPixels(), see TextureMemory
+        for (SWFTexture texture : repackedTextures) {
+            texture.close();
+        }
+
+        return new Result(textures.size(), result.size(), originalPixelCount, countPixels(result));
+    }
+
+    /**
+     * @return merged regions of every texture, {@code null} for textures which aren't repacked
+     */
+    private static List<List<Region>> collectRegions(List<SWFTexture> textures, List<ShapeDrawBitmapCommand> commands, int padding) {
+        List<List<Region>> regionsByTexture = new ArrayList<>(textures.size());
+        for (SWFTexture texture : textures) {
+            boolean hasPixels = texture.getKtxBuffer() == null && texture.getTextureFilename() == null;
+            regionsByTexture.add(hasPixels ? new ArrayList<>() : null);
+        }
+
+        for (ShapeDrawBitmapCommand command : commands) {
+            int textureIndex = command.getTextureIndex();
+            if (textureIndex >= textures.size() || regionsByTexture.get(textureIndex) == null) continue;
+
+            SWFTexture texture = textures.get(textureIndex);
+            regionsByTexture.get(textureIndex).add(getCommandRegion(command, texture, padding));
+        }
+
+        for (int i = 0; i < regionsByTexture.size(); i++) {
+            List<Region> regions = regionsByTexture.get(i);
+            if (regions == null) continue;
+
+            if (regions.isEmpty()) {
+                regionsByTexture.set(i, null);
+            } else {
+                mergeOverlapping(regions);
+            }
+        }
+
+        return regionsByTexture;
+    }
+
+    private static Region getCommandRegion(ShapeDrawBitmapCommand command, SWFTexture texture, int padding) {
+        int[] bounds = TextureUsageOptimizer.getPixelBounds(command, texture.getWidth(), texture.getHeight(), padding);
+        return new Region(texture, bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    private static void mergeOverlapping(List<Region> regions) {
+        boolean isMerged;
+        do {
+            isMerged = false;
+
+            for (int i = 0; i < regions.size(); i++) {
+                for (int j = regions.size() - 1; j > i; j--) {
+                    Region first = regions.get(i);
+                    Region second = regions.get(j);
+                    if (!first.overlaps(second)) continue;
+
+                    regions.set(i, first.union(second));
+                    regions.remove(j);
+                    isMerged = true;
+                }
+            }
+        } while (isMerged);
+    }
+
+    private static List<Atlas> pack(GroupKey key, List<Region> regions, int maxSize) {
+        int atlasSize = maxSize;
+        for (Region region : regions) {
+            atlasSize = Math.max(atlasSize, Math.max(region.getWidth(), region.getHeight()));
+        }
+
+        List<Region> sortedRegions = new ArrayList<>(regions);
+        sortedRegions.sort(Comparator.comparingInt((Region region) -> Math.max(region.getWidth(), region.getHeight()))
+            .thenComparingInt(region -> region.getWidth() * region.getHeight())
+            .reversed());
+
+        List<Atlas> atlases = new ArrayList<>();
+        for (Region region : sortedRegions) {
+            MaxRectsPacker.Area area = null;
+            Atlas target = null;
+            for (Atlas atlas : atlases) {
+                area = atlas.packer.insert(region.getWidth(), region.getHeight());
+                if (area != null) {
+                    target = atlas;
+                    break;
+                }
+            }
+
+            if (target == null) {
+                target = new Atlas(key, new MaxRectsPacker(atlasSize, atlasSize));
+                area = target.packer.insert(region.getWidth(), region.getHeight());
+                atlases.add(target);
+            }
+
+            target.regions.add(region);
+            region.atlas = target;
+            region.x = area.x();
+            region.y = area.y();
+        }
+
+        for (Atlas atlas : atlases) {
+            atlas.width = atlas.packer.getUsedWidth();
+            atlas.height = atlas.packer.getUsedHeight();
+        }
+
+        return atlases;
+    }
+
+    private static SWFTexture blit(Atlas atlas) {
+        TextureType type = atlas.key.type;
+        Buffer pixels = TextureMemory.allocatePixels(type, atlas.width * atlas.height);
+
+        List<SWFTexture> sources = atlas.regions.stream().map(region -> region.texture).distinct().toList();
+        Map<SWFTexture, Buffer> sourcePixels = new IdentityHashMap<>();
+        for (SWFTexture source : sources) {
+            sourcePixels.put(source, source.acquirePixels());
+        }
+
+        try {
+            // Regions don't overlap in the atlas, so they can be copied concurrently
+            atlas.regions.parallelStream().forEach(region -> {
+                Buffer source = sourcePixels.get(region.texture);
+                int sourceWidth = region.texture.getWidth();
+
+                for (int row = 0; row < region.getHeight(); row++) {
+                    int sourceIndex = (region.top + row) * sourceWidth + region.left;
+                    int destinationIndex = (region.y + row) * atlas.width + region.x;
+                    copyPixels(source, sourceIndex, pixels, destinationIndex, region.getWidth());
+                }
+            });
+        } finally {
+            for (SWFTexture source : sources) {
+                source.releasePixels();
+            }
+        }
+
+        SWFTexture texture = new SWFTexture(atlas.key.tag, type, atlas.width, atlas.height, pixels);
+        if (atlas.key.tag.hasMipmaps()) {
+            texture.generateMipmaps();
+        }
+
+        return texture;
+    }
+
+    static void copyPixels(Buffer source, int sourceIndex, Buffer destination, int destinationIndex, int length) {
+        if (destination instanceof IntBuffer intBuffer) {
+            intBuffer.put(destinationIndex, (IntBuffer) source, sourceIndex, length);
+        } else if (destination instanceof ShortBuffer shortBuffer) {
+            shortBuffer.put(destinationIndex, (ShortBuffer) source, sourceIndex, length);
+        } else {
+            ((ByteBuffer) destination).put(destinationIndex, (ByteBuffer) source, sourceIndex, length);
+        }
+    }
+
+    private static void rewriteCommands(List<ShapeDrawBitmapCommand> commands, List<SWFTexture> textures, List<List<Region>> regionsByTexture, Map<SWFTexture, Integer> keptIndices) {
+        for (ShapeDrawBitmapCommand command : commands) {
+            int textureIndex = command.getTextureIndex();
+            if (textureIndex >= textures.size()) continue;
+
+            SWFTexture texture = textures.get(textureIndex);
+            Integer keptIndex = keptIndices.get(texture);
+            if (keptIndex != null) {
+                command.setTextureIndex(keptIndex);
+                continue;
+            }
+
+            int width = texture.getWidth();
+            int height = texture.getHeight();
+
+            Region region = findRegion(regionsByTexture.get(textureIndex), command, width, height);
+            Atlas atlas = region.atlas;
+
+            for (int i = 0; i < command.getVertexCount(); i++) {
+                float x = command.getU(i) * width - region.left + region.x;
+                float y = command.getV(i) * height - region.top + region.y;
+
+                command.setUV(i, Math.min(1, Math.max(0, x / atlas.width)), Math.min(1, Math.max(0, y / atlas.height)));
+            }
+
+            command.setTextureIndex(atlas.index);
+        }
+    }
+
+    private static Region findRegion(List<Region> regions, ShapeDrawBitmapCommand command, int width, int height) {
+        float u = 0, v = 0;
+        for (int i = 0; i < command.getVertexCount(); i++) {
+            u += command.getU(i);
+            v += command.getV(i);
+        }
+
+        // Regions contain whole commands, so the centroid of the command is enough to find its region
+        int x = clamp((int) (u / command.getVertexCount() * width), 0, width - 1);
+        int y = clamp((int) (v / command.getVertexCount() * height), 0, height - 1);
+        for (Region region : regions) {
+            if (x >= region.left && x < region.right && y >= region.top && y < region.bottom) {
+                return region;
+            }
+        }
+
+        throw new IllegalStateException("Command isn't covered by any region of texture " + command.getTextureIndex());
+    }
+
+    private static long countPixels(List<SWFTexture> textures) {
+        long pixelCount = 0;
+        for (SWFTexture texture : textures) {
+            pixelCount += (long) texture.getWidth() * texture.getHeight();
+        }
+
+        return pixelCount;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private record GroupKey(Tag tag, TextureType type) {
+    }
+
+    private static final class Atlas {
+        private final GroupKey key;
+        private final MaxRectsPacker packer;
+        private final List<Region> regions = new ArrayList<>();
+        private int width, height;
+        private int index;
+
+        private Atlas(GroupKey key, MaxRectsPacker packer) {
+            this.key = key;
+            this.packer = packer;
+        }
+    }
+
+    /**
+     * Used region of a source texture and its position in the atlas.
+     */
+    private static final class Region {
+        private final SWFTexture texture;
+        private final int left, top, right, bottom;
+
+        private Atlas atlas;
+        private int x, y;
+
+        private Region(SWFTexture texture, int left, int top, int right, int bottom) {
+            this.texture = texture;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        private int getWidth() {
+            return right - left;
+        }
+
+        private int getHeight() {
+            return bottom - top;
+        }
+
+        private boolean overlaps(Region other) {
+            return left < other.right && other.left < right && top < other.bottom && other.top < bottom;
+        }
+
+        private Region union(Region other) {
+            return new Region(texture, Math.min(left, other.left), Math.min(top, other.top), Math.max(right, other.right), Math.max(bottom, other.bottom));
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package dev.donutquine.swf.textures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * KTX1/KTX2 container header and level index over the texture payload.
+ *
+ * <p>All returned buffers are views of the parsed buffer, so mip levels and faces can be uploaded without copying.</p>
+ *
+ * @since 1.1.7
+ */
+public final class KhronosTexture {
+    private static final byte[] KTX1_IDENTIFIER = {(byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'};
+    private static final byte[] KTX2_IDENTIFIER = {(byte) 0xAB, 'K', 'T', 'X', ' ', '2', '0', (byte) 0xBB, '\r', '\n', 0x1A, '\n'};
+    private static final int KTX1_ENDIANNESS = 0x04030201;
+    private static final int KTX1_HEADER_SIZE = 64;
+    private static final int KTX2_HEADER_SIZE = 80;
+    private static final int KTX2_LEVEL_INDEX_ENTRY_SIZE = 24;
+
+    public enum SupercompressionScheme {
+        NONE,
+        BASIS_LZ,
+        ZSTANDARD,
+        ZLIB;
+
+        private static SupercompressionScheme getById(int id) {
+            SupercompressionScheme[] values = values();
+            if (id < 0 || id >= values.length) {
+                throw new IllegalArgumentException("Unknown supercompression scheme: " + id);
+            }
+
+            return values[id];
+        }
+    }
+
+    private final ByteBuffer data;
+    private final int version;
+
+    private int glType;
+    private int glFormat;
+    private int glInternalFormat;
+    private int glBaseInternalFormat;
+    private int vkFormat;
+    private int typeSize;
+
+    private int width;
+    private int height;
+    private int depth;
+    private int layerCount;
+    private int faceCount;
+    private int levelCount;
+
+    private SupercompressionScheme supercompressionScheme = SupercompressionScheme.NONE;
+    private ByteBuffer keyValueData;
+    private ByteBuffer dataFormatDescriptor;
+    private ByteBuffer supercompressionGlobalData;
+
+    private int[] levelOffsets;
+    private int[] levelLengths;
+    private long[] uncompressedLevelLengths;
+    // Distance between images (layer faces) of a level, differs from the image length by the cube padding
+    private int[] imageStrides;
+    private int[] imageLengths;
+
+    private KhronosTexture(ByteBuffer data, int version) {
+        this.data = data;
+        this.version = version;
+    }
+
+    /**
+     * Parses the header and the level index. Data is not copied.
+     *
+     * @param buffer buffer positioned at the start of KTX data
+     * @throws IllegalArgumentException if the data isn't a valid KTX file
+     */
+    public static KhronosTexture parse(ByteBuffer buffer) {
+        ByteBuffer data = buffer.slice();
+
+        if (startsWith(data, KTX1_IDENTIFIER)) {
+            KhronosTexture texture = new KhronosTexture(data, 1);
+            texture.parseKtx1();
+            return texture;
+        }
+
+        if (startsWith(data, KTX2_IDENTIFIER)) {
+            KhronosTexture texture = new KhronosTexture(data.order(ByteOrder.LITTLE_ENDIAN), 2);
+            texture.parseKtx2();
+            return texture;
+        }
+
+        throw new IllegalArgumentException("Data doesn't start with a KTX identifier");
+    }
+
+    /**
+     * @return container version, 1 or 2
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return OpenGL internal format, 0 for KTX2 textures
+     */
+    public int getGlInternalFormat() {
+        return glInternalFormat;
+    }
+
+    /**
+     * @return OpenGL format, 0 for compressed and KTX2 textures
+     */
+    public int getGlFormat() {
+        return glFormat;
+    }
+
+    /**
+     * @return OpenGL type, 0 for compressed and KTX2 textures
+     */
+    public int getGlType() {
+        return glType;
+    }
+
+    /**
+     * @return OpenGL base internal format, 0 for KTX2 textures
+     */
+    public int getGlBaseInternalFormat() {
+        return glBaseInternalFormat;
+    }
+
+    /**
+     * @return Vulkan format, 0 for KTX1 textures and KTX2 textures with a BasisLZ payload
+     */
+    public int getVkFormat() {
+        return vkFormat;
+    }
+
+    public int getTypeSize() {
+        return typeSize;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return depth, 0 for 2D textures
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return array layer count, 0 for non-array textures
+     */
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    /**
+     * @return mip level count stored in the file, at least 1
+     */
+    public int getLevelCount() {
+        return levelOffsets.length;
+    }
+
+    /**
+     * @return whether the header requests mip levels to be generated at load time
+     */
+    public boolean isMipmapGenerationRequested() {
+        return levelCount == 0;
+    }
+
+    public SupercompressionScheme getSupercompressionScheme() {
+        return supercompressionScheme;
+    }
+
+    public boolean isSupercompressed() {
+        return supercompressionScheme != SupercompressionScheme.NONE;
+    }
+
+    public int getLevelWidth(int level) {
+        return Math.max(1, width >> checkLevel(level));
+    }
+
+    public int getLevelHeight(int level) {
+        return Math.max(1, height >> checkLevel(level));
+    }
+
+    /**
+     * Returns data of the whole mip level, including all layers and faces.
+     * The data is supercompressed if {@link #isSupercompressed()} is true.
+     */
+    public ByteBuffer getLevel(int level) {
+        checkLevel(level);
+        return slice(levelOffsets[level], levelLengths[level]);
+    }
+
+    /**
+     * @return level length in bytes after supercompression is removed
+     */
+    public long getUncompressedLevelLength(int level) {
+        return uncompressedLevelLengths[checkLevel(level)];
+    }
+
+    /**
+     * Returns data of a single image of the level, e.g. a cube map face.
+     *
+     * @throws IllegalStateException if the data is supercompressed, so images cannot be sliced without decompressing
+     */
+    public ByteBuffer getImage(int level, int layer, int face) {
+        checkLevel(level);
+
+        if (isSupercompressed()) {
+            throw new IllegalStateException("Level data is supercompressed with " + supercompressionScheme);
+        }
+
+        if (layer < 0 || layer >= Math.max(1, layerCount)) {
+            throw new IndexOutOfBoundsException("Layer " + layer + " out of bounds for count " + layerCount);
+        }
+
+        if (face < 0 || face >= faceCount) {
+            throw new IndexOutOfBoundsException("Face " + face + " out of bounds for count " + faceCount);
+        }
+
+        int imageIndex = layer * faceCount + face;
+        return slice(levelOffsets[level] + imageIndex * imageStrides[level], imageLengths[level]);
+    }
+
+    /**
+     * @return key/value data or {@code null} if there is none
+     */
+    public ByteBuffer getKeyValueData() {
+        return duplicate(keyValueData);
+    }
+
+    /**
+     * @return KTX2 data format descriptor or {@code null} for KTX1 textures
+     */
+    public ByteBuffer getDataFormatDescriptor() {
+        return duplicate(dataFormatDescriptor);
+    }
+
+    /**
+     * @return KTX2 supercompression global data (e.g. BasisLZ codebooks) or {@code null} if there is none
+     */
+    public ByteBuffer getSupercompressionGlobalData() {
+        return duplicate(supercompressionGlobalData);
+    }
+
+    @Override
+    public String toString() {
+        return "KhronosTexture{" + "version=" + version + ", glInternalFormat=" + glInternalFormat + ", vkFormat=" + vkFormat + ", width=" + width + ", height=" + height + ", depth=" + depth + ", layerCount=" + layerCount + ", faceCount=" + faceCount + ", levelCount=" + getLevelCount() + ", supercompressionScheme=" + supercompressionScheme + '}';
+    }
+
+    private void parseKtx1() {
+        checkLength(KTX1_HEADER_SIZE);
+
+        int endianness = data.order(ByteOrder.LITTLE_ENDIAN).getInt(12);
+        if (endianness != KTX1_ENDIANNESS) {
+            data.order(ByteOrder.BIG_ENDIAN);
+            if (data.getInt(12) != KTX1_ENDIANNESS) {
+                throw new IllegalArgumentException("Invalid KTX endianness: " + Integer.toHexString(endianness));
+            }
+        }
+
+        glType = data.getInt(16);
+        typeSize = data.getInt(20);
+        glFormat = data.getInt(24);
+        glInternalFormat = data.getInt(28);
+        glBaseInternalFormat = data.getInt(32);
+        width = data.getInt(36);
+        height = data.getInt(40);
+        depth = data.getInt(44);
+        layerCount = data.getInt(48);
+        faceCount = data.getInt(52);
+        levelCount = data.getInt(56);
+        int keyValueDataLength = data.getInt(60);
+        if (keyValueDataLength < 0) {
+            throw new IllegalArgumentException("Invalid KTX key/value data length: " + keyValueDataLength);
+        }
+
+        validateDimensions();
+
+        checkLength((long) KTX1_HEADER_SIZE + keyValueDataLength);
+        if (keyValueDataLength > 0) {
+            keyValueData = slice(KTX1_HEADER_SIZE, keyValueDataLength);
+        }
+
+        int levels = Math.max(1, levelCount);
+        allocateLevelIndex(levels);
+
+        // Non-array cube maps store each face separately with its own padding
+        boolean isNonArrayCubeMap = layerCount == 0 && faceCount == 6;
+        int imageCount = Math.max(1, layerCount) * faceCount;
+
+        int position = KTX1_HEADER_SIZE + keyValueDataLength;
+        for (int level = 0; level < levels; level++) {
+            checkLength(position + Integer.BYTES);
+            int imageSize = data.getInt(position);
+            if (imageSize < 0) {
+                throw new IllegalArgumentException("Invalid KTX image size of level " + level + ": " + imageSize);
+            }
+
+            position += Integer.BYTES;
+
+            int levelLength;
+            if (isNonArrayCubeMap) {
+                // Computed in long, so oversized faces are reported as truncated data instead of overflowing
+                long cubeMapLength = ((imageSize + 3L) & ~3L) * (faceCount - 1) + imageSize;
+                checkLength(position + cubeMapLength);
+                imageLengths[level] = imageSize;
+                imageStrides[level] = align4(imageSize);
+                levelLength = (int) cubeMapLength;
+            } else {
+                imageLengths[level] = imageSize / imageCount;
+                imageStrides[level] = imageLengths[level];
+                levelLength = imageSize;
+            }
+
+            checkLength((long) position + levelLength);
+
+            levelOffsets[level] = position;
+            levelLengths[level] = levelLength;
+            uncompressedLevelLengths[level] = levelLength;
+
+            position = align4(position + levelLength);
+        }
+    }
+
+    private void parseKtx2() {
+        checkLength(KTX2_HEADER_SIZE);
+
+        vkFormat = data.getInt(12);
+        typeSize = data.getInt(16);
+        width = data.getInt(20);
+        height = data.getInt(24);
+        depth = data.getInt(28);
+        layerCount = data.getInt(32);
+        faceCount = data.getInt(36);
+        levelCount = data.getInt(40);
+        supercompressionScheme = SupercompressionScheme.getById(data.getInt(44));
+
+        validateDimensions();
+
+        dataFormatDescriptor = sliceOrNull(Integer.toUnsignedLong(data.getInt(48)), Integer.toUnsignedLong(data.getInt(52)));
+        keyValueData = sliceOrNull(Integer.toUnsignedLong(data.getInt(56)), Integer.toUnsignedLong(data.getInt(60)));
+        supercompressionGlobalData = sliceOrNull(data.getLong(64), data.getLong(72));
+
+        int levels = Math.max(1, levelCount);
+        allocateLevelIndex(levels);
+        checkLength(KTX2_HEADER_SIZE + levels * KTX2_LEVEL_INDEX_ENTRY_SIZE);
+
+        int imageCount = Math.max(1, layerCount) * faceCount;
+        for (int level = 0; level < levels; level++) {
+            int entryPosition = KTX2_HEADER_SIZE + level * KTX2_LEVEL_INDEX_ENTRY_SIZE;
+            int offset = toInt(data.getLong(entryPosition));
+            int length = toInt(data.getLong(entryPosition + 8));
+
+            checkLength((long) offset + length);
+
+            levelOffsets[level] = offset;
+            levelLengths[level] = length;
+            uncompressedLevelLengths[level] = data.getLong(entryPosition + 16);
+            imageLengths[level] = length / imageCount;
+            imageStrides[level] = imageLengths[level];
+        }
+    }
+
+    private void allocateLevelIndex(int levels) {
+        levelOffsets = new int[levels];
+        levelLengths = new int[levels];
+        uncompressedLevelLengths = new long[levels];
+        imageStrides = new int[levels];
+        imageLengths = new int[levels];
+    }
+
+    private void validateDimensions() {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Invalid KTX width: " + width);
+        }
+
+        if (faceCount != 1 && faceCount != 6) {
+            throw new IllegalArgumentException("Invalid KTX face count: " + faceCount);
+        }
+
+        if (levelCount < 0 || levelCount > 32) {
+            throw new IllegalArgumentException("Invalid KTX level count: " + levelCount);
+        }
+    }
+
+    private ByteBuffer sliceOrNull(long offset, long length) {
+        if (length == 0) {
+            return null;
+        }
+
+        checkLength(offset + length);
+        return slice(toInt(offset), toInt(length));
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        return data.slice(offset, length).order(data.order());
+    }
+
+    private int checkLevel(int level) {
+        if (level < 0 || level >= levelOffsets.length) {
+            throw new IndexOutOfBoundsException("Level " + level + " out of bounds for count " + levelOffsets.length);
+        }
+
+        return level;
+    }
+
+    private void checkLength(long length) {
+        if (length > data.limit()) {
+            throw new IllegalArgumentException("KTX data is truncated: expected at least " + length + " bytes, but got " + data.limit());
+        }
+    }
+
+    private static ByteBuffer duplicate(ByteBuffer buffer) {
+        return buffer != null ? buffer.duplicate().order(buffer.order()) : null;
+    }
+
+    private static int toInt(long value) {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("KTX offset is out of supported range: " + value);
+        }
+
+        return (int) value;
+    }
+
+    private static int align4(int value) {
+        return (value + 3) & ~3;
+    }
+
+    private static boolean startsWith(ByteBuffer data, byte[] identifier) {
+        if (data.remaining() < identifier.length) {
+            return false;
+        }
+
+        for (int i = 0; i < identifier.length; i++) {
+            if (data.get(i) != identifier[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
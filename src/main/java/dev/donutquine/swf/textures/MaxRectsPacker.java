@@ -0,0 +1,131 @@
+package dev.donutquine.swf.textures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MaxRects bin packer with the best short side fit heuristic, rectangles aren't rotated.
+ *
+ * <p>Free space is kept as a list of maximal free rectangles, which may overlap. Placing a rectangle splits
+ * every free rectangle it intersects and free rectangles contained in others are pruned.</p>
+ */
+final class MaxRectsPacker {
+    private final List<Area> freeAreas = new ArrayList<>();
+
+    private int usedWidth;
+    private int usedHeight;
+
+    MaxRectsPacker(int width, int height) {
+        this.freeAreas.add(new Area(0, 0, width, height));
+    }
+
+    /**
+     * @return placed area or {@code null} if there is no space for it
+     */
+    Area insert(int width, int height) {
+        Area best = null;
+        int bestShortSide = Integer.MAX_VALUE;
+        int bestLongSide = Integer.MAX_VALUE;
+
+        for (Area free : this.freeAreas) {
+            if (free.width < width || free.height < height) continue;
+
+            int leftoverX = free.width - width;
+            int leftoverY = free.height - height;
+            int shortSide = Math.min(leftoverX, leftoverY);
+            int longSide = Math.max(leftoverX, leftoverY);
+
+            if (shortSide < bestShortSide || shortSide == bestShortSide && longSide < bestLongSide) {
+                best = new Area(free.x, free.y, width, height);
+                bestShortSide = shortSide;
+                bestLongSide = longSide;
+            }
+        }
+
+        if (best != null) {
+            place(best);
+        }
+
+        return best;
+    }
+
+    /**
+     * @return width of the bounding box of placed areas
+     */
+    int getUsedWidth() {
+        return usedWidth;
+    }
+
+    /**
+     * @return height of the bounding box of placed areas
+     */
+    int getUsedHeight() {
+        return usedHeight;
+    }
+
+    private void place(Area area) {
+        List<Area> splitAreas = new ArrayList<>();
+
+        for (int i = this.freeAreas.size() - 1; i >= 0; i--) {
+            Area free = this.freeAreas.get(i);
+            if (!free.intersects(area)) continue;
+
+            this.freeAreas.remove(i);
+
+            if (area.x > free.x) {
+                splitAreas.add(new Area(free.x, free.y, area.x - free.x, free.height));
+            }
+            if (area.getRight() < free.getRight()) {
+                splitAreas.add(new Area(area.getRight(), free.y, free.getRight() - area.getRight(), free.height));
+            }
+            if (area.y > free.y) {
+                splitAreas.add(new Area(free.x, free.y, free.width, area.y - free.y));
+            }
+            if (area.getBottom() < free.getBottom()) {
+                splitAreas.add(new Area(free.x, area.getBottom(), free.width, free.getBottom() - area.getBottom()));
+            }
+        }
+
+        this.freeAreas.addAll(splitAreas);
+        this.pruneFreeAreas();
+
+        this.usedWidth = Math.max(this.usedWidth, area.getRight());
+        this.usedHeight = Math.max(this.usedHeight, area.getBottom());
+    }
+
+    private void pruneFreeAreas() {
+        for (int i = 0; i < this.freeAreas.size(); i++) {
+            for (int j = i + 1; j < this.freeAreas.size(); j++) {
+                Area first = this.freeAreas.get(i);
+                Area second = this.freeAreas.get(j);
+
+                if (second.contains(first)) {
+                    this.freeAreas.remove(i--);
+                    break;
+                }
+
+                if (first.contains(second)) {
+                    this.freeAreas.remove(j--);
+                }
+            }
+        }
+    }
+
+    record Area(int x, int y, int width, int height) {
+        int getRight() {
+            return x + width;
+        }
+
+        int getBottom() {
+            return y + height;
+        }
+
+        boolean intersects(Area other) {
+            return x < other.getRight() && other.x < getRight() && y < other.getBottom() && other.y < getBottom();
+        }
+
+        boolean contains(Area other) {
+            return x <= other.x && y <= other.y && getRight() >= other.getRight() && getBottom() >= other.getBottom();
+        }
+    }
+}
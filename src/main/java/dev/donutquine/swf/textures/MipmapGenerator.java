@@ -0,0 +1,54 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.TextureType;
+
+import java.nio.Buffer;
+import java.util.stream.IntStream;
+
+/**
+ * Generates mip chains with {@link TextureDownsampler}.
+ *
+ * <p>Levels follow OpenGL sizes, i.e. {@code max(1, size >> level)}, down to 1x1. Each level is downsampled
+ * from the RGBA8 pixels of the previous one, so quantization errors don't accumulate, and levels are
+ * packed into the texture type in parallel.</p>
+ *
+ * @since 1.1.7
+ */
+public final class MipmapGenerator {
+    private MipmapGenerator() {
+    }
+
+    /**
+     * @return number of levels in the full mip chain of the given size, including the base level
+     */
+    public static int getLevelCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(1, Math.max(width, height)));
+    }
+
+    public static int getLevelSize(int size, int level) {
+        return Math.max(1, size >> level);
+    }
+
+    /**
+     * @param pixels base level pixels as stored in {@link SWFTexture}
+     * @return pixel buffers of levels starting from 1, empty for 1x1 textures
+     */
+    public static Buffer[] generate(Buffer pixels, TextureType type, int width, int height) {
+        int levelCount = getLevelCount(width, height);
+
+        int[][] rgbaLevels = new int[levelCount][];
+        rgbaLevels[0] = PixelFormatConverter.toRgba8(pixels, type, width, height);
+
+        for (int level = 1; level < levelCount; level++) {
+            rgbaLevels[level] = TextureDownsampler.downsample(rgbaLevels[level - 1],
+                getLevelSize(width, level - 1), getLevelSize(height, level - 1),
+                getLevelSize(width, level), getLevelSize(height, level));
+        }
+
+        Buffer[] levels = new Buffer[levelCount - 1];
+        IntStream.range(1, levelCount).parallel().forEach(level ->
+            levels[level - 1] = PixelFormatConverter.fromRgba8(rgbaLevels[level], type, getLevelSize(width, level), getLevelSize(height, level)));
+
+        return levels;
+    }
+}
@@ -0,0 +1,253 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.TextureType;
+import dev.donutquine.utilities.BufferUtils;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Converts texture pixels between {@link TextureType} layouts and RGBA8.
+ *
+ * <p>RGBA8 pixels are ints with red in the lowest byte and alpha in the highest one,
+ * i.e. the layout of {@link TextureType#TYPE_0} pixels. Large textures are converted
+ * by bands of rows in parallel.</p>
+ *
+ * @since 1.1.7
+ */
+public final class PixelFormatConverter {
+    // Smaller textures aren't worth splitting between threads
+    static final int PARALLEL_PIXEL_THRESHOLD = 256 * 256;
+    static final int ROWS_PER_BAND = 32;
+
+    private PixelFormatConverter() {
+    }
+
+    /**
+     * @return RGBA8 pixels of the texture
+     */
+    public static int[] toRgba8(SWFTexture texture) {
+        Buffer pixels = texture.acquirePixels();
+        try {
+            return toRgba8(pixels, texture.getType(), texture.getWidth(), texture.getHeight());
+        } finally {
+            texture.releasePixels();
+        }
+    }
+
+    /**
+     * Expands pixels of the given type into RGBA8.
+     *
+     * @param pixels pixel buffer as stored in {@link SWFTexture}
+     * @return RGBA8 pixels
+     */
+    public static int[] toRgba8(Buffer pixels, TextureType type, int width, int height) {
+        int pixelCount = validate(pixels, type, width, height);
+        int[] rgba = new int[pixelCount];
+
+        forEachBand(width, height, (start, end) -> {
+            switch (type.pixelBytes) {
+                case 1 -> {
+                    byte[] row = new byte[end - start];
+                    ((ByteBuffer) pixels).get(start, row);
+                    expandLuminance(row, rgba, start);
+                }
+                case 2 -> {
+                    short[] row = new short[end - start];
+                    ((ShortBuffer) pixels).get(start, row);
+                    expandShorts(type, row, rgba, start);
+                }
+                case 4 -> ((IntBuffer) pixels).get(start, rgba, start, end - start);
+                default -> throw new IllegalArgumentException("Unsupported texture type: " + type);
+            }
+        });
+
+        return rgba;
+    }
+
+    /**
+     * Packs RGBA8 pixels into the given type. Channels are rounded to the nearest representable value,
+     * luminance types take luma of the color.
+     *
+     * @param rgba RGBA8 pixels
+     * @return direct pixel buffer as stored in {@link SWFTexture}
+     */
+    public static Buffer fromRgba8(int[] rgba, TextureType type, int width, int height) {
+        if (rgba.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels but got " + rgba.length);
+        }
+
+        return switch (type.pixelBytes) {
+            case 1 -> {
+                byte[] pixels = new byte[rgba.length];
+                forEachBand(width, height, (start, end) -> packLuminance(rgba, pixels, start, end));
+                yield TextureMemory.wrap(pixels);
+            }
+            case 2 -> {
+                short[] pixels = new short[rgba.length];
+                forEachBand(width, height, (start, end) -> packShorts(type, rgba, pixels, start, end));
+                yield TextureMemory.wrap(pixels);
+            }
+            case 4 -> TextureMemory.wrap(rgba);
+            default -> throw new IllegalArgumentException("Unsupported texture type: " + type);
+        };
+    }
+
+    /**
+     * Converts pixels between types through RGBA8.
+     *
+     * @return direct pixel buffer of the target type
+     */
+    public static Buffer convert(Buffer pixels, TextureType sourceType, TextureType targetType, int width, int height) {
+        return fromRgba8(toRgba8(pixels, sourceType, width, height), targetType, width, height);
+    }
+
+    private static void expandLuminance(byte[] source, int[] rgba, int offset) {
+        for (int i = 0; i < source.length; i++) {
+            int l = source[i] & 0xFF;
+            rgba[offset + i] = 0xFF000000 | l << 16 | l << 8 | l;
+        }
+    }
+
+    private static void expandShorts(TextureType type, short[] source, int[] rgba, int offset) {
+        // Loops are kept separate per format, so each of them is a simple loop the JIT can vectorize
+        switch (type) {
+            case TYPE_2, TYPE_8 -> {
+                for (int i = 0; i < source.length; i++) {
+                    int p = source[i];
+                    int r = (p >> 12 & 0xF) * 17;
+                    int g = (p >> 8 & 0xF) * 17;
+                    int b = (p >> 4 & 0xF) * 17;
+                    int a = (p & 0xF) * 17;
+                    rgba[offset + i] = a << 24 | b << 16 | g << 8 | r;
+                }
+            }
+            case TYPE_3 -> {
+                for (int i = 0; i < source.length; i++) {
+                    int p = source[i];
+                    int r = expand5(p >> 11 & 0x1F);
+                    int g = expand5(p >> 6 & 0x1F);
+                    int b = expand5(p >> 1 & 0x1F);
+                    int a = -(p & 1) & 0xFF;
+                    rgba[offset + i] = a << 24 | b << 16 | g << 8 | r;
+                }
+            }
+            case TYPE_4 -> {
+                for (int i = 0; i < source.length; i++) {
+                    int p = source[i];
+                    int r = expand5(p >> 11 & 0x1F);
+                    int g = expand6(p >> 5 & 0x3F);
+                    int b = expand5(p & 0x1F);
+                    rgba[offset + i] = 0xFF000000 | b << 16 | g << 8 | r;
+                }
+            }
+            case TYPE_6 -> {
+                // Luminance is the first byte in the file, so it's the low byte of the little-endian short
+                for (int i = 0; i < source.length; i++) {
+                    int p = source[i];
+                    int l = p & 0xFF;
+                    int a = p >> 8 & 0xFF;
+                    rgba[offset + i] = a << 24 | l << 16 | l << 8 | l;
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported texture type: " + type);
+        }
+    }
+
+    private static void packLuminance(int[] rgba, byte[] pixels, int start, int end) {
+        for (int i = start; i < end; i++) {
+            pixels[i] = (byte) luma(rgba[i]);
+        }
+    }
+
+    private static void packShorts(TextureType type, int[] rgba, short[] pixels, int start, int end) {
+        switch (type) {
+            case TYPE_2, TYPE_8 -> {
+                for (int i = start; i < end; i++) {
+                    int p = rgba[i];
+                    pixels[i] = (short) (quantize(p & 0xFF, 15) << 12 | quantize(p >> 8 & 0xFF, 15) << 8 | quantize(p >> 16 & 0xFF, 15) << 4 | quantize(p >>> 24, 15));
+                }
+            }
+            case TYPE_3 -> {
+                for (int i = start; i < end; i++) {
+                    int p = rgba[i];
+                    pixels[i] = (short) (quantize(p & 0xFF, 31) << 11 | quantize(p >> 8 & 0xFF, 31) << 6 | quantize(p >> 16 & 0xFF, 31) << 1 | p >>> 31);
+                }
+            }
+            case TYPE_4 -> {
+                for (int i = start; i < end; i++) {
+                    int p = rgba[i];
+                    pixels[i] = (short) (quantize(p & 0xFF, 31) << 11 | quantize(p >> 8 & 0xFF, 63) << 5 | quantize(p >> 16 & 0xFF, 31));
+                }
+            }
+            case TYPE_6 -> {
+                for (int i = start; i < end; i++) {
+                    int p = rgba[i];
+                    pixels[i] = (short) ((p >>> 24) << 8 | luma(p));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported texture type: " + type);
+        }
+    }
+
+    static int expand5(int value) {
+        return value << 3 | value >> 2;
+    }
+
+    static int expand6(int value) {
+        return value << 2 | value >> 4;
+    }
+
+    /**
+     * Rounds 8-bit channel to the nearest value of the given maximum.
+     */
+    static int quantize(int value, int max) {
+        return (value * max + 127) / 255;
+    }
+
+    /**
+     * Integer Rec. 601 luma, exact for gray colors.
+     */
+    static int luma(int rgba) {
+        return ((rgba & 0xFF) * 77 + (rgba >> 8 & 0xFF) * 150 + (rgba >> 16 & 0xFF) * 29 + 128) >> 8;
+    }
+
+    private static int validate(Buffer pixels, TextureType type, int width, int height) {
+        if (pixels == null) {
+            throw new IllegalArgumentException("Texture has no pixels");
+        }
+
+        int pixelCount = width * height;
+        if (BufferUtils.getByteCapacity(pixels) != pixelCount * type.pixelBytes) {
+            throw new IllegalArgumentException("Expected " + pixelCount * type.pixelBytes + " bytes but got " + BufferUtils.getByteCapacity(pixels));
+        }
+
+        return pixelCount;
+    }
+
+    private static void forEachBand(int width, int height, BandConverter converter) {
+        if (width * height < PARALLEL_PIXEL_THRESHOLD) {
+            converter.convert(0, width * height);
+            return;
+        }
+
+        int bandCount = (height + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+        IntStream.range(0, bandCount).parallel().forEach(band -> {
+            int startRow = band * ROWS_PER_BAND;
+            int endRow = Math.min(height, startRow + ROWS_PER_BAND);
+            converter.convert(startRow * width, endRow * width);
+        });
+    }
+
+    @FunctionalInterface
+    private interface BandConverter {
+        /**
+         * @param start first pixel index, inclusive
+         * @param end   last pixel index, exclusive
+         */
+        void convert(int start, int end);
+    }
+}
@@ -0,0 +1,398 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.SupercellSWF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes textures of any {@link dev.donutquine.swf.TextureType} as 8-bit RGBA PNG images.
+ *
+ * <p>Every row gets the filter with the smallest sum of absolute differences, as libpng does. Filtered rows
+ * are split into chunks, which are filtered and deflated independently on the executor, like pigz does.
+ * Each chunk is primed with the last 32 KiB of the previous chunk, so the compression ratio stays close to
+ * a single stream. Chunks are written to the channel as IDAT chunks in order as soon as they are deflated.</p>
+ *
+ * @since 1.1.7
+ */
+public final class PngTextureExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PngTextureExporter.class);
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int BIT_DEPTH = 8;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_SUB = 1;
+    private static final int FILTER_UP = 2;
+    private static final int FILTER_AVERAGE = 3;
+    private static final int FILTER_PAETH = 4;
+
+    // Uncompressed bytes per deflate chunk, the same as the default pigz block size
+    static final int CHUNK_SIZE = 128 * 1024;
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private PngTextureExporter() {
+    }
+
+    /**
+     * Writes the texture to the file on the common pool.
+     *
+     * @throws IllegalArgumentException if the texture doesn't contain pixels, e.g. KTX textures
+     */
+    public static void write(SWFTexture texture, Path path) throws IOException {
+        write(texture, path, ForkJoinPool.commonPool());
+    }
+
+    public static void write(SWFTexture texture, Path path, Executor executor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(texture, channel, executor);
+        }
+    }
+
+    /**
+     * Writes the texture to the channel, chunks are deflated on the executor. The channel isn't closed.
+     *
+     * @throws IllegalArgumentException if the texture doesn't contain pixels, e.g. KTX textures
+     */
+    public static void write(SWFTexture texture, WritableByteChannel channel, Executor executor) throws IOException {
+        Buffer pixels = texture.acquirePixels();
+        try {
+            if (pixels == null) {
+                throw new IllegalArgumentException("Cannot export texture without pixels: " + texture);
+            }
+
+            int[] rgba = PixelFormatConverter.toRgba8(pixels, texture.getType(), texture.getWidth(), texture.getHeight());
+            write(rgba, texture.getWidth(), texture.getHeight(), channel, executor);
+        } finally {
+            texture.releasePixels();
+        }
+    }
+
+    /**
+     * Writes RGBA8 pixels, see {@link PixelFormatConverter} for the layout.
+     */
+    public static void write(int[] rgba, int width, int height, WritableByteChannel channel, Executor executor) throws IOException {
+        Objects.requireNonNull(executor, "executor");
+        if (width <= 0 || height <= 0 || rgba.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels but got " + rgba.length);
+        }
+
+        int rowLength = 1 + width * BYTES_PER_PIXEL;
+        int rowsPerChunk = Math.max(1, CHUNK_SIZE / rowLength);
+        int chunkCount = (height + rowsPerChunk - 1) / rowsPerChunk;
+
+        List<CompletableFuture<DeflatedChunk>> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int firstRow = i * rowsPerChunk;
+            int lastRow = Math.min(height, firstRow + rowsPerChunk);
+            boolean isLast = i == chunkCount - 1;
+
+            chunks.add(CompletableFuture.supplyAsync(() -> deflateRows(rgba, width, firstRow, lastRow, isLast), executor));
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(width).putInt(height);
+        header.put((byte) BIT_DEPTH).put((byte) COLOR_TYPE_RGBA);
+        // Compression, filter and interlace methods
+        header.put((byte) 0).put((byte) 0).put((byte) 0);
+
+        writeFully(channel, ByteBuffer.wrap(SIGNATURE));
+        writeChunk(channel, "IHDR", header.flip());
+
+        // zlib header of deflate with 32 KiB window and default compression
+        writeChunk(channel, "IDAT", ByteBuffer.wrap(new byte[]{0x78, (byte) 0x9C}));
+
+        long adler = 1;
+        try {
+            for (CompletableFuture<DeflatedChunk> future : chunks) {
+                DeflatedChunk chunk = future.join();
+
+                writeChunk(channel, "IDAT", ByteBuffer.wrap(chunk.data(), 0, chunk.length()));
+                adler = combineAdler32(adler, chunk.adler(), chunk.rawLength());
+            }
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw exception;
+        }
+
+        writeChunk(channel, "IDAT", ByteBuffer.allocate(Integer.BYTES).putInt((int) adler).flip());
+        writeChunk(channel, "IEND", ByteBuffer.allocate(0));
+    }
+
+    /**
+     * Exports textures of all files to the directory concurrently. Files are named as
+     * {@code <filename without extension>_<texture index>.png}, textures without pixels are skipped.
+     *
+     * <p>Textures are encoded in parallel with each other, while chunks of one texture are deflated on its thread,
+     * so the executor is never blocked waiting for its own tasks.</p>
+     *
+     * @return future with paths of written files
+     */
+    public static CompletableFuture<List<Path>> exportAll(Collection<SupercellSWF> files, Path directory, Executor executor) {
+        Objects.requireNonNull(executor, "executor");
+
+        List<CompletableFuture<Path>> exports = new ArrayList<>();
+        for (SupercellSWF swf : files) {
+            String basename = getBasename(swf);
+
+            List<SWFTexture> textures = swf.getTextures();
+            for (int i = 0; i < textures.size(); i++) {
+                SWFTexture texture = textures.get(i);
+                String name = swf.getFilename();
+                Path path = directory.resolve(basename + "_" + i + ".png");
+
+                exports.add(CompletableFuture.supplyAsync(() -> exportTexture(texture, path, name), executor));
+            }
+        }
+
+        return CompletableFuture.allOf(exports.toArray(new CompletableFuture<?>[0]))
+            .thenApply(unused -> exports.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * @return path of the written file or {@code null} if the texture doesn't contain pixels
+     */
+    private static Path exportTexture(SWFTexture texture, Path path, String filename) {
+        // Without a pixel source pixels are already in memory, so checking them doesn't decode anything
+        if (texture.getPixelSource() == null && !texture.isPixelsLoaded()) {
+            LOGGER.warn("Skipping texture without pixels {} of {}", texture.getIndex(), filename);
+            return null;
+        }
+
+        try {
+            write(texture, path, Runnable::run);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return path;
+    }
+
+    private static String getBasename(SupercellSWF swf) {
+        String filename = swf.getPath() != null ? swf.getPath().getFileName().toString() : swf.getFilename();
+
+        int extensionIndex = filename.lastIndexOf('.');
+        return extensionIndex > 0 ? filename.substring(0, extensionIndex) : filename;
+    }
+
+    /**
+     * Filters and deflates rows, the dictionary is taken from rows preceding the chunk.
+     */
+    private static DeflatedChunk deflateRows(int[] rgba, int width, int firstRow, int lastRow, boolean isLast) {
+        int rowLength = 1 + width * BYTES_PER_PIXEL;
+        byte[] raw = new byte[(lastRow - firstRow) * rowLength];
+
+        byte[] previous = new byte[width * BYTES_PER_PIXEL];
+        byte[] current = new byte[width * BYTES_PER_PIXEL];
+        if (firstRow > 0) {
+            unpackRow(rgba, width, firstRow - 1, previous);
+        }
+
+        for (int y = firstRow; y < lastRow; y++) {
+            unpackRow(rgba, width, y, current);
+            filterRow(current, previous, raw, (y - firstRow) * rowLength);
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        Adler32 adler = new Adler32();
+        adler.update(raw);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (firstRow > 0) {
+                byte[] dictionary = filteredTail(rgba, width, firstRow);
+                deflater.setDictionary(dictionary);
+            }
+
+            deflater.setInput(raw);
+            if (isLast) {
+                deflater.finish();
+            }
+
+            byte[] output = new byte[raw.length / 2 + 64];
+            int length = 0;
+            while (true) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+
+                int flush = isLast ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+                length += deflater.deflate(output, length, output.length - length, flush);
+
+                // Sync flush is complete when the output isn't filled up, finish is complete when the deflater says so
+                if (isLast ? deflater.finished() : length < output.length) break;
+            }
+
+            return new DeflatedChunk(output, length, raw.length, adler.getValue());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Filters rows preceding the given one, which form the last {@link #DICTIONARY_SIZE} bytes
+     * of the filtered data before it.
+     */
+    private static byte[] filteredTail(int[] rgba, int width, int row) {
+        int rowLength = 1 + width * BYTES_PER_PIXEL;
+        int rowCount = Math.min(row, (DICTIONARY_SIZE + rowLength - 1) / rowLength);
+
+        byte[] filtered = new byte[rowCount * rowLength];
+        byte[] previous = new byte[width * BYTES_PER_PIXEL];
+        byte[] current = new byte[width * BYTES_PER_PIXEL];
+
+        int firstRow = row - rowCount;
+        if (firstRow > 0) {
+            unpackRow(rgba, width, firstRow - 1, previous);
+        }
+
+        for (int y = firstRow; y < row; y++) {
+            unpackRow(rgba, width, y, current);
+            filterRow(current, previous, filtered, (y - firstRow) * rowLength);
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        if (filtered.length <= DICTIONARY_SIZE) {
+            return filtered;
+        }
+
+        return Arrays.copyOfRange(filtered, filtered.length - DICTIONARY_SIZE, filtered.length);
+    }
+
+    private static void unpackRow(int[] rgba, int width, int y, byte[] row) {
+        int offset = y * width;
+        for (int x = 0, i = 0; x < width; x++) {
+            int pixel = rgba[offset + x];
+            row[i++] = (byte) pixel;
+            row[i++] = (byte) (pixel >> 8);
+            row[i++] = (byte) (pixel >> 16);
+            row[i++] = (byte) (pixel >>> 24);
+        }
+    }
+
+    /**
+     * Writes the filter type and the filtered row, choosing the filter with the minimal sum of absolute values.
+     */
+    private static void filterRow(byte[] row, byte[] previous, byte[] output, int offset) {
+        int bestFilter = FILTER_NONE;
+        long bestSum = Long.MAX_VALUE;
+
+        for (int filter = FILTER_NONE; filter <= FILTER_PAETH; filter++) {
+            long sum = 0;
+            for (int i = 0; i < row.length && sum < bestSum; i++) {
+                sum += Math.abs(filterByte(filter, row, previous, i));
+            }
+
+            if (sum < bestSum) {
+                bestSum = sum;
+                bestFilter = filter;
+            }
+        }
+
+        output[offset] = (byte) bestFilter;
+        for (int i = 0; i < row.length; i++) {
+            output[offset + 1 + i] = filterByte(bestFilter, row, previous, i);
+        }
+    }
+
+    private static byte filterByte(int filter, byte[] row, byte[] previous, int i) {
+        int x = row[i] & 0xFF;
+        int a = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xFF : 0;
+        int b = previous[i] & 0xFF;
+
+        return (byte) switch (filter) {
+            case FILTER_SUB -> x - a;
+            case FILTER_UP -> x - b;
+            case FILTER_AVERAGE -> x - ((a + b) >> 1);
+            case FILTER_PAETH -> x - paeth(a, b, i >= BYTES_PER_PIXEL ? previous[i - BYTES_PER_PIXEL] & 0xFF : 0);
+            default -> x;
+        };
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+
+        if (pa <= pb && pa <= pc) return a;
+        if (pb <= pc) return b;
+        return c;
+    }
+
+    /**
+     * @return Adler-32 of two concatenated sequences, the same as zlib adler32_combine
+     */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        final int base = 65521;
+
+        long remainder = length2 % base;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % base;
+        sum1 += (adler2 & 0xFFFF) + base - 1;
+        sum2 += (adler1 >> 16 & 0xFFFF) + (adler2 >> 16 & 0xFFFF) + base - remainder;
+
+        if (sum1 >= base) sum1 -= base;
+        if (sum1 >= base) sum1 -= base;
+        if (sum2 >= (long) base << 1) sum2 -= (long) base << 1;
+        if (sum2 >= base) sum2 -= base;
+
+        return sum1 | sum2 << 16;
+    }
+
+    private static void writeChunk(WritableByteChannel channel, String type, ByteBuffer data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(data.remaining()).put(typeBytes).flip();
+
+        writeFully(channel, header);
+        writeFully(channel, data);
+        writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip());
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private record DeflatedChunk(byte[] data, int length, int rawLength, long adler) {
+    }
+}
@@ -0,0 +1,429 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.Tag;
+import dev.donutquine.swf.TextureType;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes PNG images and packs them into textures of the requested type.
+ *
+ * <p>PNG image data is a single deflate stream, so it's inflated and unfiltered row by row while IDAT chunks
+ * are read, without keeping compressed or filtered data of the whole image. All color types, bit depths,
+ * transparency chunks and Adam7 interlacing are supported. Packing into the texture type is a single parallel pass
+ * of {@link PixelFormatConverter}, the result is laid out linearly as {@link SWFTexture} expects it,
+ * interlaced tags like {@link Tag#TEXTURE_5} are interlaced while saving.</p>
+ *
+ * @since 1.1.7
+ */
+public final class PngTextureImporter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_PALETTE = 3;
+    private static final int COLOR_TYPE_GRAY_ALPHA = 4;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    // Adam7 pass origins and steps
+    private static final int[] PASS_X = {0, 4, 0, 2, 0, 1, 0};
+    private static final int[] PASS_Y = {0, 0, 4, 0, 2, 0, 1};
+    private static final int[] PASS_STEP_X = {8, 8, 4, 4, 2, 2, 1};
+    private static final int[] PASS_STEP_Y = {8, 8, 8, 4, 4, 2, 2};
+
+    private PngTextureImporter() {
+    }
+
+    /**
+     * Decoded image, pixels are RGBA8 as described in {@link PixelFormatConverter}.
+     */
+    public record Image(int width, int height, int[] rgba) {
+    }
+
+    /**
+     * Decodes the image and creates a texture of the given tag and type. Mip levels are generated for tags having them.
+     *
+     * @throws IOException if the file can't be read or isn't a valid PNG image
+     */
+    public static SWFTexture importTexture(Path path, Tag tag, TextureType type) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return importTexture(inputStream, tag, type);
+        }
+    }
+
+    public static SWFTexture importTexture(InputStream inputStream, Tag tag, TextureType type) throws IOException {
+        Image image = decode(inputStream);
+
+        Buffer pixels = PixelFormatConverter.fromRgba8(image.rgba(), type, image.width(), image.height());
+        SWFTexture texture = new SWFTexture(tag, type, image.width(), image.height(), pixels);
+        if (tag.hasMipmaps()) {
+            texture.generateMipmaps();
+        }
+
+        return texture;
+    }
+
+    /**
+     * Decodes the image from the stream. The stream isn't closed.
+     *
+     * @throws IOException if the stream can't be read or doesn't contain a valid PNG image
+     */
+    public static Image decode(InputStream inputStream) throws IOException {
+        DataInputStream stream = new DataInputStream(inputStream instanceof BufferedInputStream ? inputStream : new BufferedInputStream(inputStream));
+
+        byte[] signature = new byte[SIGNATURE.length];
+        stream.readFully(signature);
+        if (!Arrays.equals(signature, SIGNATURE)) {
+            throw new IOException("Not a PNG image");
+        }
+
+        Header header = null;
+        Palette palette = new Palette();
+
+        while (true) {
+            int length = stream.readInt();
+            String type = readChunkType(stream);
+
+            switch (type) {
+                case "IHDR" -> {
+                    header = readHeader(stream);
+                    stream.skipNBytes(Integer.BYTES);
+                }
+                case "PLTE" -> {
+                    palette.readColors(stream, length);
+                    stream.skipNBytes(Integer.BYTES);
+                }
+                case "tRNS" -> {
+                    if (header == null) throw new IOException("tRNS chunk before IHDR");
+                    palette.readTransparency(stream, length, header.colorType);
+                    stream.skipNBytes(Integer.BYTES);
+                }
+                case "IDAT" -> {
+                    if (header == null) throw new IOException("IDAT chunk before IHDR");
+                    if (header.colorType == COLOR_TYPE_PALETTE && palette.colors == null) {
+                        throw new IOException("Palette image without PLTE chunk");
+                    }
+
+                    int[] rgba = decodeImageData(new ImageDataInputStream(stream, length), header, palette);
+                    return new Image(header.width, header.height, rgba);
+                }
+                case "IEND" -> throw new IOException("PNG image doesn't contain IDAT chunks");
+                default -> stream.skipNBytes(length + (long) Integer.BYTES);
+            }
+        }
+    }
+
+    private static int[] decodeImageData(ImageDataInputStream imageData, Header header, Palette palette) throws IOException {
+        int[] rgba = new int[header.width * header.height];
+
+        Inflater inflater = new Inflater();
+        try (InputStream stream = new InflaterInputStream(imageData, inflater, 64 * 1024)) {
+            if (header.interlaceMethod == 0) {
+                decodePass(stream, header, palette, rgba, 0, 0, 1, 1);
+            } else {
+                for (int pass = 0; pass < PASS_X.length; pass++) {
+                    decodePass(stream, header, palette, rgba, PASS_X[pass], PASS_Y[pass], PASS_STEP_X[pass], PASS_STEP_Y[pass]);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+
+        return rgba;
+    }
+
+    private static void decodePass(InputStream stream, Header header, Palette palette, int[] rgba, int originX, int originY, int stepX, int stepY) throws IOException {
+        int passWidth = (header.width - originX + stepX - 1) / stepX;
+        int passHeight = (header.height - originY + stepY - 1) / stepY;
+        if (passWidth <= 0 || passHeight <= 0) return;
+
+        int bitsPerPixel = header.getChannelCount() * header.bitDepth;
+        int rowLength = (passWidth * bitsPerPixel + 7) / 8;
+        int filterStride = Math.max(1, bitsPerPixel / 8);
+
+        byte[] previous = new byte[rowLength];
+        byte[] current = new byte[rowLength];
+
+        for (int y = 0; y < passHeight; y++) {
+            int filter = stream.read();
+            if (filter < 0 || stream.readNBytes(current, 0, rowLength) != rowLength) {
+                throw new EOFException("Unexpected end of PNG image data");
+            }
+
+            unfilterRow(filter, current, previous, filterStride);
+
+            int destinationRow = (originY + y * stepY) * header.width;
+            for (int x = 0; x < passWidth; x++) {
+                rgba[destinationRow + originX + x * stepX] = readPixel(current, x, header, palette);
+            }
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    private static void unfilterRow(int filter, byte[] row, byte[] previous, int stride) throws IOException {
+        switch (filter) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = stride; i < row.length; i++) {
+                    row[i] += row[i - stride];
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] += previous[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < row.length; i++) {
+                    int left = i >= stride ? row[i - stride] & 0xFF : 0;
+                    row[i] += (byte) ((left + (previous[i] & 0xFF)) >> 1);
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < row.length; i++) {
+                    int left = i >= stride ? row[i - stride] & 0xFF : 0;
+                    int upperLeft = i >= stride ? previous[i - stride] & 0xFF : 0;
+                    row[i] += (byte) paeth(left, previous[i] & 0xFF, upperLeft);
+                }
+            }
+            default -> throw new IOException("Unknown PNG filter type: " + filter);
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+
+        if (pa <= pb && pa <= pc) return a;
+        if (pb <= pc) return b;
+        return c;
+    }
+
+    private static int readPixel(byte[] row, int x, Header header, Palette palette) {
+        int bitDepth = header.bitDepth;
+
+        return switch (header.colorType) {
+            case COLOR_TYPE_GRAY -> {
+                int sample = readSample(row, x, bitDepth);
+                int gray = scaleTo8Bits(sample, bitDepth);
+                int alpha = sample == palette.transparentGray ? 0 : 0xFF;
+                yield alpha << 24 | gray * 0x010101;
+            }
+            case COLOR_TYPE_RGB -> {
+                int r = readSample(row, x * 3, bitDepth);
+                int g = readSample(row, x * 3 + 1, bitDepth);
+                int b = readSample(row, x * 3 + 2, bitDepth);
+                int alpha = r == palette.transparentRed && g == palette.transparentGreen && b == palette.transparentBlue ? 0 : 0xFF;
+                yield alpha << 24 | scaleTo8Bits(b, bitDepth) << 16 | scaleTo8Bits(g, bitDepth) << 8 | scaleTo8Bits(r, bitDepth);
+            }
+            case COLOR_TYPE_PALETTE -> palette.getColor(readSample(row, x, bitDepth));
+            case COLOR_TYPE_GRAY_ALPHA -> {
+                int gray = scaleTo8Bits(readSample(row, x * 2, bitDepth), bitDepth);
+                int alpha = scaleTo8Bits(readSample(row, x * 2 + 1, bitDepth), bitDepth);
+                yield alpha << 24 | gray * 0x010101;
+            }
+            default -> {
+                int r = scaleTo8Bits(readSample(row, x * 4, bitDepth), bitDepth);
+                int g = scaleTo8Bits(readSample(row, x * 4 + 1, bitDepth), bitDepth);
+                int b = scaleTo8Bits(readSample(row, x * 4 + 2, bitDepth), bitDepth);
+                int alpha = scaleTo8Bits(readSample(row, x * 4 + 3, bitDepth), bitDepth);
+                yield alpha << 24 | b << 16 | g << 8 | r;
+            }
+        };
+    }
+
+    /**
+     * @return sample with the given index in the row, big-endian for 16-bit samples
+     */
+    private static int readSample(byte[] row, int index, int bitDepth) {
+        return switch (bitDepth) {
+            case 8 -> row[index] & 0xFF;
+            case 16 -> (row[index * 2] & 0xFF) << 8 | row[index * 2 + 1] & 0xFF;
+            default -> {
+                int bitIndex = index * bitDepth;
+                int shift = 8 - bitDepth - (bitIndex & 7);
+                yield (row[bitIndex >> 3] & 0xFF) >> shift & (1 << bitDepth) - 1;
+            }
+        };
+    }
+
+    private static int scaleTo8Bits(int sample, int bitDepth) {
+        return switch (bitDepth) {
+            case 8 -> sample;
+            case 16 -> sample >> 8;
+            default -> sample * 255 / ((1 << bitDepth) - 1);
+        };
+    }
+
+    private static Header readHeader(DataInputStream stream) throws IOException {
+        int width = stream.readInt();
+        int height = stream.readInt();
+        int bitDepth = stream.readUnsignedByte();
+        int colorType = stream.readUnsignedByte();
+        int compressionMethod = stream.readUnsignedByte();
+        int filterMethod = stream.readUnsignedByte();
+        int interlaceMethod = stream.readUnsignedByte();
+
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Invalid PNG image size: %dx%d", width, height));
+        }
+
+        boolean isValidDepth = switch (colorType) {
+            case COLOR_TYPE_GRAY -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+            case COLOR_TYPE_PALETTE -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+            case COLOR_TYPE_RGB, COLOR_TYPE_GRAY_ALPHA, COLOR_TYPE_RGBA -> bitDepth == 8 || bitDepth == 16;
+            default -> false;
+        };
+
+        if (!isValidDepth || compressionMethod != 0 || filterMethod != 0 || interlaceMethod > 1) {
+            throw new IOException(String.format("Unsupported PNG format: color type %d, bit depth %d", colorType, bitDepth));
+        }
+
+        return new Header(width, height, bitDepth, colorType, interlaceMethod);
+    }
+
+    private static String readChunkType(DataInputStream stream) throws IOException {
+        byte[] type = new byte[4];
+        stream.readFully(type);
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    private record Header(int width, int height, int bitDepth, int colorType, int interlaceMethod) {
+        private int getChannelCount() {
+            return switch (colorType) {
+                case COLOR_TYPE_RGB -> 3;
+                case COLOR_TYPE_GRAY_ALPHA -> 2;
+                case COLOR_TYPE_RGBA -> 4;
+                default -> 1;
+            };
+        }
+    }
+
+    /**
+     * Palette colors and transparency, colors of the transparent key are stored as they are in the image.
+     */
+    private static final class Palette {
+        private int[] colors;
+        private int transparentGray = -1;
+        private int transparentRed = -1, transparentGreen = -1, transparentBlue = -1;
+
+        private void readColors(DataInputStream stream, int length) throws IOException {
+            colors = new int[length / 3];
+            for (int i = 0; i < colors.length; i++) {
+                int r = stream.readUnsignedByte();
+                int g = stream.readUnsignedByte();
+                int b = stream.readUnsignedByte();
+                colors[i] = 0xFF << 24 | b << 16 | g << 8 | r;
+            }
+
+            stream.skipNBytes(length % 3);
+        }
+
+        private void readTransparency(DataInputStream stream, int length, int colorType) throws IOException {
+            switch (colorType) {
+                case COLOR_TYPE_GRAY -> {
+                    transparentGray = stream.readUnsignedShort();
+                    stream.skipNBytes(length - 2);
+                }
+                case COLOR_TYPE_RGB -> {
+                    transparentRed = stream.readUnsignedShort();
+                    transparentGreen = stream.readUnsignedShort();
+                    transparentBlue = stream.readUnsignedShort();
+                    stream.skipNBytes(length - 6);
+                }
+                case COLOR_TYPE_PALETTE -> {
+                    if (colors == null) throw new IOException("tRNS chunk before PLTE");
+
+                    for (int i = 0; i < length; i++) {
+                        int alpha = stream.readUnsignedByte();
+                        if (i < colors.length) {
+                            colors[i] = colors[i] & 0xFFFFFF | alpha << 24;
+                        }
+                    }
+                }
+                default -> stream.skipNBytes(length);
+            }
+        }
+
+        private int getColor(int index) {
+            // Out of range indices are an error by the specification, but decoders usually treat them as black
+            return index < colors.length ? colors[index] : 0xFF000000;
+        }
+    }
+
+    /**
+     * Data of consecutive IDAT chunks as one stream.
+     */
+    private static final class ImageDataInputStream extends InputStream {
+        private final DataInputStream stream;
+        private int remaining;
+        private boolean isEnded;
+
+        private ImageDataInputStream(DataInputStream stream, int length) {
+            this.stream = stream;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) return -1;
+
+            remaining--;
+            return stream.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!nextChunk()) return -1;
+
+            int read = stream.read(buffer, offset, Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("Unexpected end of PNG image data");
+            }
+
+            remaining -= read;
+            return read;
+        }
+
+        /**
+         * Skips CRC of the current chunk and reads the header of the next one, if data of the current chunk has ended.
+         *
+         * @return whether image data continues
+         */
+        private boolean nextChunk() throws IOException {
+            while (remaining == 0) {
+                if (isEnded) return false;
+
+                stream.skipNBytes(Integer.BYTES);
+
+                int length = stream.readInt();
+                if (!"IDAT".equals(readChunkType(stream))) {
+                    isEnded = true;
+                    return false;
+                }
+
+                remaining = length;
+            }
+
+            return true;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import dev.donutquine.swf.Tag;
 import dev.donutquine.swf.TextureType;
 import dev.donutquine.swf.exceptions.LoadingFaultException;
 import dev.donutquine.utilities.BufferUtils;
+import dev.donutquine.utilities.XxHash64;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
@@ -14,9 +15,11 @@ import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
-public class SWFTexture implements Savable {
+public class SWFTexture implements Savable, AutoCloseable {
     public static final int TILE_SIZE = 32;
 
     private Tag initialTag, tag;
@@ -24,14 +27,28 @@ public class SWFTexture implements Savable {
     private TextureType type;
     private int width;
     private int height;
-    private byte[] ktxData;
+    // Read-only view, for SC2 files it points to the FlatBuffer data vector
+    private ByteBuffer ktxData;
     private String textureFilename;
 
-    private Buffer pixels;
+    // Guarded by TextureMemoryBudget when pixelSource is set
+    volatile Buffer pixels;
+    // Guarded by TextureMemoryBudget, pixels of a closed texture are released when the count drops to zero
+    int acquireCount;
+    Runnable pendingRelease;
+
+    private TexturePixelSource pixelSource;
+    // Mip levels starting from 1, null if the texture has no stored mipmaps
+    private Buffer[] mipLevels;
 
     private int index = -1;
     private boolean hasTexture;
 
+    private long contentHash;
+    private boolean isContentHashed;
+    // Whether pixels or KTX data are owned by TextureDeduplicator, which releases them by reference count
+    private boolean isPixelsShared, isKtxDataShared;
+
     /**
      * @since 1.0.0
      */
@@ -47,12 +64,7 @@ public class SWFTexture implements Savable {
         this.height = fb.height();
 
         if (fb.dataLength() != 0) {
-            byte[] data = new byte[fb.dataLength()];
-            for (int i = 0; i < data.length; i++) {
-                data[i] = fb.data(i);
-            }
-
-            this.ktxData = data;
+            this.ktxData = fb.dataAsByteBuffer().slice().asReadOnlyBuffer();
         } else {
             this.textureFilename = fb.textureFile();
         }
@@ -79,9 +91,24 @@ public class SWFTexture implements Savable {
      * @since 1.0.0
      */
     public void load(ByteStream stream, Tag tag, boolean hasTexture) throws LoadingFaultException {
+        load(stream, tag, hasTexture, -1);
+    }
+
+    /**
+     * Loads the texture, including mip levels stored after the base level of {@link Tag#hasMipmaps() tags with mipmaps}.
+     *
+     * @param length tag length, which is used to detect mip levels, or -1 if unknown, so mip levels aren't loaded
+     * @since 1.1.7
+     */
+    public void load(ByteStream stream, Tag tag, boolean hasTexture, int length) throws LoadingFaultException {
+        int end = stream.getPosition() + length;
+
         this.initialTag = this.tag == null ? tag : this.tag;
         this.tag = tag;
 
+        releaseSharedData();
+        isContentHashed = false;
+
         int khronosTextureLength = 0;
         if (tag == Tag.KHRONOS_TEXTURE) {
             khronosTextureLength = stream.readInt();
@@ -101,27 +128,22 @@ public class SWFTexture implements Savable {
         width = stream.readShort();
         height = stream.readShort();
 
+        mipLevels = null;
+
         if (!hasTexture) return;
 
         // TODO: add callbacks for renderer?
         if (tag == Tag.KHRONOS_TEXTURE) {
-            ktxData = stream.readByteArray(khronosTextureLength);
+            ktxData = ByteBuffer.wrap(stream.readByteArray(khronosTextureLength)).asReadOnlyBuffer();
         } else if (tag != Tag.TEXTURE_FILE_REFERENCE) {
+            replacePixelSource(null);
             pixels = loadTexture(stream, width, height, type.pixelBytes, tag.hasInterlacing());
         }
 
-        // Note: it seems TEXTURE_3 contains mip map data along with deprecated (?) TEXTURE_2, TEXTURE_7
-        // TODO: check
-        // if (tag == Tag.TEXTURE_3) {
-        //     int level = 1;
-        //
-        //     int levelWidth, levelHeight;
-        //     do {
-        //         levelWidth = Math.max(1, width >> level);
-        //         levelHeight = Math.max(1, height >> level);
-        //         mipMaps[level] = loadTexture(stream, width, height, textureInfo.pixelBytes(), tag.hasInterlacing());
-        //     } while (levelWidth > 1 || levelHeight > 1);
-        // }
+        // Mip levels are stored only by some files, so they are read only if the tag has bytes left
+        if (length >= 0 && tag.hasMipmaps()) {
+            mipLevels = loadMipLevels(stream, end);
+        }
     }
 
     /**
@@ -130,14 +152,14 @@ public class SWFTexture implements Savable {
     @Override
     public void save(ByteStream stream) {
         if (tag == Tag.KHRONOS_TEXTURE) {
-            stream.writeInt(ktxData.length);
+            stream.writeInt(ktxData.remaining());
         }
 
         if (tag == Tag.TEXTURE_FILE_REFERENCE) {
             stream.writeAscii(textureFilename);
         }
 
-        // TODO: calculate type
+        // Type is calculated by optimizeType before saving
         stream.writeUnsignedChar(type.type);
         stream.writeShort(width);
         stream.writeShort(height);
@@ -145,9 +167,20 @@ public class SWFTexture implements Savable {
         if (!hasTexture) return;
 
         if (tag == Tag.KHRONOS_TEXTURE) {
-            stream.write(ktxData);
+            stream.write(ktxData.duplicate());
         } else if (tag != Tag.TEXTURE_FILE_REFERENCE) {
-            saveTexture(stream, width, height, type.pixelBytes, tag.hasInterlacing());
+            Buffer pixels = acquirePixels();
+            try {
+                saveTexture(stream, pixels, width, height, type.pixelBytes, tag.hasInterlacing());
+            } finally {
+                releasePixels();
+            }
+
+            if (tag.hasMipmaps() && mipLevels != null) {
+                for (int level = 1; level <= mipLevels.length; level++) {
+                    saveTexture(stream, mipLevels[level - 1], MipmapGenerator.getLevelSize(width, level), MipmapGenerator.getLevelSize(height, level), type.pixelBytes, tag.hasInterlacing());
+                }
+            }
         }
     }
 
@@ -172,6 +205,64 @@ public class SWFTexture implements Savable {
         return type;
     }
 
+    /**
+     * Repacks pixels into the given type. Channels which don't fit the type are rounded.
+     *
+     * @param type new texture type
+     * @throws IllegalStateException if the texture doesn't contain pixels
+     * @since 1.1.7
+     */
+    public void setType(TextureType type) {
+        Objects.requireNonNull(type, "type");
+        if (this.type == type) return;
+
+        // Pixel source contains pixels of the previous type
+        detachPixelSource();
+
+        if (this.pixels == null) {
+            throw new IllegalStateException("Cannot repack texture without pixels: " + this);
+        }
+
+        Buffer previousPixels = this.pixels;
+        boolean isPreviousPixelsShared = this.isPixelsShared;
+        Buffer[] previousMipLevels = this.mipLevels;
+
+        this.pixels = PixelFormatConverter.convert(previousPixels, this.type, type, width, height);
+        this.isPixelsShared = false;
+        isContentHashed = false;
+
+        if (previousMipLevels != null) {
+            Buffer[] mipLevels = new Buffer[previousMipLevels.length];
+            for (int level = 1; level <= mipLevels.length; level++) {
+                mipLevels[level - 1] = PixelFormatConverter.convert(previousMipLevels[level - 1], this.type, type, MipmapGenerator.getLevelSize(width, level), MipmapGenerator.getLevelSize(height, level));
+            }
+
+            this.mipLevels = mipLevels;
+        }
+
+        this.type = type;
+
+        releaseWhenUnpinned(previousPixels, isPreviousPixelsShared, previousMipLevels);
+    }
+
+    /**
+     * Repacks pixels into the smallest type, which stores them within the tolerance.
+     * Textures without pixels, e.g. KTX ones, are left as is.
+     *
+     * @param tolerance maximum allowed difference of each channel value, 0 for lossless repacking
+     * @return new texture type
+     * @see TextureTypeAnalyzer
+     * @since 1.1.7
+     */
+    public TextureType optimizeType(int tolerance) {
+        if (!hasPixels(tag) || pixels == null && pixelSource == null) {
+            return type;
+        }
+
+        setType(TextureTypeAnalyzer.findSmallestType(this, tolerance));
+        return type;
+    }
+
     /**
      * @since 1.0.0
      */
@@ -187,10 +278,39 @@ public class SWFTexture implements Savable {
     }
 
     /**
+     * Copies KTX data into a new array. Prefer {@link #getKtxBuffer()} to avoid copying.
+     *
+     * @return copy of KTX data or {@code null} if the texture doesn't contain it
      * @since 1.0.0
      */
     public byte[] getKtxData() {
-        return ktxData;
+        if (ktxData == null) {
+            return null;
+        }
+
+        byte[] data = new byte[ktxData.remaining()];
+        ktxData.duplicate().get(data);
+        return data;
+    }
+
+    /**
+     * Returns KTX data without copying. For SC2 files the buffer is a view of the loaded file.
+     *
+     * @return read-only buffer positioned at the start of KTX data or {@code null} if the texture doesn't contain it
+     * @since 1.1.7
+     */
+    public ByteBuffer getKtxBuffer() {
+        return ktxData != null ? ktxData.duplicate() : null;
+    }
+
+    /**
+     * Parses KTX container of the texture. Level and face buffers of the result are views of {@link #getKtxBuffer()}.
+     *
+     * @return parsed KTX container or {@code null} if the texture doesn't contain KTX data
+     * @since 1.1.7
+     */
+    public KhronosTexture getKhronosTexture() {
+        return ktxData != null ? KhronosTexture.parse(ktxData) : null;
     }
 
     /**
@@ -201,12 +321,389 @@ public class SWFTexture implements Savable {
     }
 
     /**
+     * Returns texture pixels, decoding them from the {@link TexturePixelSource pixel source} if needed.
+     *
+     * <p>Pixels of a texture with a pixel source may be unloaded by {@link TextureMemoryBudget} at any time,
+     * use {@link #acquirePixels()} to prevent it. Pixels shared by {@link TextureDeduplicator} are read-only.
+     * The returned buffer stays valid after the texture is closed or its pixels are replaced, its memory is
+     * then released by the garbage collector.</p>
+     *
      * @since 1.0.0
      */
     public Buffer getPixels() {
+        if (pixelSource == null) {
+            Buffer pixels = TextureMemoryBudget.expose(this, 0);
+            return isPixelsShared ? asReadOnly(pixels) : pixels;
+        }
+
+        Buffer pixels = TextureMemoryBudget.touch(this, false);
+        if (pixels != null) {
+            return pixels;
+        }
+
+        return TextureMemoryBudget.register(this, decodePixels(), false);
+    }
+
+    /**
+     * Returns texture pixels and prevents them from being unloaded or freed by {@link #close()}
+     * until {@link #releasePixels()} is called. Unlike pixels returned by {@link #getPixels()}, their memory
+     * is released immediately once they're released and the texture is closed, so they must not be used afterwards.
+     *
+     * @since 1.1.7
+     */
+    public Buffer acquirePixels() {
+        if (pixelSource == null) {
+            Buffer pixels = TextureMemoryBudget.pin(this);
+            return isPixelsShared ? asReadOnly(pixels) : pixels;
+        }
+
+        Buffer pixels = TextureMemoryBudget.touch(this, true);
+        if (pixels != null) {
+            return pixels;
+        }
+
+        return TextureMemoryBudget.register(this, decodePixels(), true);
+    }
+
+    /**
+     * Allows pixels acquired by {@link #acquirePixels()} to be unloaded again.
+     * If the texture was closed meanwhile, its memory is released by the last call.
+     *
+     * @since 1.1.7
+     */
+    public void releasePixels() {
+        TextureMemoryBudget.release(this);
+    }
+
+    /**
+     * Unloads decoded pixels if they can be decoded again from the pixel source.
+     *
+     * @throws IllegalStateException if pixels are acquired
+     * @since 1.1.7
+     */
+    public void unloadPixels() {
+        if (pixelSource == null) return;
+
+        TextureMemoryBudget.unload(this);
+    }
+
+    /**
+     * @return whether pixels are decoded
+     * @since 1.1.7
+     */
+    public boolean isPixelsLoaded() {
+        return pixels != null;
+    }
+
+    /**
+     * @return number of stored mip levels including the base one, 1 if the texture has no mipmaps
+     * @since 1.1.7
+     */
+    public int getMipLevelCount() {
+        return mipLevels != null ? mipLevels.length + 1 : 1;
+    }
+
+    /**
+     * @param level mip level, 0 is the base level
+     * @return pixels of the mip level with size of {@code max(1, size >> level)}
+     * @since 1.1.7
+     */
+    public Buffer getMipLevel(int level) {
+        if (level == 0) {
+            return getPixels();
+        }
+
+        if (level < 0 || level >= getMipLevelCount()) {
+            throw new IndexOutOfBoundsException("Mip level " + level + " out of bounds for count " + getMipLevelCount());
+        }
+
+        return TextureMemoryBudget.expose(this, level);
+    }
+
+    /**
+     * @return stored pixels of the mip level without exposing them, {@code null} if there are none
+     */
+    Buffer getStoredLevel(int level) {
+        if (level == 0) {
+            return pixels;
+        }
+
+        Buffer[] mipLevels = this.mipLevels;
+        return mipLevels != null && level <= mipLevels.length ? mipLevels[level - 1] : null;
+    }
+
+    /**
+     * Generates the full mip chain from the base level. Mip levels are saved only for {@link Tag#hasMipmaps() tags with mipmaps}.
+     *
+     * @throws IllegalStateException if the texture doesn't contain pixels
+     * @see MipmapGenerator
+     * @since 1.1.7
+     */
+    public void generateMipmaps() {
+        Buffer[] levels;
+        Buffer pixels = acquirePixels();
+        try {
+            if (pixels == null) {
+                throw new IllegalStateException("Cannot generate mipmaps for texture without pixels: " + this);
+            }
+
+            levels = MipmapGenerator.generate(pixels, type, width, height);
+        } finally {
+            releasePixels();
+        }
+
+        Buffer[] previousMipLevels = this.mipLevels;
+        this.mipLevels = levels.length != 0 ? levels : null;
+        releaseWhenUnpinned(null, false, previousMipLevels);
+    }
+
+    /**
+     * @since 1.1.7
+     */
+    public void clearMipmaps() {
+        Buffer[] mipLevels = this.mipLevels;
+        this.mipLevels = null;
+        releaseWhenUnpinned(null, false, mipLevels);
+    }
+
+    /**
+     * Sets the source to decode pixels from on demand, unloading current pixels.
+     * Texture header must be loaded before.
+     *
+     * @param tag         texture tag of the source
+     * @param pixelSource pixel source
+     * @since 1.1.7
+     */
+    public void setPixelSource(Tag tag, TexturePixelSource pixelSource) {
+        Objects.requireNonNull(pixelSource, "pixelSource");
+        validateTag(tag);
+
+        if (!hasPixels(tag)) {
+            throw new IllegalArgumentException("Tag " + tag + " doesn't contain pixels");
+        }
+
+        replacePixelSource(pixelSource);
+
+        Buffer pixels = this.pixels;
+        boolean isPixelsShared = this.isPixelsShared;
+        this.pixels = null;
+        this.isPixelsShared = false;
+        releaseWhenUnpinned(pixels, isPixelsShared, null);
+
+        this.tag = tag;
+    }
+
+    /**
+     * Decodes pixels if needed and drops the pixel source, so the pixels are no longer managed by {@link TextureMemoryBudget}.
+     *
+     * @since 1.1.7
+     */
+    public void detachPixelSource() {
+        if (pixelSource == null) return;
+
+        // Acquired, so decoded pixels aren't exposed or unloaded before the source is dropped
+        acquirePixels();
+        replacePixelSource(null);
+        releasePixels();
+    }
+
+    /**
+     * @since 1.1.7
+     */
+    public TexturePixelSource getPixelSource() {
+        return pixelSource;
+    }
+
+    /**
+     * Releases off-heap memory of pixels and mip levels, dropping the pixel source. The texture header stays available.
+     *
+     * <p>If pixels are acquired by {@link #acquirePixels()}, the memory is released once all of them are released
+     * by {@link #releasePixels()}. Buffers returned by {@link #getPixels()} and {@link #getMipLevel(int)} stay valid,
+     * their memory is left to the garbage collector.</p>
+     *
+     * @see TextureMemory
+     * @since 1.1.7
+     */
+    @Override
+    public void close() {
+        replacePixelSource(null);
+
+        Buffer pixels = this.pixels;
+        boolean isPixelsShared = this.isPixelsShared;
+        Buffer[] mipLevels = this.mipLevels;
+        this.pixels = null;
+        this.isPixelsShared = false;
+        this.mipLevels = null;
+
+        releaseWhenUnpinned(pixels, isPixelsShared, mipLevels);
+
+        if (isKtxDataShared) {
+            isKtxDataShared = false;
+            TextureDeduplicator.release(ktxData);
+        }
+
+        isContentHashed = false;
+    }
+
+    /**
+     * Returns the content hash of the texture, which is equal for textures with byte-identical KTX data or pixels.
+     * The hash is computed on the first call and cached until pixels change.
+     *
+     * @return XXH64 of KTX data or base level pixels
+     * @throws IllegalStateException if the texture contains neither KTX data nor pixels
+     * @see TextureDeduplicator
+     * @since 1.1.7
+     */
+    public long getContentHash() {
+        if (isContentHashed) {
+            return contentHash;
+        }
+
+        if (ktxData != null) {
+            contentHash = XxHash64.hash(ktxData);
+        } else {
+            Buffer pixels = acquirePixels();
+            try {
+                if (pixels == null) {
+                    throw new IllegalStateException("Cannot hash texture without pixels or KTX data: " + this);
+                }
+
+                contentHash = XxHash64.hash(pixels);
+            } finally {
+                releasePixels();
+            }
+        }
+
+        isContentHashed = true;
+        return contentHash;
+    }
+
+    /**
+     * @return KTX data of the texture without duplicating it, so it can be identified by {@link TextureDeduplicator}
+     */
+    ByteBuffer getSharableKtxData() {
+        return ktxData;
+    }
+
+    boolean isPixelsShared() {
+        return isPixelsShared;
+    }
+
+    boolean isKtxDataShared() {
+        return isKtxDataShared;
+    }
+
+    /**
+     * Replaces pixels with byte-identical ones owned by {@link TextureDeduplicator}, freeing own pixels once they
+     * aren't acquired, unless they were exposed by {@link #getPixels()}. Passing current pixels transfers their
+     * ownership to the deduplicator.
+     */
+    void sharePixels(Buffer sharedPixels) {
+        Buffer pixels = this.pixels;
+        this.pixels = sharedPixels;
+        isPixelsShared = true;
+
+        if (pixels != sharedPixels) {
+            TextureMemoryBudget.releaseWhenUnpinned(this, () -> TextureMemory.free(pixels));
+        }
+    }
+
+    /**
+     * Replaces KTX data with byte-identical data owned by {@link TextureDeduplicator}.
+     */
+    void shareKtxData(ByteBuffer sharedKtxData) {
+        this.ktxData = sharedKtxData;
+        isKtxDataShared = true;
+    }
+
+    private void releaseSharedData() {
+        if (isPixelsShared) {
+            Buffer pixels = this.pixels;
+            this.pixels = null;
+            isPixelsShared = false;
+            TextureMemoryBudget.releaseWhenUnpinned(this, () -> TextureDeduplicator.release(pixels));
+        }
+
+        if (isKtxDataShared) {
+            isKtxDataShared = false;
+            TextureDeduplicator.release(ktxData);
+            ktxData = null;
+        }
+    }
+
+    /**
+     * @return read-only view of pixels, so shared pixels can't be modified through one of textures sharing them
+     */
+    private static Buffer asReadOnly(Buffer pixels) {
+        if (pixels instanceof ByteBuffer buffer) {
+            return buffer.asReadOnlyBuffer().order(buffer.order());
+        }
+
+        if (pixels instanceof ShortBuffer buffer) {
+            return buffer.asReadOnlyBuffer();
+        }
+
+        if (pixels instanceof IntBuffer buffer) {
+            return buffer.asReadOnlyBuffer();
+        }
+
         return pixels;
     }
 
+    /**
+     * Releases replaced pixels and mip levels once pixels of the texture aren't acquired.
+     */
+    private void releaseWhenUnpinned(Buffer pixels, boolean isPixelsShared, Buffer[] mipLevels) {
+        TextureMemoryBudget.releaseWhenUnpinned(this, () -> {
+            releasePixelMemory(pixels, isPixelsShared);
+
+            if (mipLevels != null) {
+                for (Buffer mipLevel : mipLevels) {
+                    TextureMemory.free(mipLevel);
+                }
+            }
+        });
+    }
+
+    private static void releasePixelMemory(Buffer pixels, boolean isShared) {
+        if (isShared) {
+            TextureDeduplicator.release(pixels);
+        } else {
+            TextureMemory.free(pixels);
+        }
+    }
+
+    private void replacePixelSource(TexturePixelSource pixelSource) {
+        if (this.pixelSource != null) {
+            TextureMemoryBudget.forget(this);
+        }
+
+        this.pixelSource = pixelSource;
+    }
+
+    private Buffer decodePixels() {
+        ByteStream stream = pixelSource.open();
+
+        // Skipping type, width and height, which are already loaded
+        stream.skip(5);
+
+        return loadTexture(stream, width, height, type.pixelBytes, tag.hasInterlacing());
+    }
+
+    private Buffer[] loadMipLevels(ByteStream stream, int end) {
+        List<Buffer> levels = new ArrayList<>();
+
+        for (int level = 1; level < MipmapGenerator.getLevelCount(width, height); level++) {
+            int levelWidth = MipmapGenerator.getLevelSize(width, level);
+            int levelHeight = MipmapGenerator.getLevelSize(height, level);
+            if (end - stream.getPosition() < levelWidth * levelHeight * type.pixelBytes) break;
+
+            levels.add(loadTexture(stream, levelWidth, levelHeight, type.pixelBytes, tag.hasInterlacing()));
+        }
+
+        return levels.isEmpty() ? null : levels.toArray(new Buffer[0]);
+    }
+
     /**
      * @since 1.0.2
      */
@@ -223,7 +720,7 @@ public class SWFTexture implements Savable {
 
     @Override
     public String toString() {
-        return "SWFTexture{" + "tag=" + tag + ", type=" + type + ", width=" + width + ", height=" + height + ", ktxData=" + Arrays.toString(ktxData) + ", textureFilename='" + textureFilename + '\'' + ", pixels=" + pixels + ", index=" + index + '}';
+        return "SWFTexture{" + "tag=" + tag + ", type=" + type + ", width=" + width + ", height=" + height + ", ktxDataLength=" + (ktxData != null ? ktxData.remaining() : 0) + ", textureFilename='" + textureFilename + '\'' + ", pixels=" + pixels + ", index=" + index + '}';
     }
 
     private Buffer loadTexture(ByteStream stream, int width, int height, int pixelBytes, boolean hasInterlacing) {
@@ -239,60 +736,74 @@ public class SWFTexture implements Savable {
     /**
      * @since 1.0.7
      */
-    private void saveTexture(ByteStream stream, int width, int height, int pixelBytes, boolean hasInterlacing) {
-        switch (pixelBytes) {
-            case 1 -> saveTextureAsChar(stream, width, height, hasInterlacing);
-            case 2 -> saveTextureAsShort(stream, width, height, hasInterlacing);
-            case 4 -> saveTextureAsInt(stream, width, height, hasInterlacing);
+    private void saveTexture(ByteStream stream, Buffer pixels, int width, int height, int pixelBytes, boolean hasInterlacing) {
+        // Pixels are encoded straight into the stream, so they are moved only once
+        ByteBuffer region = stream.writeRegion(width * height * pixelBytes);
+
+        PixelRunCopier copier = switch (pixelBytes) {
+            case 1 -> {
+                ByteBuffer source = (ByteBuffer) pixels;
+                yield (sourceIndex, destinationIndex, length) -> region.put(destinationIndex, source, sourceIndex, length);
+            }
+            case 2 -> {
+                ShortBuffer source = (ShortBuffer) pixels;
+                ShortBuffer destination = region.asShortBuffer();
+                yield (sourceIndex, destinationIndex, length) -> destination.put(destinationIndex, source, sourceIndex, length);
+            }
+            case 4 -> {
+                IntBuffer source = (IntBuffer) pixels;
+                IntBuffer destination = region.asIntBuffer();
+                yield (sourceIndex, destinationIndex, length) -> destination.put(destinationIndex, source, sourceIndex, length);
+            }
             default ->
                 throw new IllegalStateException("Unexpected value: " + pixelBytes);
+        };
+
+        if (!hasInterlacing) {
+            copier.copy(0, 0, width * height);
+            return;
         }
-    }
 
-    private Buffer loadTextureAsChar(ByteStream stream, int width, int height, boolean separatedByTiles) {
-        byte[] pixels = stream.readByteArray(width * height);
+        // Same tile order as interlaceTexture, but copying whole tile rows at once
+        int xTileCount = width / TILE_SIZE;
+        int yTileCount = height / TILE_SIZE;
 
-        if (separatedByTiles) {
-            interlaceTexture(width, height, pixels.clone(), pixels, true);
-        }
+        int offset = 0;
 
-        return BufferUtils.wrapDirect(pixels);
-    }
+        for (int tileY = 0; tileY < yTileCount + 1; tileY++) {
+            for (int tileX = 0; tileX < xTileCount + 1; tileX++) {
+                int tileWidth = Math.min(width - (tileX * TILE_SIZE), TILE_SIZE);
+                int tileHeight = Math.min(height - (tileY * TILE_SIZE), TILE_SIZE);
+                if (tileWidth <= 0 || tileHeight <= 0) continue;
 
-    /**
-     * @since 1.0.7
-     */
-    private void saveTextureAsChar(ByteStream stream, int width, int height, boolean separatedByTiles) {
-        byte[] pixels = BufferUtils.toArray((ByteBuffer) this.pixels);
+                for (int y = 0; y < tileHeight; y++) {
+                    int pixelY = (tileY * TILE_SIZE) + y;
+                    copier.copy(pixelY * width + tileX * TILE_SIZE, offset + y * tileWidth, tileWidth);
+                }
 
-        if (separatedByTiles) {
-            interlaceTexture(width, height, pixels.clone(), pixels, false);
+                offset += tileWidth * tileHeight;
+            }
         }
-
-        stream.writeByteArray(pixels);
     }
 
-    private Buffer loadTextureAsShort(ByteStream stream, int width, int height, boolean separatedByTiles) {
-        short[] pixels = stream.readShortArray(width * height);
+    private Buffer loadTextureAsChar(ByteStream stream, int width, int height, boolean separatedByTiles) {
+        byte[] pixels = stream.readByteArray(width * height);
 
         if (separatedByTiles) {
             interlaceTexture(width, height, pixels.clone(), pixels, true);
         }
 
-        return BufferUtils.wrapDirect(pixels);
+        return TextureMemory.wrap(pixels);
     }
 
-    /**
-     * @since 1.0.7
-     */
-    private void saveTextureAsShort(ByteStream stream, int width, int height, boolean separatedByTiles) {
-        short[] pixels = BufferUtils.toArray((ShortBuffer) this.pixels);
+    private Buffer loadTextureAsShort(ByteStream stream, int width, int height, boolean separatedByTiles) {
+        short[] pixels = stream.readShortArray(width * height);
 
         if (separatedByTiles) {
-            interlaceTexture(width, height, pixels.clone(), pixels, false);
+            interlaceTexture(width, height, pixels.clone(), pixels, true);
         }
 
-        stream.writeShortArray(pixels);
+        return TextureMemory.wrap(pixels);
     }
 
     private Buffer loadTextureAsInt(ByteStream stream, int width, int height, boolean separatedByTiles) {
@@ -302,20 +813,7 @@ public class SWFTexture implements Savable {
             interlaceTexture(width, height, pixels.clone(), pixels, true);
         }
 
-        return BufferUtils.wrapDirect(pixels);
-    }
-
-    /**
-     * @since 1.0.7
-     */
-    private void saveTextureAsInt(ByteStream stream, int width, int height, boolean separatedByTiles) {
-        int[] pixels = BufferUtils.toArray((IntBuffer) this.pixels);
-
-        if (separatedByTiles) {
-            interlaceTexture(width, height, pixels.clone(), pixels, false);
-        }
-
-        stream.writeIntArray(pixels);
+        return TextureMemory.wrap(pixels);
     }
 
     /**
@@ -379,6 +877,11 @@ public class SWFTexture implements Savable {
         this.hasTexture = hasTexture;
     }
 
+    @FunctionalInterface
+    private interface PixelRunCopier {
+        void copy(int sourceIndex, int destinationIndex, int length);
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -443,6 +946,10 @@ public class SWFTexture implements Savable {
         }
     }
 
+    private static boolean hasPixels(Tag tag) {
+        return tag != Tag.KHRONOS_TEXTURE && tag != Tag.TEXTURE_FILE_REFERENCE;
+    }
+
     private static void validateTag(Tag tag) {
         if (!tag.isTexture()) {
             throw new IllegalArgumentException("Tag must be a Texture tag, but is " + tag);
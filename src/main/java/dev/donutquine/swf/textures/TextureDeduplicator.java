@@ -0,0 +1,205 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.TextureType;
+import dev.donutquine.utilities.BufferUtils;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide registry of texture contents, which lets textures of different {@link SupercellSWF} files
+ * share one buffer of byte-identical KTX data or pixels.
+ *
+ * <p>Textures are identified by {@link SWFTexture#getContentHash()} along with their type and size, and contents
+ * are compared before sharing, so hash collisions never merge different textures. Shared buffers are reference
+ * counted and freed when the last texture sharing them is closed. Textures return shared pixels as read-only views.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TextureDeduplicator {
+    private static final Map<ContentKey, Entry> ENTRIES = new HashMap<>();
+    // Shared buffers to their entries, buffers don't override identity, but equals compares their contents
+    private static final Map<Buffer, Entry> ENTRIES_BY_BUFFER = new IdentityHashMap<>();
+
+    private TextureDeduplicator() {
+    }
+
+    /**
+     * @param uniqueCount      count of distinct registered contents
+     * @param textureCount     count of textures sharing registered contents
+     * @param uniqueBytes      bytes of distinct contents
+     * @param duplicatedBytes  bytes, which would be taken by duplicates without sharing
+     */
+    public record Statistics(int uniqueCount, int textureCount, long uniqueBytes, long duplicatedBytes) {
+    }
+
+    private record ContentKey(TextureType type, int width, int height, boolean isKtx, long hash) {
+    }
+
+    private static final class Entry {
+        private final ContentKey key;
+        private final Buffer buffer;
+        private final long byteCount;
+        private int referenceCount;
+
+        private Entry(ContentKey key, Buffer buffer, long byteCount) {
+            this.key = key;
+            this.buffer = buffer;
+            this.byteCount = byteCount;
+        }
+    }
+
+    /**
+     * Registers all textures of the file, see {@link #share(SWFTexture)}.
+     *
+     * @return count of textures, which now share contents of previously registered ones
+     */
+    public static int shareAll(SupercellSWF swf) {
+        int sharedCount = 0;
+        for (SWFTexture texture : swf.getTextures()) {
+            if (share(texture)) {
+                sharedCount++;
+            }
+        }
+
+        return sharedCount;
+    }
+
+    /**
+     * Registers contents of the texture. If byte-identical contents are already registered,
+     * the texture starts sharing them and its own buffer is freed.
+     *
+     * <p>Textures with a {@link TexturePixelSource pixel source}, file references and textures without
+     * contents are skipped, as well as already registered ones. Mip levels aren't shared.</p>
+     *
+     * @return whether the texture shares previously registered contents
+     */
+    public static synchronized boolean share(SWFTexture texture) {
+        if (texture.getPixelSource() != null || texture.isPixelsShared() || texture.isKtxDataShared()) {
+            return false;
+        }
+
+        ByteBuffer ktxData = texture.getSharableKtxData();
+        if (ktxData != null) {
+            return shareContents(texture, ktxData, true);
+        }
+
+        // Acquired, so own pixels aren't exposed and are freed right after sharing
+        Buffer pixels = texture.acquirePixels();
+        try {
+            return pixels != null && shareContents(texture, pixels, false);
+        } finally {
+            texture.releasePixels();
+        }
+    }
+
+    private static boolean shareContents(SWFTexture texture, Buffer buffer, boolean isKtx) {
+        ContentKey key = createKey(texture, isKtx);
+
+        Entry entry = ENTRIES.get(key);
+        if (entry == null) {
+            entry = new Entry(key, buffer, BufferUtils.getByteCapacity(buffer));
+            ENTRIES.put(key, entry);
+            ENTRIES_BY_BUFFER.put(buffer, entry);
+
+            share(texture, entry);
+            return false;
+        }
+
+        // Different contents with the same hash stay separate
+        if (!entry.buffer.equals(buffer)) {
+            return false;
+        }
+
+        share(texture, entry);
+        return true;
+    }
+
+    /**
+     * @return statistics of currently registered contents
+     */
+    public static synchronized Statistics getStatistics() {
+        int textureCount = 0;
+        long uniqueBytes = 0;
+        long duplicatedBytes = 0;
+
+        for (Entry entry : ENTRIES.values()) {
+            textureCount += entry.referenceCount;
+            uniqueBytes += entry.byteCount;
+            duplicatedBytes += (entry.referenceCount - 1) * entry.byteCount;
+        }
+
+        return new Statistics(ENTRIES.size(), textureCount, uniqueBytes, duplicatedBytes);
+    }
+
+    /**
+     * Reports duplicated contents of textures in the files without registering or sharing them.
+     * Textures with a pixel source are decoded to be hashed.
+     */
+    public static Statistics analyze(Collection<SupercellSWF> files) {
+        Map<ContentKey, Long> byteCounts = new HashMap<>();
+
+        int textureCount = 0;
+        long duplicatedBytes = 0;
+        for (SupercellSWF swf : files) {
+            for (SWFTexture texture : swf.getTextures()) {
+                ByteBuffer ktxData = texture.getSharableKtxData();
+                if (ktxData == null && texture.getPixelSource() == null && !texture.isPixelsLoaded()) continue;
+
+                textureCount++;
+
+                // Hashing decodes pixels of textures with a pixel source without exposing them
+                long byteCount = ktxData != null ? ktxData.remaining() : (long) texture.getWidth() * texture.getHeight() * texture.getType().pixelBytes;
+                if (byteCounts.putIfAbsent(createKey(texture, ktxData != null), byteCount) != null) {
+                    duplicatedBytes += byteCount;
+                }
+            }
+        }
+
+        long uniqueBytes = byteCounts.values().stream().mapToLong(Long::longValue).sum();
+        return new Statistics(byteCounts.size(), textureCount, uniqueBytes, duplicatedBytes);
+    }
+
+    /**
+     * Forgets all registered contents. Textures keep sharing their buffers, which are then released by the garbage collector.
+     */
+    public static synchronized void clear() {
+        ENTRIES.clear();
+        ENTRIES_BY_BUFFER.clear();
+    }
+
+    /**
+     * Releases a reference to the shared buffer, freeing it when no textures share it anymore.
+     */
+    static synchronized void release(Buffer buffer) {
+        Entry entry = ENTRIES_BY_BUFFER.get(buffer);
+        if (entry == null) return;
+
+        if (--entry.referenceCount > 0) return;
+
+        ENTRIES.remove(entry.key);
+        ENTRIES_BY_BUFFER.remove(buffer);
+        if (!entry.key.isKtx()) {
+            TextureMemory.free(buffer);
+        }
+    }
+
+    private static void share(SWFTexture texture, Entry entry) {
+        entry.referenceCount++;
+
+        if (entry.key.isKtx()) {
+            texture.shareKtxData((ByteBuffer) entry.buffer);
+        } else {
+            texture.sharePixels(entry.buffer);
+        }
+    }
+
+    private static ContentKey createKey(SWFTexture texture, boolean isKtx) {
+        return new ContentKey(texture.getType(), texture.getWidth(), texture.getHeight(), isKtx, texture.getContentHash());
+    }
+}
@@ -0,0 +1,150 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.TextureType;
+
+import java.nio.Buffer;
+import java.util.stream.IntStream;
+
+/**
+ * Gamma-correct half-scale downsampler of texture pixels.
+ *
+ * <p>Every destination pixel is a 2x2 box average, which is the bilinear sample at half scale.
+ * Colors are averaged in linear space weighted by alpha, so transparent pixels don't darken edges.
+ * Odd sizes are rounded up and the last row and column are clamped.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TextureDownsampler {
+    private static final int LINEAR_TO_SRGB_SIZE = 4096;
+
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+    private static final byte[] LINEAR_TO_SRGB = new byte[LINEAR_TO_SRGB_SIZE];
+
+    static {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+            float value = i / 255f;
+            SRGB_TO_LINEAR[i] = value <= 0.04045f ? value / 12.92f : (float) Math.pow((value + 0.055) / 1.055, 2.4);
+        }
+
+        for (int i = 0; i < LINEAR_TO_SRGB_SIZE; i++) {
+            double value = i / (double) (LINEAR_TO_SRGB_SIZE - 1);
+            double srgb = value <= 0.0031308 ? value * 12.92 : 1.055 * Math.pow(value, 1 / 2.4) - 0.055;
+            LINEAR_TO_SRGB[i] = (byte) Math.round(srgb * 255);
+        }
+    }
+
+    private TextureDownsampler() {
+    }
+
+    /**
+     * Creates a texture with half the size of the given one, keeping its tag and type.
+     * Shape UVs are normalized, so they stay valid for the result.
+     *
+     * @throws IllegalArgumentException if the texture doesn't contain pixels
+     */
+    public static SWFTexture halfScale(SWFTexture texture) {
+        TextureType type = texture.getType();
+        int width = texture.getWidth();
+        int height = texture.getHeight();
+
+        int[] rgba;
+        Buffer pixels = texture.acquirePixels();
+        try {
+            if (pixels == null) {
+                throw new IllegalArgumentException("Cannot downsample texture without pixels: " + texture);
+            }
+
+            rgba = PixelFormatConverter.toRgba8(pixels, type, width, height);
+        } finally {
+            texture.releasePixels();
+        }
+
+        int[] halfScaled = halfScale(rgba, width, height);
+
+        int halfWidth = getHalfSize(width);
+        int halfHeight = getHalfSize(height);
+
+        SWFTexture result = new SWFTexture(texture.getTag(), type, halfWidth, halfHeight, PixelFormatConverter.fromRgba8(halfScaled, type, halfWidth, halfHeight));
+        result.setIndex(texture.getIndex());
+        return result;
+    }
+
+    /**
+     * Downsamples RGBA8 pixels, see {@link PixelFormatConverter} for the layout.
+     *
+     * @return RGBA8 pixels with size of {@link #getHalfSize(int)} of the given one
+     */
+    public static int[] halfScale(int[] rgba, int width, int height) {
+        if (rgba.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels but got " + rgba.length);
+        }
+
+        return downsample(rgba, width, height, getHalfSize(width), getHalfSize(height));
+    }
+
+    /**
+     * Averages 2x2 blocks of source pixels into the destination of the given size,
+     * which must be half of the source size rounded either up or down.
+     */
+    static int[] downsample(int[] rgba, int width, int height, int targetWidth, int targetHeight) {
+        int[] result = new int[targetWidth * targetHeight];
+
+        IntStream rows = IntStream.range(0, targetHeight);
+        if (rgba.length >= PixelFormatConverter.PARALLEL_PIXEL_THRESHOLD) {
+            rows = rows.parallel();
+        }
+
+        rows.forEach(y -> downsampleRow(rgba, width, height, result, targetWidth, y));
+
+        return result;
+    }
+
+    /**
+     * @return half of the size rounded up, at least 1
+     */
+    public static int getHalfSize(int size) {
+        return Math.max(1, (size + 1) / 2);
+    }
+
+    private static void downsampleRow(int[] source, int width, int height, int[] destination, int targetWidth, int y) {
+        int row0 = 2 * y * width;
+        int row1 = Math.min(2 * y + 1, height - 1) * width;
+
+        for (int x = 0; x < targetWidth; x++) {
+            int x0 = 2 * x;
+            int x1 = Math.min(x0 + 1, width - 1);
+
+            int p0 = source[row0 + x0];
+            int p1 = source[row0 + x1];
+            int p2 = source[row1 + x0];
+            int p3 = source[row1 + x1];
+
+            float a0 = (p0 >>> 24) / 255f;
+            float a1 = (p1 >>> 24) / 255f;
+            float a2 = (p2 >>> 24) / 255f;
+            float a3 = (p3 >>> 24) / 255f;
+            float alphaSum = a0 + a1 + a2 + a3;
+
+            int r = 0, g = 0, b = 0;
+            if (alphaSum > 0) {
+                r = averageChannel(p0, p1, p2, p3, 0, a0, a1, a2, a3, alphaSum);
+                g = averageChannel(p0, p1, p2, p3, 8, a0, a1, a2, a3, alphaSum);
+                b = averageChannel(p0, p1, p2, p3, 16, a0, a1, a2, a3, alphaSum);
+            }
+
+            int a = ((p0 >>> 24) + (p1 >>> 24) + (p2 >>> 24) + (p3 >>> 24) + 2) >> 2;
+
+            destination[y * targetWidth + x] = a << 24 | b << 16 | g << 8 | r;
+        }
+    }
+
+    private static int averageChannel(int p0, int p1, int p2, int p3, int shift, float a0, float a1, float a2, float a3, float alphaSum) {
+        float linear = (SRGB_TO_LINEAR[p0 >> shift & 0xFF] * a0
+            + SRGB_TO_LINEAR[p1 >> shift & 0xFF] * a1
+            + SRGB_TO_LINEAR[p2 >> shift & 0xFF] * a2
+            + SRGB_TO_LINEAR[p3 >> shift & 0xFF] * a3) / alphaSum;
+
+        int index = Math.min(LINEAR_TO_SRGB_SIZE - 1, (int) (linear * (LINEAR_TO_SRGB_SIZE - 1) + 0.5f));
+        return LINEAR_TO_SRGB[index] & 0xFF;
+    }
+}
@@ -0,0 +1,226 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.exceptions.TextureFileNotFound;
+import dev.donutquine.swf.file.compression.Zstandard;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Resolves external "zktx" textures referenced by {@link dev.donutquine.swf.Tag#TEXTURE_FILE_REFERENCE}
+ * tags and SC2 texture files.
+ *
+ * <p>Files are resolved relative to the directory of {@link SupercellSWF#getPath()} and decompressed
+ * on the resolver executor. Decompressed KTX data is shared between all files referencing the same zktx
+ * and is kept in a global cache bounded by {@link #setCacheLimit(long)}.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TextureFileResolver {
+    private static final long DEFAULT_CACHE_LIMIT = 256L * 1024 * 1024;
+
+    // Access-ordered, so iteration starts from the least recently used file
+    private static final Map<Path, CacheEntry> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long cacheLimit = DEFAULT_CACHE_LIMIT;
+    private static long cachedBytes;
+    private static Executor executor = ForkJoinPool.commonPool();
+
+    private TextureFileResolver() {
+    }
+
+    /**
+     * @return path of the texture file or {@code null} if the texture doesn't reference a file
+     */
+    public static Path getTexturePath(SupercellSWF swf, SWFTexture texture) {
+        String textureFilename = texture.getTextureFilename();
+        if (textureFilename == null) {
+            return null;
+        }
+
+        Path directory = swf.getPath().toAbsolutePath().getParent();
+        return directory != null ? directory.resolve(textureFilename) : Path.of(textureFilename);
+    }
+
+    /**
+     * Loads and decompresses the texture file, waiting for the result.
+     *
+     * @return read-only buffer with KTX data
+     * @throws TextureFileNotFound if the referenced file doesn't exist
+     */
+    public static ByteBuffer resolve(SupercellSWF swf, SWFTexture texture) throws TextureFileNotFound {
+        Path path = requireTexturePath(swf, texture);
+
+        try {
+            return resolveAsync(path).join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof UncheckedIOException ioException && ioException.getCause() instanceof NoSuchFileException) {
+                throw new TextureFileNotFound(path.toString());
+            }
+
+            throw exception;
+        }
+    }
+
+    /**
+     * Starts loading the texture file unless it's already cached or being loaded.
+     *
+     * @return future of a read-only buffer with KTX data
+     */
+    public static CompletableFuture<ByteBuffer> resolveAsync(SupercellSWF swf, SWFTexture texture) {
+        return resolveAsync(requireTexturePath(swf, texture));
+    }
+
+    /**
+     * Starts loading every texture file referenced by the swf, so they are decompressed in parallel.
+     *
+     * @return futures of KTX data by texture index, {@code null} for textures without a file reference
+     */
+    public static List<CompletableFuture<ByteBuffer>> resolveAll(SupercellSWF swf) {
+        List<SWFTexture> textures = swf.getTextures();
+
+        List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>(textures.size());
+        for (SWFTexture texture : textures) {
+            Path path = getTexturePath(swf, texture);
+            futures.add(path != null ? resolveAsync(path) : null);
+        }
+
+        return futures;
+    }
+
+    /**
+     * Starts loading the zktx file unless it's already cached or being loaded.
+     *
+     * @return future of a read-only buffer with KTX data
+     */
+    public static CompletableFuture<ByteBuffer> resolveAsync(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+
+        CompletableFuture<ByteBuffer> future;
+        synchronized (TextureFileResolver.class) {
+            CacheEntry entry = CACHE.get(key);
+            if (entry == null) {
+                entry = new CacheEntry(CompletableFuture.supplyAsync(() -> decompress(key), executor));
+                CACHE.put(key, entry);
+
+                CacheEntry newEntry = entry;
+                entry.future.whenComplete((buffer, throwable) -> onLoaded(key, newEntry, buffer));
+            }
+
+            future = entry.future;
+        }
+
+        // Every caller gets its own position and limit
+        return future.thenApply(ByteBuffer::duplicate);
+    }
+
+    /**
+     * Sets the limit of cached decompressed bytes, evicting files if it's already exceeded.
+     * Evicted data stays valid for its holders, but the file is decompressed again on the next request.
+     *
+     * @param limit limit in bytes
+     */
+    public static synchronized void setCacheLimit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+
+        cacheLimit = limit;
+        evict();
+    }
+
+    public static synchronized long getCacheLimit() {
+        return cacheLimit;
+    }
+
+    /**
+     * @return decompressed bytes held by the cache
+     */
+    public static synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * Sets the executor, which decompresses texture files. Defaults to the common fork join pool.
+     */
+    public static synchronized void setExecutor(Executor executor) {
+        TextureFileResolver.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Removes every file from the cache. Loads in progress still complete for their callers.
+     */
+    public static synchronized void clearCache() {
+        CACHE.clear();
+        cachedBytes = 0;
+    }
+
+    private static Path requireTexturePath(SupercellSWF swf, SWFTexture texture) {
+        Path path = getTexturePath(swf, texture);
+        if (path == null) {
+            throw new IllegalArgumentException("Texture doesn't reference a texture file: " + texture);
+        }
+
+        return path;
+    }
+
+    private static ByteBuffer decompress(Path path) {
+        try {
+            byte[] data = Files.readAllBytes(path);
+            return ByteBuffer.wrap(Zstandard.decompress(data, 0)).asReadOnlyBuffer();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static synchronized void onLoaded(Path key, CacheEntry entry, ByteBuffer buffer) {
+        // The entry could be removed by clearCache while loading
+        if (CACHE.get(key) != entry) return;
+
+        if (buffer == null) {
+            // Failures aren't cached, so the file can appear later
+            CACHE.remove(key);
+            return;
+        }
+
+        entry.byteCount = buffer.capacity();
+        cachedBytes += entry.byteCount;
+        evict();
+    }
+
+    private static void evict() {
+        Iterator<CacheEntry> iterator = CACHE.values().iterator();
+        while (cachedBytes > cacheLimit && iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            // Loads in progress aren't counted yet
+            if (entry.byteCount < 0) continue;
+
+            iterator.remove();
+            cachedBytes -= entry.byteCount;
+        }
+    }
+
+    private static final class CacheEntry {
+        private final CompletableFuture<ByteBuffer> future;
+        private int byteCount = -1;
+
+        private CacheEntry(CompletableFuture<ByteBuffer> future) {
+            this.future = future;
+        }
+    }
+}
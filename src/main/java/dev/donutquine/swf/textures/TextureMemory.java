@@ -0,0 +1,232 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.TextureType;
+import dev.donutquine.utilities.BufferUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap memory of texture pixels with deterministic release and accounting of live bytes.
+ *
+ * <p>Pixel buffers allocated here are freed either by {@link SWFTexture#close()} or, if the texture isn't
+ * closed, when the buffer becomes unreachable. Buffers passed to textures by users aren't tracked.</p>
+ *
+ * <p>Buffers handed out by {@link SWFTexture#getPixels()} are marked as exposed and are never freed explicitly,
+ * as users may keep them, their memory is left to the garbage collector. Only memory reached solely through
+ * {@link SWFTexture#acquirePixels()} and {@link SWFTexture#releasePixels()} is freed immediately.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TextureMemory {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final AtomicLong LIVE_BYTES = new AtomicLong();
+    // Unlike live bytes, changes only by explicit releases, never by the garbage collector
+    private static final AtomicLong FREED_BYTES = new AtomicLong();
+
+    // Identity of pixel buffers to their releases, keys are weak so unclosed buffers can still be collected
+    private static final Map<BufferKey, Release> RELEASES = new HashMap<>();
+    private static final ReferenceQueue<Buffer> STALE_KEYS = new ReferenceQueue<>();
+
+    // Unsafe::invokeCleaner, null if unavailable, in which case memory is left to the garbage collector
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    private TextureMemory() {
+    }
+
+    /**
+     * @return bytes of texture pixel memory, which isn't released yet
+     */
+    public static long getLiveBytes() {
+        return LIVE_BYTES.get();
+    }
+
+    /**
+     * @return bytes released explicitly by {@link #free(Buffer)} since the start
+     */
+    static long getFreedBytes() {
+        return FREED_BYTES.get();
+    }
+
+    static ByteBuffer wrap(byte[] pixels) {
+        ByteBuffer memory = allocate(pixels.length);
+        memory.put(0, pixels);
+        // The returned buffer must differ from the memory, which is referenced by the cleaning action
+        return track(memory.duplicate().order(memory.order()), memory);
+    }
+
+    static ShortBuffer wrap(short[] pixels) {
+        ByteBuffer memory = allocate(pixels.length * Short.BYTES);
+        ShortBuffer buffer = memory.asShortBuffer();
+        buffer.put(0, pixels);
+        return track(buffer, memory);
+    }
+
+    static IntBuffer wrap(int[] pixels) {
+        ByteBuffer memory = allocate(pixels.length * Integer.BYTES);
+        IntBuffer buffer = memory.asIntBuffer();
+        buffer.put(0, pixels);
+        return track(buffer, memory);
+    }
+
+    /**
+     * @return zeroed pixel buffer of the texture type, as {@link SWFTexture} stores pixels of the type
+     */
+    static Buffer allocatePixels(TextureType type, int pixelCount) {
+        ByteBuffer memory = allocate(pixelCount * type.pixelBytes);
+
+        return switch (type.pixelBytes) {
+            case 1 -> track(memory.duplicate().order(memory.order()), memory);
+            case 2 -> track(memory.asShortBuffer(), memory);
+            case 4 -> track(memory.asIntBuffer(), memory);
+            default -> throw new IllegalArgumentException("Unsupported texture type: " + type);
+        };
+    }
+
+    /**
+     * Marks the buffer as handed out to users, so {@link #free(Buffer)} leaves it to the garbage collector.
+     */
+    static void markExposed(Buffer buffer) {
+        if (buffer == null) return;
+
+        synchronized (RELEASES) {
+            Release release = RELEASES.get(new BufferKey(buffer, null));
+            if (release != null) {
+                release.isExposed = true;
+            }
+        }
+    }
+
+    /**
+     * Releases memory of the buffer immediately, unless it's {@link #markExposed(Buffer) exposed}.
+     * The buffer must not be accessed by the library afterwards. Does nothing for buffers, which weren't
+     * allocated here or are already released.
+     */
+    static void free(Buffer buffer) {
+        if (buffer == null) return;
+
+        Release release;
+        synchronized (RELEASES) {
+            expungeStaleKeys();
+            release = RELEASES.remove(new BufferKey(buffer, null));
+        }
+
+        // Exposed memory stays counted as live until the buffer is collected
+        if (release != null && !release.isExposed) {
+            release.free();
+        }
+    }
+
+    private static ByteBuffer allocate(int byteCount) {
+        return BufferUtils.allocateDirect(byteCount);
+    }
+
+    private static <T extends Buffer> T track(T buffer, ByteBuffer memory) {
+        Release release = new Release(memory);
+        LIVE_BYTES.addAndGet(release.byteCount);
+
+        release.cleanable = CLEANER.register(buffer, release);
+        synchronized (RELEASES) {
+            expungeStaleKeys();
+            RELEASES.put(new BufferKey(buffer, STALE_KEYS), release);
+        }
+
+        return buffer;
+    }
+
+    private static void expungeStaleKeys() {
+        Object key;
+        while ((key = STALE_KEYS.poll()) != null) {
+            RELEASES.remove(key);
+        }
+    }
+
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(unsafeField.get(null));
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Cleaning action, it must not reference the tracked buffer, otherwise the buffer is never collected.
+     */
+    private static final class Release implements Runnable {
+        private final int byteCount;
+        private ByteBuffer memory;
+        private Cleaner.Cleanable cleanable;
+        private volatile boolean isFreedExplicitly;
+        // Guarded by RELEASES
+        private boolean isExposed;
+
+        private Release(ByteBuffer memory) {
+            this.memory = memory;
+            this.byteCount = memory.capacity();
+        }
+
+        private void free() {
+            isFreedExplicitly = true;
+            FREED_BYTES.addAndGet(byteCount);
+            cleanable.clean();
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer memory = this.memory;
+            this.memory = null;
+
+            // When the tracked buffer is collected, its duplicates may still be alive, so the memory is left to the garbage collector
+            if (isFreedExplicitly && INVOKE_CLEANER != null) {
+                try {
+                    INVOKE_CLEANER.invokeExact(memory);
+                } catch (Throwable ignored) {
+                    // Memory is released by the garbage collector then
+                }
+            }
+
+            LIVE_BYTES.addAndGet(-byteCount);
+        }
+    }
+
+    private static final class BufferKey extends WeakReference<Buffer> {
+        private final int hash;
+
+        private BufferKey(Buffer buffer, ReferenceQueue<Buffer> queue) {
+            super(buffer, queue);
+            this.hash = System.identityHashCode(buffer);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof BufferKey other)) return false;
+
+            Buffer buffer = get();
+            return buffer != null && buffer == other.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
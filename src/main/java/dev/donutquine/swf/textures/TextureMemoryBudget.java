@@ -0,0 +1,266 @@
+package dev.donutquine.swf.textures;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Global budget of pixel memory used by textures with a {@link TexturePixelSource}.
+ *
+ * <p>When the budget is exceeded, pixels of the least recently used textures are unloaded,
+ * unless they are acquired by {@link SWFTexture#acquirePixels()}. Unloaded pixels are decoded
+ * again on the next access. The default limit is {@link #DEFAULT_LIMIT}.</p>
+ *
+ * <p>Memory of unloaded pixels is released immediately by {@link TextureMemory}, except pixels returned by
+ * {@link SWFTexture#getPixels()}, which are left to the garbage collector, so {@link TextureMemory#getLiveBytes()}
+ * may exceed the used bytes until they are collected.</p>
+ *
+ * <p>Textures are tracked by weak references, so textures and their files, which are no longer used, can be
+ * collected without being closed. Their pixels are then subtracted from the used bytes.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TextureMemoryBudget {
+    /**
+     * Default limit of decoded pixel bytes, 512 MiB.
+     */
+    public static final long DEFAULT_LIMIT = 512L << 20;
+
+    // Access-ordered, so iteration starts from the least recently used texture
+    private static final Map<TextureKey, Integer> LOADED_TEXTURES = new LinkedHashMap<>(16, 0.75f, true);
+    private static final ReferenceQueue<SWFTexture> STALE_KEYS = new ReferenceQueue<>();
+
+    private static long limit = DEFAULT_LIMIT;
+    private static long usedBytes;
+
+    private TextureMemoryBudget() {
+    }
+
+    /**
+     * Sets the limit of decoded pixel bytes, evicting textures if it's already exceeded.
+     *
+     * @param limit limit in bytes
+     */
+    public static synchronized void setLimit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+
+        TextureMemoryBudget.limit = limit;
+        evict(null);
+    }
+
+    public static synchronized long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return bytes of decoded pixels held by textures with a pixel source
+     */
+    public static synchronized long getUsedBytes() {
+        expungeStaleKeys();
+        return usedBytes;
+    }
+
+    /**
+     * Publishes decoded pixels unless another thread already did it.
+     *
+     * @param acquire whether to acquire the pixels, otherwise they're {@link TextureMemory#markExposed(Buffer) exposed}
+     * @return pixels of the texture
+     */
+    static synchronized Buffer register(SWFTexture texture, Buffer decodedPixels, boolean acquire) {
+        expungeStaleKeys();
+
+        if (texture.pixels == null) {
+            texture.pixels = decodedPixels;
+
+            int byteCount = texture.getWidth() * texture.getHeight() * texture.getType().pixelBytes;
+            LOADED_TEXTURES.put(new TextureKey(texture, STALE_KEYS), byteCount);
+            usedBytes += byteCount;
+        } else {
+            LOADED_TEXTURES.get(new TextureKey(texture, null));
+            // Pixels decoded concurrently by another thread are published instead, nobody else has seen these
+            TextureMemory.free(decodedPixels);
+        }
+
+        access(texture, acquire);
+        evict(texture);
+
+        return texture.pixels;
+    }
+
+    /**
+     * Marks pixels as recently used.
+     *
+     * @param acquire whether to acquire the pixels, otherwise they're {@link TextureMemory#markExposed(Buffer) exposed}
+     * @return pixels of the texture, or {@code null} if they're not decoded
+     */
+    static synchronized Buffer touch(SWFTexture texture, boolean acquire) {
+        if (texture.pixels == null) {
+            return null;
+        }
+
+        LOADED_TEXTURES.get(new TextureKey(texture, null));
+        access(texture, acquire);
+
+        return texture.pixels;
+    }
+
+    /**
+     * Marks pixels or a mip level of a texture without a pixel source as exposed. Marking happens under the lock,
+     * which is taken before the memory of a closed texture is freed, so the returned buffer is never freed.
+     *
+     * @param level mip level, 0 is the base level
+     */
+    static synchronized Buffer expose(SWFTexture texture, int level) {
+        Buffer buffer = texture.getStoredLevel(level);
+        TextureMemory.markExposed(buffer);
+        return buffer;
+    }
+
+    /**
+     * Acquires pixels of a texture without a pixel source, they're only protected from being freed by {@link SWFTexture#close()}.
+     */
+    static synchronized Buffer pin(SWFTexture texture) {
+        texture.acquireCount++;
+        return texture.pixels;
+    }
+
+    static void release(SWFTexture texture) {
+        Runnable pendingRelease = null;
+
+        synchronized (TextureMemoryBudget.class) {
+            if (texture.acquireCount == 0) {
+                throw new IllegalStateException("Texture pixels weren't acquired");
+            }
+
+            if (--texture.acquireCount == 0) {
+                pendingRelease = texture.pendingRelease;
+                texture.pendingRelease = null;
+            }
+
+            evict(null);
+        }
+
+        // Memory is released outside the lock, as releasing shared pixels takes the lock of the deduplicator
+        if (pendingRelease != null) {
+            pendingRelease.run();
+        }
+    }
+
+    /**
+     * Runs the release of texture memory now, or when the last acquired pixels of the texture are released.
+     */
+    static void releaseWhenUnpinned(SWFTexture texture, Runnable release) {
+        synchronized (TextureMemoryBudget.class) {
+            if (texture.acquireCount != 0) {
+                Runnable previousRelease = texture.pendingRelease;
+                texture.pendingRelease = previousRelease == null ? release : () -> {
+                    previousRelease.run();
+                    release.run();
+                };
+                return;
+            }
+        }
+
+        release.run();
+    }
+
+    static synchronized void unload(SWFTexture texture) {
+        if (texture.acquireCount != 0) {
+            throw new IllegalStateException("Cannot unload acquired texture pixels");
+        }
+
+        remove(texture);
+    }
+
+    /**
+     * Stops tracking the texture, leaving its pixels loaded. Acquired pixels stay acquired.
+     */
+    static synchronized void forget(SWFTexture texture) {
+        Integer byteCount = LOADED_TEXTURES.remove(new TextureKey(texture, null));
+        if (byteCount != null) {
+            usedBytes -= byteCount;
+        }
+    }
+
+    private static void access(SWFTexture texture, boolean acquire) {
+        if (acquire) {
+            texture.acquireCount++;
+        } else {
+            TextureMemory.markExposed(texture.pixels);
+        }
+    }
+
+    private static void remove(SWFTexture texture) {
+        Integer byteCount = LOADED_TEXTURES.remove(new TextureKey(texture, null));
+        if (byteCount != null) {
+            usedBytes -= byteCount;
+        }
+
+        freePixels(texture);
+    }
+
+    /**
+     * Drops pixels of an unpinned texture, freeing their memory unless they're exposed.
+     */
+    private static void freePixels(SWFTexture texture) {
+        Buffer pixels = texture.pixels;
+        texture.pixels = null;
+        releaseWhenUnpinned(texture, () -> TextureMemory.free(pixels));
+    }
+
+    private static void evict(SWFTexture except) {
+        expungeStaleKeys();
+
+        Iterator<Map.Entry<TextureKey, Integer>> iterator = LOADED_TEXTURES.entrySet().iterator();
+        while (usedBytes > limit && iterator.hasNext()) {
+            Map.Entry<TextureKey, Integer> entry = iterator.next();
+
+            SWFTexture texture = entry.getKey().get();
+            if (texture != null && (texture == except || texture.acquireCount != 0)) continue;
+
+            iterator.remove();
+            usedBytes -= entry.getValue();
+            if (texture != null) {
+                freePixels(texture);
+            }
+        }
+    }
+
+    private static void expungeStaleKeys() {
+        Object key;
+        while ((key = STALE_KEYS.poll()) != null) {
+            Integer byteCount = LOADED_TEXTURES.remove(key);
+            if (byteCount != null) {
+                usedBytes -= byteCount;
+            }
+        }
+    }
+
+    private static final class TextureKey extends WeakReference<SWFTexture> {
+        private final int hash;
+
+        private TextureKey(SWFTexture texture, ReferenceQueue<SWFTexture> queue) {
+            super(texture, queue);
+            this.hash = System.identityHashCode(texture);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof TextureKey other)) return false;
+
+            SWFTexture texture = get();
+            return texture != null && texture == other.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
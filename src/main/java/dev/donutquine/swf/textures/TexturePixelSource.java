@@ -0,0 +1,16 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.streams.ByteStream;
+
+/**
+ * Reference to the encoded texture tag, so texture pixels can be decoded at any time.
+ *
+ * @since 1.1.7
+ */
+@FunctionalInterface
+public interface TexturePixelSource {
+    /**
+     * @return new stream positioned at the texture tag payload
+     */
+    ByteStream open();
+}
@@ -0,0 +1,139 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.TextureType;
+
+import java.nio.Buffer;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the smallest {@link TextureType} which can store texture pixels without losing them.
+ *
+ * @since 1.1.7
+ */
+public final class TextureTypeAnalyzer {
+    // Candidates in order of preference, smaller types first
+    private static final TextureType[] CANDIDATES = {TextureType.TYPE_10, TextureType.TYPE_6, TextureType.TYPE_4, TextureType.TYPE_2, TextureType.TYPE_3};
+
+    private static final int LUMINANCE = 1;
+    private static final int LUMINANCE_ALPHA = 1 << 1;
+    private static final int RGB565 = 1 << 2;
+    private static final int RGBA4444 = 1 << 3;
+    private static final int RGBA5551 = 1 << 4;
+    private static final int ALL_CANDIDATES = LUMINANCE | LUMINANCE_ALPHA | RGB565 | RGBA4444 | RGBA5551;
+
+    // Round-trip errors of 8-bit channel values stored with 4, 5 and 6 bits
+    private static final int[] ERRORS_4 = new int[256];
+    private static final int[] ERRORS_5 = new int[256];
+    private static final int[] ERRORS_6 = new int[256];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            ERRORS_4[value] = Math.abs(value - PixelFormatConverter.quantize(value, 15) * 17);
+            ERRORS_5[value] = Math.abs(value - PixelFormatConverter.expand5(PixelFormatConverter.quantize(value, 31)));
+            ERRORS_6[value] = Math.abs(value - PixelFormatConverter.expand6(PixelFormatConverter.quantize(value, 63)));
+        }
+    }
+
+    private TextureTypeAnalyzer() {
+    }
+
+    /**
+     * @return the smallest type storing texture pixels losslessly, or the texture type if there is no smaller one
+     */
+    public static TextureType findSmallestType(SWFTexture texture) {
+        return findSmallestType(texture, 0);
+    }
+
+    /**
+     * @param tolerance maximum allowed difference of each channel value
+     * @return the smallest type storing texture pixels within the tolerance, or the texture type if there is no smaller one
+     */
+    public static TextureType findSmallestType(SWFTexture texture, int tolerance) {
+        Buffer pixels = texture.acquirePixels();
+        try {
+            return findSmallestType(pixels, texture.getType(), texture.getWidth(), texture.getHeight(), tolerance);
+        } finally {
+            texture.releasePixels();
+        }
+    }
+
+    /**
+     * @param pixels    pixel buffer as stored in {@link SWFTexture}
+     * @param type      type of the pixels
+     * @param tolerance maximum allowed difference of each channel value
+     * @return the smallest type storing pixels within the tolerance, or the given type if there is no smaller one
+     */
+    public static TextureType findSmallestType(Buffer pixels, TextureType type, int width, int height, int tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Tolerance cannot be negative");
+        }
+
+        if (type.pixelBytes == 1) {
+            return type;
+        }
+
+        int[] rgba = PixelFormatConverter.toRgba8(pixels, type, width, height);
+        int candidates = analyze(rgba, width, height, tolerance);
+
+        for (int i = 0; i < CANDIDATES.length; i++) {
+            TextureType candidate = CANDIDATES[i];
+            if (candidate.pixelBytes >= type.pixelBytes) break;
+
+            if ((candidates & 1 << i) != 0) {
+                return candidate;
+            }
+        }
+
+        return type;
+    }
+
+    private static int analyze(int[] rgba, int width, int height, int tolerance) {
+        if (rgba.length < PixelFormatConverter.PARALLEL_PIXEL_THRESHOLD) {
+            return analyzeRange(rgba, 0, rgba.length, tolerance);
+        }
+
+        int rowsPerBand = PixelFormatConverter.ROWS_PER_BAND;
+        int bandCount = (height + rowsPerBand - 1) / rowsPerBand;
+        return IntStream.range(0, bandCount).parallel()
+            .map(band -> analyzeRange(rgba, band * rowsPerBand * width, Math.min(height, (band + 1) * rowsPerBand) * width, tolerance))
+            .reduce(ALL_CANDIDATES, (a, b) -> a & b);
+    }
+
+    private static int analyzeRange(int[] rgba, int start, int end, int tolerance) {
+        int candidates = ALL_CANDIDATES;
+
+        for (int i = start; i < end && candidates != 0; i++) {
+            int p = rgba[i];
+            int r = p & 0xFF;
+            int g = p >> 8 & 0xFF;
+            int b = p >> 16 & 0xFF;
+            int a = p >>> 24;
+
+            boolean isOpaque = 255 - a <= tolerance;
+
+            int l = PixelFormatConverter.luma(p);
+            boolean isGray = Math.abs(r - l) <= tolerance && Math.abs(g - l) <= tolerance && Math.abs(b - l) <= tolerance;
+
+            int mask = 0;
+            if (isGray) {
+                mask |= isOpaque ? LUMINANCE | LUMINANCE_ALPHA : LUMINANCE_ALPHA;
+            }
+
+            if (isOpaque && ERRORS_5[r] <= tolerance && ERRORS_6[g] <= tolerance && ERRORS_5[b] <= tolerance) {
+                mask |= RGB565;
+            }
+
+            if (ERRORS_4[r] <= tolerance && ERRORS_4[g] <= tolerance && ERRORS_4[b] <= tolerance && ERRORS_4[a] <= tolerance) {
+                mask |= RGBA4444;
+            }
+
+            if (Math.min(a, 255 - a) <= tolerance && ERRORS_5[r] <= tolerance && ERRORS_5[g] <= tolerance && ERRORS_5[b] <= tolerance) {
+                mask |= RGBA5551;
+            }
+
+            candidates &= mask;
+        }
+
+        return candidates;
+    }
+}
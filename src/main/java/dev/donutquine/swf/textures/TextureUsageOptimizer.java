@@ -0,0 +1,251 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.UnsupportedCustomPropertyException;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
+import dev.donutquine.swf.shapes.ShapeOriginal;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shrinks textures to the parts referenced by {@link ShapeDrawBitmapCommand shape commands}.
+ *
+ * <p>Textures not referenced by any command are removed and texture indices of commands are renumbered.
+ * Textures with pixels may also be cropped to the bounding box of used UVs, in which case UVs are shifted.</p>
+ *
+ * @since 1.1.7
+ */
+public final class TextureUsageOptimizer {
+    private TextureUsageOptimizer() {
+    }
+
+    /**
+     * @param removedTextureCount count of removed unreferenced textures
+     * @param croppedTextureCount count of cropped textures
+     * @param savedPixelCount     pixel count of removed textures and cropped parts
+     */
+    public record Result(int removedTextureCount, int croppedTextureCount, long savedPixelCount) {
+    }
+
+    /**
+     * Removes unreferenced textures and, if requested, crops textures to used UVs. Removed and cropped textures
+     * are closed. Their pixels, which are acquired, are released once they're released, and pixels returned by
+     * {@link SWFTexture#getPixels()} stay valid, e.g. for a renderer drawing while the file is saved.
+     *
+     * @param removeUnused whether unreferenced textures should be removed
+     * @param crop         whether textures should be cropped to used UVs
+     * @param padding      pixels kept around used UVs when cropping
+     */
+    public static Result optimize(SupercellSWF swf, boolean removeUnused, boolean crop, int padding) {
+        if (padding < 0) {
+            throw new IllegalArgumentException("Padding cannot be negative: " + padding);
+        }
+
+        try {
+            swf.decodeAll();
+        } catch (LoadingFaultException | UnsupportedCustomPropertyException exception) {
+            throw new IllegalStateException("Unable to decode indexed objects before optimizing textures", exception);
+        }
+
+        List<ShapeDrawBitmapCommand> commands = new ArrayList<>();
+        for (ShapeOriginal shape : swf.getShapes()) {
+            commands.addAll(shape.getCommands());
+        }
+
+        int removedTextureCount = 0;
+        long savedPixelCount = 0;
+        if (removeUnused) {
+            long pixelCount = countPixels(swf.getTextures());
+            removedTextureCount = removeUnusedTextures(swf, commands);
+            savedPixelCount += pixelCount - countPixels(swf.getTextures());
+        }
+
+        int croppedTextureCount = 0;
+        if (crop) {
+            long pixelCount = countPixels(swf.getTextures());
+            croppedTextureCount = cropTextures(swf, commands, padding);
+            savedPixelCount += pixelCount - countPixels(swf.getTextures());
+        }
+
+        return new Result(removedTextureCount, croppedTextureCount, savedPixelCount);
+    }
+
+    /**
+     * Removes textures not referenced by commands and renumbers texture indices of commands.
+     *
+     * @return count of removed textures
+     */
+    private static int removeUnusedTextures(SupercellSWF swf, List<ShapeDrawBitmapCommand> commands) {
+        List<SWFTexture> textures = swf.getTextures();
+
+        boolean[] isUsed = new boolean[textures.size()];
+        for (ShapeDrawBitmapCommand command : commands) {
+            if (command.getTextureIndex() < isUsed.length) {
+                isUsed[command.getTextureIndex()] = true;
+            }
+        }
+
+        int[] newIndices = new int[textures.size()];
+        List<SWFTexture> usedTextures = new ArrayList<>();
+        List<SWFTexture> unusedTextures = new ArrayList<>();
+        for (int i = 0; i < textures.size(); i++) {
+            if (isUsed[i]) {
+                newIndices[i] = usedTextures.size();
+                usedTextures.add(textures.get(i));
+            } else {
+                unusedTextures.add(textures.get(i));
+            }
+        }
+
+        if (unusedTextures.isEmpty()) return 0;
+
+        for (ShapeDrawBitmapCommand command : commands) {
+            if (command.getTextureIndex() < newIndices.length) {
+                command.setTextureIndex(newIndices[command.getTextureIndex()]);
+            }
+        }
+
+        swf.setTextures(usedTextures);
+
+        // Closing never frees pixels returned by getPixels(), see TextureMemory
+        for (SWFTexture texture : unusedTextures) {
+            texture.close();
+        }
+
+        return unusedTextures.size();
+    }
+
+    /**
+     * Crops textures with pixels to the bounding box of used UVs.
+     *
+     * @return count of cropped textures
+     */
+    private static int cropTextures(SupercellSWF swf, List<ShapeDrawBitmapCommand> commands, int padding) {
+        List<SWFTexture> originalTextures = swf.getTextures();
+        List<SWFTexture> textures = new ArrayList<>(originalTextures);
+
+        // Left, top, right and bottom of used pixels of every texture, null for unused ones
+        int[][] bounds = new int[textures.size()][];
+        for (ShapeDrawBitmapCommand command : commands) {
+            int textureIndex = command.getTextureIndex();
+            if (textureIndex >= textures.size()) continue;
+
+            SWFTexture texture = textures.get(textureIndex);
+            int[] commandBounds = getPixelBounds(command, texture.getWidth(), texture.getHeight(), padding);
+
+            int[] textureBounds = bounds[textureIndex];
+            if (textureBounds == null) {
+                bounds[textureIndex] = commandBounds;
+            } else {
+                textureBounds[0] = Math.min(textureBounds[0], commandBounds[0]);
+                textureBounds[1] = Math.min(textureBounds[1], commandBounds[1]);
+                textureBounds[2] = Math.max(textureBounds[2], commandBounds[2]);
+                textureBounds[3] = Math.max(textureBounds[3], commandBounds[3]);
+            }
+        }
+
+        List<SWFTexture> replacedTextures = new ArrayList<>();
+        int[][] appliedBounds = new int[textures.size()][];
+        for (int i = 0; i < textures.size(); i++) {
+            SWFTexture texture = textures.get(i);
+            int[] textureBounds = bounds[i];
+            if (textureBounds == null || !hasPixels(texture)) continue;
+
+            int width = textureBounds[2] - textureBounds[0];
+            int height = textureBounds[3] - textureBounds[1];
+            if (width == texture.getWidth() && height == texture.getHeight()) continue;
+
+            SWFTexture cropped = crop(texture, textureBounds[0], textureBounds[1], width, height);
+            replacedTextures.add(texture);
+            textures.set(i, cropped);
+            appliedBounds[i] = textureBounds;
+        }
+
+        if (replacedTextures.isEmpty()) return 0;
+
+        for (ShapeDrawBitmapCommand command : commands) {
+            int textureIndex = command.getTextureIndex();
+            if (textureIndex >= textures.size() || appliedBounds[textureIndex] == null) continue;
+
+            SWFTexture original = originalTextures.get(textureIndex);
+            int[] textureBounds = appliedBounds[textureIndex];
+            SWFTexture cropped = textures.get(textureIndex);
+
+            for (int i = 0; i < command.getVertexCount(); i++) {
+                float x = command.getU(i) * original.getWidth() - textureBounds[0];
+                float y = command.getV(i) * original.getHeight() - textureBounds[1];
+
+                command.setUV(i, Math.min(1, Math.max(0, x / cropped.getWidth())), Math.min(1, Math.max(0, y / cropped.getHeight())));
+            }
+        }
+
+        swf.setTextures(textures);
+
+        // Closing never frees pixels returned by getPixels(), see TextureMemory
+        for (SWFTexture texture : replacedTextures) {
+            texture.close();
+        }
+
+        return replacedTextures.size();
+    }
+
+    private static SWFTexture crop(SWFTexture texture, int left, int top, int width, int height) {
+        Buffer source = texture.acquirePixels();
+        Buffer pixels = TextureMemory.allocatePixels(texture.getType(), width * height);
+        try {
+            for (int row = 0; row < height; row++) {
+                AtlasRepacker.copyPixels(source, (top + row) * texture.getWidth() + left, pixels, row * width, width);
+            }
+        } finally {
+            texture.releasePixels();
+        }
+
+        SWFTexture cropped = new SWFTexture(texture.getTag(), texture.getType(), width, height, pixels);
+        if (texture.getMipLevelCount() > 1) {
+            cropped.generateMipmaps();
+        }
+
+        return cropped;
+    }
+
+    /**
+     * @return left, top, right and bottom of pixels covered by UVs of the command extended by padding, clamped to the texture
+     */
+    static int[] getPixelBounds(ShapeDrawBitmapCommand command, int width, int height, int padding) {
+        float minU = Float.MAX_VALUE, minV = Float.MAX_VALUE;
+        float maxU = -Float.MAX_VALUE, maxV = -Float.MAX_VALUE;
+        for (int i = 0; i < command.getVertexCount(); i++) {
+            minU = Math.min(minU, command.getU(i));
+            minV = Math.min(minV, command.getV(i));
+            maxU = Math.max(maxU, command.getU(i));
+            maxV = Math.max(maxV, command.getV(i));
+        }
+
+        int left = clamp((int) Math.floor(minU * width) - padding, 0, width - 1);
+        int top = clamp((int) Math.floor(minV * height) - padding, 0, height - 1);
+        int right = clamp((int) Math.ceil(maxU * width) + padding, left + 1, width);
+        int bottom = clamp((int) Math.ceil(maxV * height) + padding, top + 1, height);
+
+        return new int[]{left, top, right, bottom};
+    }
+
+    private static boolean hasPixels(SWFTexture texture) {
+        return texture.getKtxBuffer() == null && texture.getTextureFilename() == null;
+    }
+
+    private static long countPixels(List<SWFTexture> textures) {
+        long pixelCount = 0;
+        for (SWFTexture texture : textures) {
+            pixelCount += (long) texture.getWidth() * texture.getHeight();
+        }
+
+        return pixelCount;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
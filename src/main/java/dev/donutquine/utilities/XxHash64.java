@@ -0,0 +1,172 @@
+package dev.donutquine.utilities;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Streaming XXH64 hash, a fast non-cryptographic 64-bit hash.
+ *
+ * <p>Short and int buffers are hashed as their little-endian bytes, so the hash of pixels doesn't depend
+ * on the buffer byte order.</p>
+ *
+ * @since 1.1.7
+ */
+public final class XxHash64 {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_LENGTH = 32;
+    // Elements of short and int buffers copied to bytes at once
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+
+    private final long seed;
+    private final ByteBuffer stripe = ByteBuffer.allocate(STRIPE_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1, v2, v3, v4;
+    private long totalLength;
+
+    public XxHash64() {
+        this(0);
+    }
+
+    public XxHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * @return hash of remaining elements of the buffer, its position isn't changed
+     */
+    public static long hash(Buffer buffer) {
+        XxHash64 hash = new XxHash64();
+        hash.update(buffer);
+        return hash.getValue();
+    }
+
+    public void reset() {
+        v1 = seed + PRIME_1 + PRIME_2;
+        v2 = seed + PRIME_2;
+        v3 = seed;
+        v4 = seed - PRIME_1;
+        totalLength = 0;
+        stripe.clear();
+    }
+
+    /**
+     * Updates the hash with remaining elements of the buffer, its position isn't changed.
+     */
+    public void update(Buffer buffer) {
+        if (buffer instanceof ByteBuffer byteBuffer) {
+            update(byteBuffer);
+        } else if (buffer instanceof ShortBuffer shortBuffer) {
+            ByteBuffer bytes = ByteBuffer.allocate(COPY_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = shortBuffer.position(); i < shortBuffer.limit(); ) {
+                int count = Math.min(shortBuffer.limit() - i, COPY_CHUNK_BYTES / Short.BYTES);
+                bytes.clear();
+                bytes.asShortBuffer().put(0, shortBuffer, i, count);
+                update(bytes.limit(count * Short.BYTES));
+                i += count;
+            }
+        } else if (buffer instanceof IntBuffer intBuffer) {
+            ByteBuffer bytes = ByteBuffer.allocate(COPY_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = intBuffer.position(); i < intBuffer.limit(); ) {
+                int count = Math.min(intBuffer.limit() - i, COPY_CHUNK_BYTES / Integer.BYTES);
+                bytes.clear();
+                bytes.asIntBuffer().put(0, intBuffer, i, count);
+                update(bytes.limit(count * Integer.BYTES));
+                i += count;
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported buffer: " + buffer);
+        }
+    }
+
+    public void update(ByteBuffer buffer) {
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        totalLength += data.remaining();
+
+        if (stripe.position() > 0) {
+            int count = Math.min(stripe.remaining(), data.remaining());
+            stripe.put(stripe.position(), data, data.position(), count);
+            stripe.position(stripe.position() + count);
+            data.position(data.position() + count);
+
+            if (stripe.hasRemaining()) return;
+
+            processStripe(stripe, 0);
+            stripe.clear();
+        }
+
+        int position = data.position();
+        int limit = data.limit();
+        for (; limit - position >= STRIPE_LENGTH; position += STRIPE_LENGTH) {
+            processStripe(data, position);
+        }
+
+        stripe.put(0, data, position, limit - position);
+        stripe.position(limit - position);
+    }
+
+    public long getValue() {
+        long hash;
+        if (totalLength >= STRIPE_LENGTH) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME_5;
+        }
+
+        hash += totalLength;
+
+        int length = stripe.position();
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            hash ^= round(0, stripe.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+
+        if (i + Integer.BYTES <= length) {
+            hash ^= (stripe.getInt(i) & 0xFFFFFFFFL) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            i += Integer.BYTES;
+        }
+
+        for (; i < length; i++) {
+            hash ^= (stripe.get(i) & 0xFF) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void processStripe(ByteBuffer data, int offset) {
+        v1 = round(v1, data.getLong(offset));
+        v2 = round(v2, data.getLong(offset + 8));
+        v3 = round(v3, data.getLong(offset + 16));
+        v4 = round(v4, data.getLong(offset + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    private static long mergeRound(long hash, long value) {
+        hash ^= round(0, value);
+        return hash * PRIME_1 + PRIME_4;
+    }
+}
@@ -0,0 +1,137 @@
+package dev.donutquine.swf;
+
+import dev.donutquine.math.ReadonlyRect;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+import dev.donutquine.swf.movieclips.MovieClipChild;
+import dev.donutquine.swf.movieclips.MovieClipFrame;
+import dev.donutquine.swf.movieclips.MovieClipFrameElement;
+import dev.donutquine.swf.movieclips.MovieClipOriginal;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
+import dev.donutquine.swf.shapes.ShapeOriginal;
+import dev.donutquine.swf.shapes.ShapePoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BoundsCacheTest {
+    private SupercellSWF swf;
+    private ShapeOriginal shape;
+    // Places the shape at (5, 5) and scales it twice at (-10, 0)
+    private MovieClipOriginal inner;
+    // Contains the inner clip moved by (100, 0), the second frame is empty
+    private MovieClipOriginal outer;
+    private BoundsCache cache;
+
+    @BeforeEach
+    void createClips() {
+        swf = SupercellSWF.createEmpty();
+
+        shape = new ShapeOriginal(List.of(ShapeDrawBitmapCommand.builder()
+            .withTextureIndex(0)
+            .addPoint(new ShapePoint(0, 0, 0, 0))
+            .addPoint(new ShapePoint(10, 0, 1, 0))
+            .addPoint(new ShapePoint(10, 10, 1, 1))
+            .addPoint(new ShapePoint(0, 10, 0, 1))
+            .build()));
+        shape.setId(swf.addObject(shape));
+
+        ScMatrixBank matrixBank = swf.getMatrixBank(0);
+        matrixBank.addMatrix(new Matrix2x3(1, 0, 0, 1, 5, 5));
+        matrixBank.addMatrix(new Matrix2x3(2, 0, 0, 2, -10, 0));
+        matrixBank.addMatrix(new Matrix2x3(1, 0, 0, 1, 100, 0));
+        matrixBank.addColorTransform(new ColorTransform());
+
+        inner = new MovieClipOriginal(
+            List.of(new MovieClipChild(shape.getId(), 0, null)),
+            List.of(new MovieClipFrame(null, List.of(new MovieClipFrameElement(0, 0, 0)), true),
+                new MovieClipFrame(null, List.of(new MovieClipFrameElement(0, 1, 0)), true)),
+            30, 0, null, false);
+        inner.setId(swf.addObject(inner));
+
+        outer = new MovieClipOriginal(
+            List.of(new MovieClipChild(inner.getId(), 0, null)),
+            List.of(new MovieClipFrame(null, List.of(new MovieClipFrameElement(0, 2, 0)), true),
+                new MovieClipFrame(null, List.of(), true)),
+            30, 0, null, false);
+        outer.setId(swf.addObject(outer));
+
+        cache = new BoundsCache(swf);
+    }
+
+    @Test
+    void clipBoundsEncloseTransformedChildrenOfAllFrames() throws UnableToFindObjectException {
+        assertBounds(0, 0, 10, 10, cache.getBounds(shape));
+        assertBounds(5, 5, 15, 15, cache.getFrameBounds(inner, 0));
+        assertBounds(-10, 0, 10, 20, cache.getFrameBounds(inner, 1));
+        assertBounds(-10, 0, 15, 20, cache.getBounds(inner));
+        assertBounds(90, 0, 115, 20, cache.getBounds(outer));
+        assertNull(cache.getFrameBounds(outer, 1));
+    }
+
+    @Test
+    void unchangedBoundsAreReused() throws UnableToFindObjectException {
+        ReadonlyRect bounds = cache.getBounds(outer);
+
+        assertSame(bounds, cache.getBounds(outer));
+
+        // Edits of other files make the cache check versions again, but don't drop current bounds
+        SupercellSWF.createEmpty().getMatrixBank(0).addMatrix(new Matrix2x3());
+        assertSame(bounds, cache.getBounds(outer));
+    }
+
+    @Test
+    void shapeEditsUpdateContainingClips() throws UnableToFindObjectException {
+        ReadonlyRect bounds = cache.getBounds(outer);
+
+        shape.getCommands().get(0).setXY(2, 20, 10);
+
+        assertNotSame(bounds, cache.getBounds(outer));
+        assertBounds(0, 0, 20, 10, cache.getBounds(shape));
+        assertBounds(90, 0, 130, 20, cache.getBounds(outer));
+    }
+
+    @Test
+    void matrixEditsUpdateClipsUsingTheBank() throws UnableToFindObjectException {
+        cache.getBounds(outer);
+
+        swf.getMatrixBank(0).setMatrix(2, new Matrix2x3(1, 0, 0, 1, 0, 50));
+
+        assertBounds(-10, 50, 15, 70, cache.getBounds(outer));
+    }
+
+    @Test
+    void frameEditsUpdateClips() throws UnableToFindObjectException {
+        cache.getBounds(outer);
+
+        inner.getFrames().get(1).setElements(List.of(new MovieClipFrameElement(0, 0, 0)));
+        assertBounds(105, 5, 115, 15, cache.getBounds(outer));
+
+        outer.getFrames().get(1).setElements(List.of(new MovieClipFrameElement(0, 0xFFFF, 0)));
+        assertBounds(5, 5, 115, 15, cache.getBounds(outer));
+        assertBounds(5, 5, 15, 15, cache.getFrameBounds(outer, 1));
+    }
+
+    @Test
+    void frameListEditsUpdateClipsAfterMarkModified() throws UnableToFindObjectException {
+        cache.getBounds(outer);
+
+        inner.getFrames().remove(1);
+        inner.markModified();
+
+        assertBounds(5, 5, 15, 15, cache.getBounds(inner));
+        assertBounds(105, 5, 115, 15, cache.getBounds(outer));
+    }
+
+    private static void assertBounds(float left, float top, float right, float bottom, ReadonlyRect bounds) {
+        assertEquals(left, bounds.getLeft(), "left");
+        assertEquals(top, bounds.getTop(), "top");
+        assertEquals(right, bounds.getRight(), "right");
+        assertEquals(bottom, bounds.getBottom(), "bottom");
+    }
+}
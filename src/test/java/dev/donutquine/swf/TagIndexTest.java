@@ -0,0 +1,129 @@
+package dev.donutquine.swf;
+
+import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.NegativeTagLengthException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TagIndexTest {
+    @Test
+    void indexesBlocksUpToEof() throws LoadingFaultException {
+        ByteStream stream = new ByteStream();
+        stream.writeInt(0xCAFE);
+        stream.writeBlock(Tag.SHAPE, block -> {
+            block.writeShort(0x1234);
+            block.writeInt(42);
+        });
+        stream.writeBlock(Tag.MOVIE_CLIP, block -> block.writeShort(7));
+        stream.writeBlock(Tag.TEXT_FIELD, null);
+        stream.writeBlock(Tag.EOF, null);
+        // Data after EOF is never scanned
+        stream.writeInt(-1);
+
+        TagIndex index = TagIndex.build(stream.getData(), Integer.BYTES);
+
+        assertEquals(3, index.getCount());
+        assertEquals(Tag.SHAPE, index.getTagValue(0));
+        assertEquals(Tag.MOVIE_CLIP, index.getTagValue(1));
+        assertEquals(Tag.TEXT_FIELD.ordinal(), index.getTag(2));
+
+        assertEquals(Integer.BYTES + 5, index.getOffset(0));
+        assertEquals(6, index.getLength(0));
+        assertEquals(index.getOffset(0) + 6 + 5, index.getOffset(1));
+        assertEquals(0, index.getLength(2));
+
+        assertEquals(0x1234, index.getObjectId(0));
+        assertEquals(7, index.getObjectId(1));
+
+        ByteStream payload = index.openStream(0);
+        assertEquals(0x1234, payload.readShort());
+        assertEquals(42, payload.readInt());
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() throws LoadingFaultException {
+        ByteStream stream = new ByteStream();
+        for (int i = 0; i < 1000; i++) {
+            int id = i;
+            stream.writeBlock(Tag.SHAPE, block -> block.writeShort(id));
+        }
+        stream.writeBlock(Tag.EOF, null);
+
+        TagIndex index = TagIndex.build(stream.getData(), 0);
+
+        assertEquals(1000, index.getCount());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, index.getObjectId(i));
+        }
+    }
+
+    @Test
+    void unknownTagHasNoValue() throws LoadingFaultException {
+        byte[] data = {(byte) 0xFF, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+        TagIndex index = TagIndex.build(data, 0);
+
+        assertEquals(1, index.getCount());
+        assertEquals(0xFF, index.getTag(0));
+        assertNull(index.getTagValue(0));
+    }
+
+    @Test
+    void missingEofIsRejected() {
+        ByteStream stream = new ByteStream();
+        stream.writeBlock(Tag.SHAPE, block -> block.writeShort(1));
+
+        assertThrows(LoadingFaultException.class, () -> TagIndex.build(stream.getData(), 0));
+    }
+
+    @Test
+    void truncatedBlockIsRejected() {
+        ByteStream stream = new ByteStream();
+        stream.writeBlock(Tag.SHAPE, block -> block.writeInt(1));
+        stream.writeBlock(Tag.EOF, null);
+        byte[] data = stream.getData();
+
+        // Cut in the middle of the shape payload, so its length points past the end of data
+        byte[] truncated = Arrays.copyOf(data, 7);
+
+        assertThrows(LoadingFaultException.class, () -> TagIndex.build(truncated, 0));
+    }
+
+    @Test
+    void negativeLengthIsRejected() {
+        byte[] data = {(byte) Tag.SHAPE.ordinal(), 0, 0, 0, (byte) 0x80, 0, 0, 0, 0, 0};
+
+        assertThrows(NegativeTagLengthException.class, () -> TagIndex.build(data, 0));
+    }
+
+    @Test
+    void objectIdOfShortPayloadIsRejected() throws LoadingFaultException {
+        ByteStream stream = new ByteStream();
+        stream.writeBlock(Tag.SHAPE, block -> block.writeUnsignedChar(1));
+        stream.writeBlock(Tag.MOVIE_CLIP, null);
+        stream.writeBlock(Tag.EOF, null);
+
+        TagIndex index = TagIndex.build(stream.getData(), 0);
+
+        assertThrows(LoadingFaultException.class, () -> index.getObjectId(0));
+        assertThrows(LoadingFaultException.class, () -> index.getObjectId(1));
+    }
+
+    @Test
+    void entriesOutOfBoundsAreRejected() throws LoadingFaultException {
+        ByteStream stream = new ByteStream();
+        stream.writeBlock(Tag.EOF, null);
+
+        TagIndex index = TagIndex.build(stream.getData(), 0);
+
+        assertEquals(0, index.getCount());
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getOffset(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getTag(-1));
+    }
+}
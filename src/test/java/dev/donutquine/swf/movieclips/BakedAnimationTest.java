@@ -0,0 +1,175 @@
+package dev.donutquine.swf.movieclips;
+
+import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.ColorTransform;
+import dev.donutquine.swf.Matrix2x3;
+import dev.donutquine.swf.ScMatrixBank;
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.exceptions.LoadingFaultException;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
+import dev.donutquine.swf.shapes.ShapeOriginal;
+import dev.donutquine.swf.shapes.ShapePoint;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BakedAnimationTest {
+    private static final String EXPORT_NAME = "idle";
+    // Magic, version and source, followed by the export name and fps
+    private static final int COUNTS_OFFSET = 2 * Integer.BYTES + 2 * Long.BYTES + 1 + EXPORT_NAME.length() + 1;
+    private static final int FRAME_OFFSETS_OFFSET = COUNTS_OFFSET + 4 * Integer.BYTES;
+
+    @Test
+    void bakedAnimationRoundTripsThroughStream() throws Exception {
+        BakedAnimation animation = bake().withSource(new BakedAnimation.Source(1234, 5678));
+
+        BakedAnimation read = BakedAnimation.read(new ByteStream(write(animation)));
+
+        assertSameAnimation(animation, read);
+        assertEquals(new BakedAnimation.Source(1234, 5678), read.getSource());
+    }
+
+    @Test
+    void bakedAnimationRoundTripsThroughFile() throws Exception {
+        BakedAnimation animation = bake();
+        Path directory = Files.createTempDirectory("baked");
+        try {
+            Path path = directory.resolve(EXPORT_NAME + ".banm");
+            Files.write(path, new byte[]{1, 2, 3});
+
+            animation.write(path);
+
+            assertSameAnimation(animation, BakedAnimation.read(path));
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(List.of(path), files.toList(), "temporary file is moved in place");
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void truncatedDataIsRejected() throws Exception {
+        byte[] data = write(bake());
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(LoadingFaultException.class, () -> BakedAnimation.read(new ByteStream(truncated)), "length " + length);
+        }
+    }
+
+    @Test
+    void corruptedCountsAreRejected() throws Exception {
+        byte[] data = write(bake());
+
+        for (int count = 0; count < 4; count++) {
+            int offset = COUNTS_OFFSET + count * Integer.BYTES;
+            assertThrows(LoadingFaultException.class, () -> BakedAnimation.read(new ByteStream(patchInt(data, offset, -1))));
+            assertThrows(LoadingFaultException.class, () -> BakedAnimation.read(new ByteStream(patchInt(data, offset, Integer.MAX_VALUE))));
+        }
+    }
+
+    @Test
+    void corruptedIndicesAreRejected() throws Exception {
+        BakedAnimation animation = bake();
+        byte[] data = write(animation);
+        int drawsOffset = FRAME_OFFSETS_OFFSET + (animation.getFrameCount() + 1) * Integer.BYTES;
+
+        // Second frame starting before the first one
+        assertThrows(LoadingFaultException.class, () -> BakedAnimation.read(new ByteStream(patchInt(data, FRAME_OFFSETS_OFFSET + Integer.BYTES, -1))));
+        // Matrix and color transform indices of the first draw
+        assertThrows(LoadingFaultException.class, () -> BakedAnimation.read(new ByteStream(patchInt(data, drawsOffset + Integer.BYTES, animation.getMatrixCount()))));
+        assertThrows(LoadingFaultException.class, () -> BakedAnimation.read(new ByteStream(patchInt(data, drawsOffset + 2 * Integer.BYTES, -1))));
+    }
+
+    @Test
+    void otherDataIsRejected() {
+        assertThrows(LoadingFaultException.class, () -> BakedAnimation.read(new ByteStream(new byte[64])));
+    }
+
+    private static void assertSameAnimation(BakedAnimation expected, BakedAnimation actual) {
+        assertEquals(expected.getExportName(), actual.getExportName());
+        assertEquals(expected.getFps(), actual.getFps());
+        assertEquals(expected.getFrameCount(), actual.getFrameCount());
+        assertEquals(expected.getDrawCount(), actual.getDrawCount());
+
+        for (int frame = 0; frame < expected.getFrameCount(); frame++) {
+            assertEquals(expected.getFrameStart(frame), actual.getFrameStart(frame));
+            assertEquals(expected.getFrameEnd(frame), actual.getFrameEnd(frame));
+        }
+
+        for (int draw = 0; draw < expected.getDrawCount(); draw++) {
+            assertEquals(expected.getObjectId(draw), actual.getObjectId(draw));
+            assertEquals(expected.getBlendMode(draw), actual.getBlendMode(draw));
+            assertEquals(expected.getMatrixIndex(draw), actual.getMatrixIndex(draw));
+            assertEquals(expected.getColorTransformIndex(draw), actual.getColorTransformIndex(draw));
+        }
+
+        assertArrayEquals(expected.getMatrices(), actual.getMatrices());
+        assertArrayEquals(expected.getColorTransforms(), actual.getColorTransforms());
+    }
+
+    /**
+     * Bakes a clip, which shows a quad in the first frame and the quad twice with another blend mode and color in the second one.
+     */
+    private static BakedAnimation bake() throws UnableToFindObjectException {
+        SupercellSWF swf = SupercellSWF.createEmpty();
+
+        ShapeOriginal shape = new ShapeOriginal(List.of(ShapeDrawBitmapCommand.builder()
+            .withTextureIndex(0)
+            .addPoint(new ShapePoint(0, 0, 0, 0))
+            .addPoint(new ShapePoint(10, 0, 1, 0))
+            .addPoint(new ShapePoint(10, 10, 1, 1))
+            .addPoint(new ShapePoint(0, 10, 0, 1))
+            .build()));
+        shape.setId(swf.addObject(shape));
+
+        ScMatrixBank matrixBank = swf.getMatrixBank(0);
+        matrixBank.addMatrix(new Matrix2x3(1, 0, 0, 1, 5, 5));
+        matrixBank.addMatrix(new Matrix2x3(2, 0, 0, 2, -3, 1));
+        matrixBank.addColorTransform(new ColorTransform());
+        matrixBank.addColorTransform(new ColorTransform((byte) 10, (byte) 20, (byte) 30, (byte) 128, (byte) 255, (byte) 64, (byte) 32));
+
+        List<MovieClipFrame> frames = List.of(
+            new MovieClipFrame(null, List.of(new MovieClipFrameElement(0, 0, 0)), true),
+            new MovieClipFrame(null, List.of(new MovieClipFrameElement(0, 1, 0), new MovieClipFrameElement(1, 0, 1)), true)
+        );
+        List<MovieClipChild> children = List.of(new MovieClipChild(shape.getId(), 0, null), new MovieClipChild(shape.getId(), 3, null));
+
+        MovieClipOriginal movieClip = new MovieClipOriginal(children, frames, 30, 0, null, false);
+        movieClip.setId(swf.addObject(movieClip));
+        movieClip.setExportName(EXPORT_NAME);
+
+        return BakedAnimation.bake(new TimelineEvaluator(swf), movieClip);
+    }
+
+    private static byte[] write(BakedAnimation animation) {
+        ByteStream stream = new ByteStream();
+        animation.write(stream);
+        return stream.getData();
+    }
+
+    private static byte[] patchInt(byte[] data, int offset, int value) {
+        byte[] patched = data.clone();
+        ByteBuffer.wrap(patched).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return patched;
+    }
+}
@@ -0,0 +1,238 @@
+package dev.donutquine.swf.movieclips;
+
+import dev.donutquine.math.Point;
+import dev.donutquine.math.ReadonlyRect;
+import dev.donutquine.math.Rect;
+import dev.donutquine.swf.BoundsCache;
+import dev.donutquine.swf.ColorTransform;
+import dev.donutquine.swf.DisplayObjectOriginal;
+import dev.donutquine.swf.Matrix2x3;
+import dev.donutquine.swf.ScMatrixBank;
+import dev.donutquine.swf.SupercellSWF;
+import dev.donutquine.swf.exceptions.UnableToFindObjectException;
+import dev.donutquine.swf.shapes.ShapeDrawBitmapCommand;
+import dev.donutquine.swf.shapes.ShapeOriginal;
+import dev.donutquine.swf.shapes.ShapePoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameSpatialIndexTest {
+    // Enough leaves for three levels of nodes above them
+    private static final int LEAF_COUNT = 700;
+    private static final int QUERY_COUNT = 2000;
+
+    @Test
+    void searchMatchesBruteForce() throws UnableToFindObjectException {
+        Frame frame = evaluateRandomFrame(1);
+        FrameSpatialIndex index = FrameSpatialIndex.build(frame.evaluator(), frame.bounds());
+        assertEquals(LEAF_COUNT, index.getLeafCount());
+
+        float[] boxes = computeWorldBoxes(frame);
+        Random random = new Random(2);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            float left = random.nextFloat() * 1200 - 100;
+            float top = random.nextFloat() * 1200 - 100;
+            Rect rect = new Rect(left, top, left + random.nextFloat() * 100, top + random.nextFloat() * 100);
+            assertArrayEquals(searchBruteForce(boxes, rect.getLeft(), rect.getTop(), rect.getRight(), rect.getBottom()), index.query(rect), "rect " + i);
+
+            Point point = new Point(left, top);
+            assertArrayEquals(searchBruteForce(boxes, left, top, left, top), index.query(point), "point " + i);
+        }
+    }
+
+    @Test
+    void boundsEncloseAllLeaves() throws UnableToFindObjectException {
+        Frame frame = evaluateRandomFrame(3);
+        FrameSpatialIndex index = FrameSpatialIndex.build(frame.evaluator(), frame.bounds());
+
+        float[] boxes = computeWorldBoxes(frame);
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        for (int leaf = 0; leaf < LEAF_COUNT; leaf++) {
+            left = Math.min(left, boxes[leaf * 4]);
+            top = Math.min(top, boxes[leaf * 4 + 1]);
+            right = Math.max(right, boxes[leaf * 4 + 2]);
+            bottom = Math.max(bottom, boxes[leaf * 4 + 3]);
+        }
+
+        ReadonlyRect bounds = index.getBounds();
+        assertEquals(left, bounds.getLeft());
+        assertEquals(top, bounds.getTop());
+        assertEquals(right, bounds.getRight());
+        assertEquals(bottom, bounds.getBottom());
+    }
+
+    @Test
+    void hitTestMatchesBruteForce() throws UnableToFindObjectException {
+        Frame frame = evaluateRandomFrame(4);
+        FrameSpatialIndex index = FrameSpatialIndex.build(frame.evaluator(), frame.bounds());
+
+        Random random = new Random(5);
+        int hitCount = 0;
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 1000;
+
+            int expected = hitTestBruteForce(frame, x, y);
+            assertEquals(expected, index.hitTest(new Point(x, y)), "point " + x + ", " + y);
+
+            if (expected != -1) {
+                hitCount++;
+            }
+        }
+
+        // Points should hit leaves as well as gaps between them
+        assertTrue(hitCount > QUERY_COUNT / 10 && hitCount < QUERY_COUNT * 9 / 10, "hit count " + hitCount);
+    }
+
+    @Test
+    void emptyFrameHasNoLeaves() throws UnableToFindObjectException {
+        SupercellSWF swf = SupercellSWF.createEmpty();
+        MovieClipOriginal movieClip = new MovieClipOriginal(List.of(), List.of(new MovieClipFrame(null, List.of(), true)), 30, 0, null, false);
+        movieClip.setId(swf.addObject(movieClip));
+
+        TimelineEvaluator evaluator = new TimelineEvaluator(swf);
+        evaluator.evaluate(movieClip, 0);
+        FrameSpatialIndex index = FrameSpatialIndex.build(evaluator, new BoundsCache(swf));
+
+        assertNull(index.getBounds());
+        assertEquals(0, index.query(new Rect(-100, -100, 100, 100)).length);
+        assertEquals(-1, index.hitTest(new Point(0, 0)));
+    }
+
+    /**
+     * Evaluates a clip, which places a triangle and a quad with random scale, rotation and position,
+     * including degenerate matrices, within a 1000x1000 area.
+     */
+    private static Frame evaluateRandomFrame(long seed) throws UnableToFindObjectException {
+        SupercellSWF swf = SupercellSWF.createEmpty();
+
+        ShapeOriginal triangle = new ShapeOriginal(List.of(ShapeDrawBitmapCommand.builder()
+            .withTextureIndex(0)
+            .addPoint(new ShapePoint(-10, -10, 0, 0))
+            .addPoint(new ShapePoint(10, -5, 1, 0))
+            .addPoint(new ShapePoint(0, 10, 1, 1))
+            .build()));
+        triangle.setId(swf.addObject(triangle));
+
+        ShapeOriginal quad = new ShapeOriginal(List.of(ShapeDrawBitmapCommand.builder()
+            .withTextureIndex(0)
+            .addPoint(new ShapePoint(0, 0, 0, 0))
+            .addPoint(new ShapePoint(20, 0, 1, 0))
+            .addPoint(new ShapePoint(20, 8, 1, 1))
+            .addPoint(new ShapePoint(0, 8, 0, 1))
+            .build()));
+        quad.setId(swf.addObject(quad));
+
+        ScMatrixBank matrixBank = swf.getMatrixBank(0);
+        matrixBank.addColorTransform(new ColorTransform());
+
+        Random random = new Random(seed);
+        List<MovieClipFrameElement> elements = new ArrayList<>(LEAF_COUNT);
+        for (int i = 0; i < LEAF_COUNT; i++) {
+            float scale = i % 50 == 0 ? 0 : 0.5f + random.nextFloat() * 2;
+            double angle = random.nextDouble() * Math.PI * 2;
+            float cos = (float) Math.cos(angle) * scale, sin = (float) Math.sin(angle) * scale;
+            matrixBank.addMatrix(new Matrix2x3(cos, sin, -sin, cos, random.nextFloat() * 1000, random.nextFloat() * 1000));
+
+            elements.add(new MovieClipFrameElement(i % 2, i, 0));
+        }
+
+        List<MovieClipChild> children = List.of(new MovieClipChild(triangle.getId(), 0, null), new MovieClipChild(quad.getId(), 0, null));
+        MovieClipOriginal movieClip = new MovieClipOriginal(children, List.of(new MovieClipFrame(null, elements, true)), 30, 0, null, false);
+        movieClip.setId(swf.addObject(movieClip));
+
+        TimelineEvaluator evaluator = new TimelineEvaluator(swf);
+        assertEquals(LEAF_COUNT, evaluator.evaluate(movieClip, 0));
+        return new Frame(evaluator, new BoundsCache(swf));
+    }
+
+    private static float[] computeWorldBoxes(Frame frame) throws UnableToFindObjectException {
+        TimelineEvaluator evaluator = frame.evaluator();
+        float[] matrices = evaluator.getMatrices();
+
+        float[] boxes = new float[evaluator.getLeafCount() * 4];
+        for (int leaf = 0; leaf < evaluator.getLeafCount(); leaf++) {
+            ReadonlyRect local = frame.bounds().getBounds(evaluator.getLeaves()[leaf]);
+            int offset = leaf * TimelineEvaluator.MATRIX_STRIDE;
+
+            boxes[leaf * 4] = Float.POSITIVE_INFINITY;
+            boxes[leaf * 4 + 1] = Float.POSITIVE_INFINITY;
+            boxes[leaf * 4 + 2] = Float.NEGATIVE_INFINITY;
+            boxes[leaf * 4 + 3] = Float.NEGATIVE_INFINITY;
+            for (float x : new float[]{local.getLeft(), local.getRight()}) {
+                for (float y : new float[]{local.getTop(), local.getBottom()}) {
+                    float worldX = x * matrices[offset] + y * matrices[offset + 2] + matrices[offset + 4];
+                    float worldY = x * matrices[offset + 1] + y * matrices[offset + 3] + matrices[offset + 5];
+                    boxes[leaf * 4] = Math.min(boxes[leaf * 4], worldX);
+                    boxes[leaf * 4 + 1] = Math.min(boxes[leaf * 4 + 1], worldY);
+                    boxes[leaf * 4 + 2] = Math.max(boxes[leaf * 4 + 2], worldX);
+                    boxes[leaf * 4 + 3] = Math.max(boxes[leaf * 4 + 3], worldY);
+                }
+            }
+        }
+
+        return boxes;
+    }
+
+    private static int[] searchBruteForce(float[] boxes, float left, float top, float right, float bottom) {
+        List<Integer> leaves = new ArrayList<>();
+        for (int leaf = 0; leaf < boxes.length / 4; leaf++) {
+            if (right < boxes[leaf * 4] || bottom < boxes[leaf * 4 + 1] || left > boxes[leaf * 4 + 2] || top > boxes[leaf * 4 + 3]) continue;
+
+            leaves.add(leaf);
+        }
+
+        return leaves.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Tests triangles of leaves transformed to world space, from the topmost leaf down.
+     */
+    private static int hitTestBruteForce(Frame frame, float x, float y) {
+        TimelineEvaluator evaluator = frame.evaluator();
+        float[] matrices = evaluator.getMatrices();
+
+        for (int leaf = evaluator.getLeafCount() - 1; leaf >= 0; leaf--) {
+            DisplayObjectOriginal object = evaluator.getLeaves()[leaf];
+            int offset = leaf * TimelineEvaluator.MATRIX_STRIDE;
+            float a = matrices[offset], b = matrices[offset + 1], c = matrices[offset + 2], d = matrices[offset + 3];
+            if (a * d - b * c == 0) continue;
+
+            for (ShapeDrawBitmapCommand command : ((ShapeOriginal) object).getCommands()) {
+                float[] xs = new float[command.getVertexCount()];
+                float[] ys = new float[command.getVertexCount()];
+                for (int i = 0; i < xs.length; i++) {
+                    xs[i] = command.getX(i) * a + command.getY(i) * c + matrices[offset + 4];
+                    ys[i] = command.getX(i) * b + command.getY(i) * d + matrices[offset + 5];
+                }
+
+                for (int i = 1; i < xs.length - 1; i++) {
+                    if (isInTriangle(x, y, xs[0], ys[0], xs[i], ys[i], xs[i + 1], ys[i + 1])) {
+                        return leaf;
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isInTriangle(float x, float y, float x0, float y0, float x1, float y1, float x2, float y2) {
+        double area = (double) (x1 - x0) * (y2 - y0) - (double) (x2 - x0) * (y1 - y0);
+        double s = ((double) (x1 - x) * (y2 - y) - (double) (x2 - x) * (y1 - y)) / area;
+        double t = ((double) (x2 - x) * (y0 - y) - (double) (x0 - x) * (y2 - y)) / area;
+        return s >= 0 && t >= 0 && s + t <= 1;
+    }
+
+    private record Frame(TimelineEvaluator evaluator, BoundsCache bounds) {
+    }
+}
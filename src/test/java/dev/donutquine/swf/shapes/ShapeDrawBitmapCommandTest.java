@@ -0,0 +1,152 @@
+package dev.donutquine.swf.shapes;
+
+import com.supercell.swf.FBShapeDrawBitmapCommand;
+import dev.donutquine.streams.ByteStream;
+import dev.donutquine.swf.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ShapeDrawBitmapCommandTest {
+    @Test
+    void reloadingWithSameOrFewerPointsReusesRange() {
+        ShapePointBuffer points = new ShapePointBuffer();
+        ShapeDrawBitmapCommand command = new ShapeDrawBitmapCommand(points);
+        load(command, 4, 0);
+        int offset = command.getPointOffset();
+
+        byte[] data = createCommandData(4, 10);
+        command.load(new ByteStream(data), Tag.SHAPE_DRAW_BITMAP_COMMAND_3);
+        assertEquals(offset, command.getPointOffset());
+        assertEquals(4, points.getPointCount());
+        assertArrayEquals(data, save(command));
+
+        load(command, 3, 20);
+        assertEquals(offset, command.getPointOffset());
+        assertEquals(3, command.getVertexCount());
+        assertEquals(4, points.getPointCount());
+        assertEquals(22, command.getX(2));
+
+        // The range keeps its capacity, so it's still reused after loading fewer points
+        load(command, 4, 30);
+        assertEquals(offset, command.getPointOffset());
+        assertEquals(4, points.getPointCount());
+    }
+
+    @Test
+    void reloadingWithMorePointsAllocatesRange() {
+        ShapePointBuffer points = new ShapePointBuffer();
+        ShapeDrawBitmapCommand first = new ShapeDrawBitmapCommand(points);
+        ShapeDrawBitmapCommand second = new ShapeDrawBitmapCommand(points);
+        load(first, 3, 0);
+        load(second, 3, 10);
+
+        load(first, 5, 20);
+
+        assertEquals(6, first.getPointOffset());
+        assertEquals(11, points.getPointCount());
+        assertEquals(24, first.getX(4));
+        assertEquals(10, second.getX(0), "points of other commands are kept");
+    }
+
+    @Test
+    void changingSharedPointsCopiesThem() {
+        ShapePointBuffer points = createSequence(4);
+        ShapeDrawBitmapCommand first = createSharedCommand(points, 1, 3);
+        ShapeDrawBitmapCommand second = createSharedCommand(points, 1, 3);
+        int version = first.getVersion();
+
+        first.setXY(0, 100, 200);
+
+        assertEquals(4, first.getPointOffset());
+        assertEquals(7, points.getPointCount());
+        assertEquals(100, first.getX(0));
+        assertEquals(200, first.getY(0));
+        assertEquals(2, first.getX(1), "other points of the range are copied");
+        assertEquals(3, first.getX(2));
+        assertNotEquals(version, first.getVersion());
+
+        assertEquals(1, second.getPointOffset());
+        assertEquals(1, second.getX(0), "commands sharing the range are unchanged");
+
+        // Points are owned after the first change
+        first.setUV(2, 1, 1);
+        assertEquals(4, first.getPointOffset());
+        assertEquals(7, points.getPointCount());
+        assertEquals(1f, first.getU(2));
+        assertEquals(3 / 65535f, second.getU(2));
+    }
+
+    @Test
+    void loadingSharedCommandAllocatesRange() {
+        ShapePointBuffer points = createSequence(4);
+        ShapeDrawBitmapCommand first = createSharedCommand(points, 0, 4);
+        ShapeDrawBitmapCommand second = createSharedCommand(points, 0, 4);
+
+        load(first, 4, 10);
+
+        assertEquals(4, first.getPointOffset());
+        assertEquals(8, points.getPointCount());
+        assertEquals(10, first.getX(0));
+        assertEquals(0, second.getX(0));
+    }
+
+    /**
+     * Creates a buffer, which point {@code i} is {@code (i, i)} with UV {@code (i, i)}.
+     */
+    static ShapePointBuffer createSequence(int count) {
+        ShapePointBuffer points = new ShapePointBuffer(count);
+        points.allocate(count);
+        for (int i = 0; i < count; i++) {
+            points.setXY(i, i, i);
+            points.setUV(i, i, i);
+        }
+
+        return points;
+    }
+
+    /**
+     * Creates a command referring to points without copying them, as commands of FlatBuffers files do.
+     */
+    static ShapeDrawBitmapCommand createSharedCommand(ShapePointBuffer points, int offset, int count) {
+        ByteBuffer fb = ByteBuffer.allocate(4 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        fb.putInt(0).putInt(0).putInt(count).putInt(offset);
+
+        return new ShapeDrawBitmapCommand(new FBShapeDrawBitmapCommand().__assign(0, fb), points);
+    }
+
+    /**
+     * Loads a command, which point {@code i} is {@code (first + i, first + i)} with UV {@code (first + i, first + i)}.
+     */
+    static void load(ShapeDrawBitmapCommand command, int count, int first) {
+        command.load(new ByteStream(createCommandData(count, first)), Tag.SHAPE_DRAW_BITMAP_COMMAND_3);
+    }
+
+    private static byte[] createCommandData(int count, int first) {
+        ByteStream stream = new ByteStream();
+        stream.writeUnsignedChar(0);
+        stream.writeUnsignedChar(count);
+        for (int i = 0; i < count; i++) {
+            stream.writeTwip(first + i);
+            stream.writeTwip(first + i);
+        }
+
+        for (int i = 0; i < count; i++) {
+            stream.writeShort(first + i);
+            stream.writeShort(first + i);
+        }
+
+        return stream.getData();
+    }
+
+    private static byte[] save(ShapeDrawBitmapCommand command) {
+        ByteStream stream = new ByteStream();
+        command.save(stream);
+        return stream.getData();
+    }
+}
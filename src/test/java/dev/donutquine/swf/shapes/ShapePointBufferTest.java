@@ -0,0 +1,118 @@
+package dev.donutquine.swf.shapes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static dev.donutquine.swf.shapes.ShapeDrawBitmapCommandTest.createSequence;
+import static dev.donutquine.swf.shapes.ShapeDrawBitmapCommandTest.createSharedCommand;
+import static dev.donutquine.swf.shapes.ShapeDrawBitmapCommandTest.load;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShapePointBufferTest {
+    @Test
+    void uvIsUnsigned() {
+        ShapePointBuffer points = new ShapePointBuffer(1);
+        points.allocate(1);
+
+        points.setUV(0, 65535, 32768);
+
+        assertEquals(65535, points.getU(0));
+        assertEquals(32768, points.getV(0));
+    }
+
+    @Test
+    void allocationGrowsBuffer() {
+        ShapePointBuffer points = new ShapePointBuffer(2);
+
+        assertEquals(0, points.allocate(2));
+        assertEquals(2, points.allocate(5));
+        points.setXY(6, 1, 2);
+
+        assertEquals(7, points.getPointCount());
+        assertEquals(2, points.getY(6));
+    }
+
+    @Test
+    void compactionDropsUnreferencedPoints() {
+        ShapePointBuffer points = new ShapePointBuffer();
+        ShapeDrawBitmapCommand first = new ShapeDrawBitmapCommand(points);
+        ShapeDrawBitmapCommand second = new ShapeDrawBitmapCommand(points);
+        load(first, 3, 0);
+        load(second, 4, 10);
+        // Leaves the first range of three points unreferenced
+        load(first, 5, 20);
+        ShapeDrawBitmapCommand other = new ShapeDrawBitmapCommand(new ShapePointBuffer());
+        load(other, 3, 30);
+
+        // Duplicates and commands of other buffers are skipped
+        assertEquals(3, points.compact(List.of(first, second, first, other)));
+
+        assertEquals(9, points.getPointCount());
+        assertEquals(0, second.getPointOffset());
+        assertEquals(4, first.getPointOffset());
+        assertEquals(0, other.getPointOffset());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(10 + i, second.getX(i));
+            assertEquals((10 + i) / 65535f, second.getV(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(20 + i, first.getY(i));
+            assertEquals((20 + i) / 65535f, first.getU(i));
+        }
+
+        assertEquals(0, points.compact(List.of(first, second)), "compacted buffer has nothing to drop");
+    }
+
+    @Test
+    void compactedRangesAreReusedOnReload() {
+        ShapePointBuffer points = new ShapePointBuffer();
+        ShapeDrawBitmapCommand first = new ShapeDrawBitmapCommand(points);
+        ShapeDrawBitmapCommand second = new ShapeDrawBitmapCommand(points);
+        load(first, 5, 0);
+        load(second, 3, 10);
+        // Reuses the range, leaving three points of it unused
+        load(first, 2, 20);
+        points.allocate(4);
+
+        assertEquals(7, points.compact(List.of(first, second)));
+        assertEquals(0, first.getPointOffset());
+        assertEquals(2, second.getPointOffset());
+
+        // Capacity of the range is trimmed by compaction, so loading more points must allocate
+        load(first, 3, 30);
+        assertEquals(5, first.getPointOffset());
+        assertEquals(10, second.getX(0));
+        assertEquals(8, points.getPointCount());
+    }
+
+    @Test
+    void compactionKeepsSharedRanges() {
+        ShapePointBuffer points = createSequence(8);
+        ShapeDrawBitmapCommand first = createSharedCommand(points, 2, 3);
+        ShapeDrawBitmapCommand second = createSharedCommand(points, 2, 3);
+        // Overlaps the shared range
+        ShapeDrawBitmapCommand overlapping = createSharedCommand(points, 4, 3);
+
+        assertEquals(3, points.compact(List.of(first, second, overlapping)));
+
+        assertEquals(5, points.getPointCount());
+        assertEquals(0, first.getPointOffset());
+        assertEquals(0, second.getPointOffset());
+        assertEquals(2, overlapping.getPointOffset());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2 + i, first.getX(i));
+            assertEquals(2 + i, second.getX(i));
+            assertEquals(4 + i, overlapping.getX(i));
+        }
+
+        // Relocated ranges are still shared, so changes are copied
+        first.setXY(2, 100, 100);
+        assertEquals(5, first.getPointOffset());
+        assertEquals(4, second.getX(2));
+        assertEquals(4, overlapping.getX(0));
+
+        // The old range of the changed command stays referenced by others
+        assertEquals(0, points.compact(List.of(first, second, overlapping)));
+    }
+}
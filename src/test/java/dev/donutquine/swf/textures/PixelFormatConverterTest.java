@@ -0,0 +1,107 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.TextureType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PixelFormatConverterTest {
+    // 256x256 pixels hold every 16-bit value once and are split into bands, as the size reaches the parallel threshold
+    private static final int SIZE = 256;
+
+    @ParameterizedTest
+    @EnumSource(value = TextureType.class, names = {"TYPE_2", "TYPE_3", "TYPE_4", "TYPE_6", "TYPE_8"})
+    void shortTypesRoundTripEveryValue(TextureType type) {
+        ShortBuffer pixels = ShortBuffer.allocate(SIZE * SIZE);
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            pixels.put(i, (short) i);
+        }
+
+        int[] rgba = PixelFormatConverter.toRgba8(pixels, type, SIZE, SIZE);
+        ShortBuffer packed = (ShortBuffer) PixelFormatConverter.fromRgba8(rgba, type, SIZE, SIZE);
+
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            assertEquals(i, packed.get(i) & 0xFFFF, type + " value wasn't restored");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TextureType.class, names = {"TYPE_2", "TYPE_3", "TYPE_4"})
+    void shortTypesRoundToNearestChannelValue(TextureType type) {
+        int[] rgba = new int[SIZE * SIZE];
+        for (int i = 0; i < rgba.length; i++) {
+            // Every channel value in every channel, with alpha taking the values of red reversed
+            int value = i & 0xFF;
+            int other = i >> 8;
+            rgba[i] = (255 - value) << 24 | other << 16 | other << 8 | value;
+        }
+
+        ShortBuffer packed = (ShortBuffer) PixelFormatConverter.convert(IntBuffer.wrap(rgba), TextureType.TYPE_0, type, SIZE, SIZE);
+        int[] restored = PixelFormatConverter.toRgba8(packed, type, SIZE, SIZE);
+
+        int[] channelMaxima = switch (type) {
+            case TYPE_2 -> new int[]{15, 15, 15, 15};
+            case TYPE_3 -> new int[]{31, 31, 31, 1};
+            case TYPE_4 -> new int[]{31, 63, 31, 255};
+            default -> throw new IllegalArgumentException(type.toString());
+        };
+
+        for (int i = 0; i < rgba.length; i++) {
+            for (int channel = 0; channel < 4; channel++) {
+                int expected = type == TextureType.TYPE_4 && channel == 3 ? 255 : rgba[i] >>> channel * 8 & 0xFF;
+                assertChannel(type, channel, expected, restored[i] >>> channel * 8 & 0xFF, channelMaxima[channel]);
+            }
+        }
+    }
+
+    @Test
+    void luminanceKeepsGrayColors() {
+        int[] rgba = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            rgba[i] = (255 - i) << 24 | i << 16 | i << 8 | i;
+        }
+
+        ByteBuffer luminance = (ByteBuffer) PixelFormatConverter.fromRgba8(rgba, TextureType.TYPE_10, SIZE, 1);
+        ShortBuffer luminanceAlpha = (ShortBuffer) PixelFormatConverter.fromRgba8(rgba, TextureType.TYPE_6, SIZE, 1);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(i, luminance.get(i) & 0xFF);
+            assertEquals((255 - i) << 8 | i, luminanceAlpha.get(i) & 0xFFFF);
+        }
+
+        int[] expanded = PixelFormatConverter.toRgba8(luminance, TextureType.TYPE_10, SIZE, 1);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(0xFF000000 | i << 16 | i << 8 | i, expanded[i]);
+        }
+    }
+
+    @Test
+    void rgba8IsCopiedAsIs() {
+        int[] rgba = new int[SIZE * SIZE];
+        for (int i = 0; i < rgba.length; i++) {
+            rgba[i] = i * 0x9E3779B9;
+        }
+
+        Buffer packed = PixelFormatConverter.fromRgba8(rgba, TextureType.TYPE_0, SIZE, SIZE);
+        int[] restored = PixelFormatConverter.toRgba8(packed, TextureType.TYPE_0, SIZE, SIZE);
+        for (int i = 0; i < rgba.length; i++) {
+            assertEquals(rgba[i], restored[i]);
+        }
+    }
+
+    /**
+     * Checks that the restored channel is within half of the quantization step of the original one.
+     */
+    private static void assertChannel(TextureType type, int channel, int expected, int actual, int max) {
+        int tolerance = (255 + max) / (2 * max);
+        if (Math.abs(expected - actual) > tolerance) {
+            assertEquals(expected, actual, type + " channel " + channel + " is off by more than " + tolerance);
+        }
+    }
+}
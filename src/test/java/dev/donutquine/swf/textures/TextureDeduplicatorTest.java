@@ -0,0 +1,120 @@
+package dev.donutquine.swf.textures;
+
+import dev.donutquine.swf.Tag;
+import dev.donutquine.swf.TextureType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextureDeduplicatorTest {
+    private static final int SIZE = 8;
+    private static final int BYTE_COUNT = SIZE * SIZE * Integer.BYTES;
+
+    @BeforeEach
+    @AfterEach
+    void clearRegistry() {
+        TextureDeduplicator.clear();
+    }
+
+    @Test
+    void identicalTexturesShareOneBuffer() {
+        SWFTexture first = createTexture(1);
+        SWFTexture second = createTexture(1);
+        SWFTexture other = createTexture(2);
+
+        assertFalse(TextureDeduplicator.share(first), "first texture registers its contents");
+        assertTrue(TextureDeduplicator.share(second));
+        assertFalse(TextureDeduplicator.share(other), "different contents stay separate");
+        assertFalse(TextureDeduplicator.share(second), "shared texture isn't registered twice");
+
+        assertTrue(first.isPixelsShared());
+        assertTrue(second.isPixelsShared());
+
+        TextureDeduplicator.Statistics statistics = TextureDeduplicator.getStatistics();
+        assertEquals(2, statistics.uniqueCount());
+        assertEquals(3, statistics.textureCount());
+        assertEquals(2L * BYTE_COUNT, statistics.uniqueBytes());
+        assertEquals((long) BYTE_COUNT, statistics.duplicatedBytes());
+
+        assertEquals(first.getPixels(), second.getPixels());
+        assertEquals(first.getContentHash(), second.getContentHash());
+    }
+
+    @Test
+    void sharedBufferIsFreedWithTheLastTexture() {
+        SWFTexture first = createTexture(3);
+        SWFTexture second = createTexture(3);
+        long freedBytes = TextureMemory.getFreedBytes();
+
+        TextureDeduplicator.share(first);
+        TextureDeduplicator.share(second);
+        assertEquals(freedBytes + BYTE_COUNT, TextureMemory.getFreedBytes(), "pixels of the duplicate are freed");
+
+        first.close();
+        assertEquals(1, TextureDeduplicator.getStatistics().textureCount());
+        assertEquals(freedBytes + BYTE_COUNT, TextureMemory.getFreedBytes(), "shared pixels are still referenced");
+
+        second.close();
+        assertEquals(0, TextureDeduplicator.getStatistics().uniqueCount());
+        assertEquals(freedBytes + 2L * BYTE_COUNT, TextureMemory.getFreedBytes());
+    }
+
+    @Test
+    void acquiredPixelsAreFreedOnRelease() {
+        SWFTexture first = createTexture(4);
+        SWFTexture second = createTexture(4);
+        TextureDeduplicator.share(first);
+
+        IntBuffer acquired = (IntBuffer) second.acquirePixels();
+        long freedBytes = TextureMemory.getFreedBytes();
+        TextureDeduplicator.share(second);
+        assertEquals(freedBytes, TextureMemory.getFreedBytes(), "acquired pixels aren't freed");
+        assertEquals(4, acquired.get(0));
+
+        second.releasePixels();
+        assertEquals(freedBytes + BYTE_COUNT, TextureMemory.getFreedBytes());
+    }
+
+    @Test
+    void exposedPixelsAreLeftToTheGarbageCollector() {
+        SWFTexture first = createTexture(5);
+        SWFTexture second = createTexture(5);
+        TextureDeduplicator.share(first);
+
+        IntBuffer exposed = (IntBuffer) second.getPixels();
+        long freedBytes = TextureMemory.getFreedBytes();
+        TextureDeduplicator.share(second);
+        second.close();
+
+        assertEquals(freedBytes, TextureMemory.getFreedBytes(), "exposed pixels are left to the garbage collector");
+        assertEquals(5, exposed.get(SIZE * SIZE - 1));
+    }
+
+    @Test
+    void sharedPixelsAreReadOnly() {
+        SWFTexture first = createTexture(6);
+        SWFTexture second = createTexture(6);
+        TextureDeduplicator.share(first);
+        TextureDeduplicator.share(second);
+
+        IntBuffer pixels = (IntBuffer) second.getPixels();
+        assertTrue(pixels.isReadOnly());
+        assertThrows(ReadOnlyBufferException.class, () -> pixels.put(0, 1));
+        assertEquals(6, ((IntBuffer) first.getPixels()).get(0));
+    }
+
+    private static SWFTexture createTexture(int color) {
+        int[] pixels = new int[SIZE * SIZE];
+        Arrays.fill(pixels, color);
+        return new SWFTexture(Tag.TEXTURE, TextureType.TYPE_0, SIZE, SIZE, TextureMemory.wrap(pixels));
+    }
+}